@@ -17,16 +17,25 @@
  */
 package br.com.ibmp.som;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import br.com.ibmp.som.distance.DistanceMethodInterface;
 import br.com.ibmp.som.distance.EuclideanDistanceMethod;
 import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.index.BestMatchingIndexInterface;
 import br.com.ibmp.som.listener.SelfOrganizingMapListener;
+import br.com.ibmp.som.listener.ThrottledSelfOrganizingMapListener;
+import br.com.ibmp.som.matrix.SOMCheckpoint;
+import br.com.ibmp.som.matrix.SOMModel;
 import br.com.ibmp.som.matrix.SampleVectorInterface;
 import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightSnapshot;
 import br.com.ibmp.som.matrix.vo.WeightElementVO;
 import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
 import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
@@ -40,21 +49,66 @@ import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
  */
 public class SelfOrganizingMap {
 
-  /** Listener array to emit the step end and end events. */
+  /** Number of iterations of each worker on a CONCURRENT step. */
+  private final static int CONCURRENT_ITERATIONS = 64;
+  
+  /** Default fraction of the way to the means of the incremental steps. */
+  public final static double INCREMENTAL_RATE = 0.1d;
+  
+  /** Default time of the first incremental step. */
+  public final static double INCREMENTAL_FROM = 0.9d;
+  
+  /** Default time of the last incremental step. */
+  public final static double INCREMENTAL_TO = 0.98d;
+  
+  /** Default number of incremental steps of each batch. */
+  public final static int INCREMENTAL_STEPS = 3;
+  
+  /** 
+   * Listener array to emit the step end and end events. The listeners
+   * may be added and removed while the learning thread emits events.
+   */
   private List<SelfOrganizingMapListener> listeners;
 	
   /** Status from self organizing map algorithm. */
   private enum Status {START, STOP, PAUSE};
 
-  /** Self organizing map status. Should be START, STOP or PAUSE. */
-  private Status status;
+  /** 
+   * Self organizing map status. Should be START, STOP or PAUSE. It is 
+   * changed by other threads to stop the learning loop.
+   */
+  private volatile Status status;
+  
+  /** 
+   * Learning algorithm. ONLINE updates the map with one random sample on
+   * each iteration and BATCH updates the map with all samples on each 
+   * iteration. CONCURRENT runs ONLINE iterations on the executor threads
+   * at the same time, without locking the weights. A map with missing
+   * weight values runs its CONCURRENT iterations on a single thread.
+   */
+  public enum LearningMode {ONLINE, BATCH, CONCURRENT};
+  
+  /** Learning algorithm used by the step learn. */
+  private LearningMode learningMode;
   
   /** Mutex for synchornizing multiple threads. */
   private ReentrantLock mutex;
+  
+  /** Condition signaled when the learning loop ends. */
+  private Condition learnEnd;
+  
+  /** Thread that runs the learning loop, or null if none. */
+  private Thread learningThread;
 
   /** Weight matrix that contains the result. */
   private WeightMatrix  weightMatrix;
   
+  /** Learning step of the weights, changed by every step. */
+  private volatile long epoch;
+  
+  /** Last snapshot of the weights, or null if none. */
+  private volatile WeightSnapshot snapshot;
+  
   /** Contains the sample vector to be rearranged. */
   private SampleVectorInterface sampleVector;
     
@@ -67,9 +121,49 @@ public class SelfOrganizingMap {
   /** Number of times to be iterate the algorithm. */
   private int iterationNumber;
   
+  /** 
+   * True when the last learning process ended and the time was reset, 
+   * so the written models keep the time of the end. It is written with
+   * the time of the end under the mutex.
+   */
+  private volatile boolean finished;
+  
+  /** Time variable at the end of the last learning process. */
+  private double endT;
+  
+  /** Iteration counter at the end of the last learning process. */
+  private int endIteration;
+  
   /** Time increment variable. */
   private double tPerIteration;
   
+  /** Executor of the parallel best matching search. */
+  private ExecutorService executor;
+  
+  /** Number of grid partitions of the parallel best matching search. */
+  private int partitions;
+  
+  /** Grid radius of the best matching cache, or -1 if disabled. */
+  private int cacheRadius;
+  
+  /** Best matching index, or null to scan every neuron. */
+  private BestMatchingIndexInterface bestMatchingIndex;
+  
+  /** Fraction of the way to the means of the incremental steps. */
+  private double incrementalRate;
+  
+  /** Time of the first incremental step. */
+  private double incrementalFrom;
+  
+  /** Time of the last incremental step. */
+  private double incrementalTo;
+  
+  /** Number of incremental steps of each batch. */
+  private int incrementalSteps;
+  
+  /** Periodic checkpoint of the learning process, or null if none. */
+  private volatile SOMCheckpoint checkpoint;
+  
   /**
    * Constructor.
    * 
@@ -92,13 +186,30 @@ public class SelfOrganizingMap {
     setIterationNumber(iterationNumber);
 
     this.weightMatrix    = null;
+    this.snapshot        = null;
     this.sampleVector    = sampleVector;
 
     mutex     = new ReentrantLock();
-    listeners = new ArrayList<SelfOrganizingMapListener>();
+    learnEnd  = mutex.newCondition();
+    listeners = new CopyOnWriteArrayList<SelfOrganizingMapListener>();
  
     status    = Status.STOP;
     iteration = 0;
+    epoch     = 0;
+    
+    executor    = null;
+    partitions  = 1;
+    cacheRadius = -1;
+    
+    bestMatchingIndex = null;
+    checkpoint  = null;
+    
+    incrementalRate  = INCREMENTAL_RATE;
+    incrementalFrom  = INCREMENTAL_FROM;
+    incrementalTo    = INCREMENTAL_TO;
+    incrementalSteps = INCREMENTAL_STEPS;
+    
+    learningMode = LearningMode.ONLINE;
   }
   
   /**
@@ -121,6 +232,10 @@ public class SelfOrganizingMap {
     iteration     = 0;
     t             = 0.0d;
     tPerIteration = 1.0d/iterationNumber;
+    finished      = false;
+    
+    // The snapshots also keep the time, so the next one is copied again.
+    epoch++;
   }
   
   /**
@@ -134,6 +249,212 @@ public class SelfOrganizingMap {
   public int getIterationNumber() {    
     return iterationNumber;	  
   }
+  
+  /**
+   * Assessor to set the learning algorithm. In BATCH mode each iteration
+   * is an epoch over all samples.
+   * 
+   * @param learningMode - Learning algorithm.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setLearningMode(LearningMode learningMode) 
+    throws SOMException {
+    if (status == Status.START)
+      throw new SOMException("The process is already started"); 
+    
+    if (learningMode == null)
+      throw new SOMException("Invalid learning mode");
+    
+    this.learningMode = learningMode;
+  }
+  
+  /**
+   * Assessor to retrieve the learning algorithm.
+   * 
+   * @return Learning algorithm.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public LearningMode getLearningMode() {
+    return learningMode;
+  }
+  
+  /**
+   * Assessor to set the executor used to search the best matching weight
+   * in parallel. On BATCH mode the executor also splits the samples of
+   * each epoch, and the groups mounting always splits the samples. On 
+   * CONCURRENT mode each partition is a worker that runs its own ONLINE
+   * iterations. The executor is not shutdown by this class.
+   * 
+   * @param executor   - Executor to run the grid partitions, or null to 
+   *                     search on the learning thread.
+   * @param partitions - Number of grid partitions, or of CONCURRENT 
+   *                     workers.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setExecutor(ExecutorService executor, int partitions) 
+    throws SOMException {
+    if (executor != null && partitions < 1)
+      throw new SOMException("Invalid partition number: " + partitions);
+    
+    this.executor   = executor;
+    this.partitions = partitions;
+    
+    if (weightMatrix != null)
+      weightMatrix.setExecutor(executor, partitions);
+  }
+
+  /**
+   * Assessor to set the best matching index. It is used by the BATCH 
+   * steps and by the groups mounting, which is done on a snapshot with 
+   * its own copy of the index.
+   * 
+   * @param bestMatchingIndex - Best matching index, or null to always 
+   *                            scan every neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setBestMatchingIndex(BestMatchingIndexInterface 
+    bestMatchingIndex) throws SOMException {
+    mutex.lock();
+    
+    try {
+      this.bestMatchingIndex = bestMatchingIndex;
+      
+      if (weightMatrix != null) {
+        weightMatrix.setBestMatchingIndex(bestMatchingIndex);
+        
+        // The next snapshot is copied again with the new index.
+        epoch++;
+      }
+    }
+    finally {
+      mutex.unlock();
+    }
+  }
+
+  /**
+   * Assessor to set the best matching cache of the BATCH mode. Each 
+   * sample is first searched around its best matching weight of the 
+   * previous iteration, and every weight is only searched when the 
+   * weights moved too much.
+   * 
+   * @param cacheRadius - Grid radius searched around the previous best 
+   *                      matching weight, or -1 to disable the cache.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setBestMatchingCache(int cacheRadius) throws SOMException {
+    if (cacheRadius < -1)
+      throw new SOMException("Invalid cache radius: " + cacheRadius);
+    
+    this.cacheRadius = cacheRadius;
+    
+    if (weightMatrix != null)
+      weightMatrix.setBestMatchingCache(cacheRadius);
+  }
+
+  /**
+   * Assessor to set the schedule of the incremental learning. Each batch
+   * runs some BATCH steps with the time going from the first to the last
+   * step time, so the neighborhood radius shrinks as in the end of the 
+   * learning, and each step only moves the weights a fraction of the way
+   * to the batch means.
+   * 
+   * @param rate  - Fraction of the way to the means, between 0 and 1.
+   * @param tFrom - Time of the first step, between 0 and 1.
+   * @param tTo   - Time of the last step, between tFrom and 1.
+   * @param steps - Number of steps of each batch.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setIncrementalSchedule(double rate, double tFrom, double tTo,
+    int steps) throws SOMException {
+    if (rate <= 0.0d || rate > 1.0d)
+      throw new SOMException("Invalid learning rate: " + rate);
+    
+    if (tFrom < 0.0d || tTo < tFrom || tTo > 1.0d)
+      throw new SOMException("Invalid time range: " + tFrom + "," + tTo);
+    
+    if (steps < 1)
+      throw new SOMException("Invalid step number: " + steps);
+    
+    incrementalRate  = rate;
+    incrementalFrom  = tFrom;
+    incrementalTo    = tTo;
+    incrementalSteps = steps;
+  }
+  
+  /**
+   * Assessor to set the periodic checkpoint of the learning process. The
+   * weights are written to the file by another thread when any of the 
+   * cadences is reached and when the learning ends. After a crash the 
+   * learning continues from the file with readModel and resumeLearn.
+   * 
+   * @param fileName - File that keeps the last checkpoint, or null to 
+   *                   disable the checkpoint.
+   * @param steps    - Number of iterations between two checkpoints, or 0
+   *                   to ignore the iterations.
+   * @param millis   - Milliseconds between two checkpoints, or 0 to 
+   *                   ignore the time.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setCheckpoint(String fileName, int steps, long millis) 
+    throws SOMException {
+    mutex.lock();
+    
+    try {
+      if (checkpoint != null)
+        checkpoint.close();
+      
+      checkpoint = null;
+      
+      if (fileName != null)
+        checkpoint = new SOMCheckpoint(fileName, steps, millis);
+    }
+    finally {
+      mutex.unlock();
+    }
+  }
+  
+  /**
+   * Wait the pending checkpoint of the learning process to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void awaitCheckpoint() throws SOMException {
+    SOMCheckpoint current;
+    
+    current = checkpoint;
+    
+    if (current != null)
+      current.await();
+  }
 
   /**
    * Add a listener to receive step end and end events.
@@ -147,6 +468,29 @@ public class SelfOrganizingMap {
     listeners.add(listener);	  
   }
 
+  /**
+   * Add a listener to receive step end and end events at a chosen 
+   * cadence. The events are received on other thread, so the listener 
+   * does not stall the learning process, with a copy of the weights taken
+   * when the event was emitted.
+   * 
+   * @param listener - Class to receive the events.
+   * @param steps    - Number of iterations between two step end events,
+   *                   or 0 to ignore the iterations.
+   * @param millis   - Milliseconds between two step end events, or 0 to
+   *                   ignore the time.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public final void addListener(SelfOrganizingMapListener listener, 
+    int steps, long millis) throws SOMException {
+    listeners.add(new ThrottledSelfOrganizingMapListener(listener, steps,
+      millis, ThrottledSelfOrganizingMapListener.CAPACITY));
+  }
+
   /**
    * Remove a listener of this class.
    * 
@@ -156,11 +500,26 @@ public class SelfOrganizingMap {
    * 
    */
   public final void removeListener(SelfOrganizingMapListener listener) {
+    ThrottledSelfOrganizingMapListener throttled;
+    
     listeners.remove(listener);
+    
+    for (SelfOrganizingMapListener added : listeners) {
+      if (added instanceof ThrottledSelfOrganizingMapListener) {
+        throttled = (ThrottledSelfOrganizingMapListener) added;
+        
+        if (throttled.getListener() == listener) {
+          listeners.remove(throttled);
+          throttled.close();
+        }
+      }
+    }
   }
   
   /**
-   * This method will start the process iteration.
+   * This method will start the process iteration. The status is checked
+   * between the steps, and an interruption of the learning thread stops
+   * the process.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
@@ -168,26 +527,164 @@ public class SelfOrganizingMap {
    * 
    */
   protected final void startLearn() throws SOMException {
-    if (status == Status.START)
-      throw new SOMException("The process is already started"); 
-   
     mutex.lock();
     
     try {
-      status = Status.START;
+      if (status == Status.START || learningThread != null)
+        throw new SOMException("The process is already started"); 
+      
+      status         = Status.START;
+      learningThread = Thread.currentThread();
     }
     finally {
       mutex.unlock();
     }
     
-    while (t <= 1.0d && status == Status.START)
-      stepLearn();
+    try {
+      while (t <= 1.0d && status == Status.START) {
+        if (Thread.currentThread().isInterrupted()) {
+          status = Status.STOP;
+          break;
+        }
+        
+        stepLearn();
+      }
 
-    if (status != Status.PAUSE) {
-      if (iteration != 0)
-        emitEnd();
+      if (status != Status.PAUSE) {
+        if (iteration != 0)
+          emitEnd();
+      }
+    }
+    finally {
+      mutex.lock();
+      
+      try {
+        // A failed step leaves the process stopped where it failed.
+        if (status == Status.START)
+          status = Status.STOP;
+        
+        learningThread = null;
+        learnEnd.signalAll();
+      }
+      finally {
+        mutex.unlock();
+      }
+    }
+  }
+  
+  /**
+   * Wait the learning loop to end. The learning thread itself does not 
+   * wait, so the listeners may stop or pause the process. The mutex must
+   * be locked.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void waitLearnEnd() throws SOMException {
+    try {
+      while (learningThread != null && 
+             learningThread != Thread.currentThread())
+        learnEnd.await();
+    }
+    catch (InterruptedException e) {
+      throw new SOMException("Problems with thread", e);
     }
   }
+  
+  /**
+   * Start the learning process on an executor thread. Cancelling the 
+   * returned future with interruption stops the process after the 
+   * current step.
+   * 
+   * @param executor     - Executor to run the learning process.
+   * @param weightWidth  - Matrix weight width.
+   * @param weightHeight - Matrix weight height.
+   * 
+   * @return The future weight matrix, done when the process ends, stops
+   *         or pauses.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public final Future<WeightMatrix> submitLearn(ExecutorService executor,
+    int weightWidth, int weightHeight) throws SOMException {
+    return submitLearn(executor, weightWidth, weightHeight, 
+      new EuclideanDistanceMethod(), new GaussianNeighborsMethod());
+  }
+  
+  /**
+   * Start the learning process on an executor thread. Cancelling the 
+   * returned future with interruption stops the process after the 
+   * current step.
+   * 
+   * @param executor        - Executor to run the learning process.
+   * @param weightWidth     - Matrix weight width.
+   * @param weightHeight    - Matrix weight height. 
+   * @param distanceMethod  - Method to calculate the distance between
+   *                          two elements.
+   * @param neighborsMethod - Method to rearrange all neighbors and also
+   *                          the learning method algorithm.
+   * 
+   * @return The future weight matrix, done when the process ends, stops
+   *         or pauses.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public final Future<WeightMatrix> submitLearn(ExecutorService executor,
+    final int weightWidth, final int weightHeight, 
+    final DistanceMethodInterface distanceMethod, 
+    final NeighborsMethodInterface neighborsMethod) throws SOMException {
+    if (executor == null)
+      throw new SOMException("Invalid executor");
+    
+    return executor.submit(new Callable<WeightMatrix>() {
+      public WeightMatrix call() throws SOMException {
+        startLearn(weightWidth, weightHeight, distanceMethod, 
+          neighborsMethod);
+        
+        return weightMatrix;
+      }
+    });
+  }
+  
+  /**
+   * Resume the paused learning process on an executor thread. Cancelling
+   * the returned future with interruption stops the process after the 
+   * current step.
+   * 
+   * @param executor - Executor to run the learning process.
+   * 
+   * @return The future weight matrix, done when the process ends, stops
+   *         or pauses.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public final Future<WeightMatrix> submitResume(ExecutorService executor)
+    throws SOMException {
+    if (executor == null)
+      throw new SOMException("Invalid executor");
+    
+    if (weightMatrix == null)
+      throw new SOMException("Weight Matrix not initialized");
+    
+    return executor.submit(new Callable<WeightMatrix>() {
+      public WeightMatrix call() throws SOMException {
+        resumeLearn();
+        
+        return weightMatrix;
+      }
+    });
+  }
 
   /**
    * Assessor for emiting a step end event.
@@ -201,7 +698,8 @@ public class SelfOrganizingMap {
   }
 
   /**
-   * Assessor for emiting an end event.
+   * Assessor for emiting an end event. The time is reset under the mutex,
+   * so a model written at the same time keeps the time of the end.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * @throws SOMException 
@@ -211,8 +709,20 @@ public class SelfOrganizingMap {
     for(SelfOrganizingMapListener listener: listeners)
       listener.end(weightMatrix, iteration);
     
-    status = Status.STOP;
-    setIterationNumber(this.iterationNumber);     
+    mutex.lock();
+    
+    try {
+      endT         = t;
+      endIteration = iteration;
+      
+      status = Status.STOP;
+      setIterationNumber(this.iterationNumber);     
+      
+      finished = true;
+    }
+    finally {
+      mutex.unlock();
+    }
   }
 
   /**
@@ -252,6 +762,10 @@ public class SelfOrganizingMap {
     neighborsMethod) throws SOMException {
     weightMatrix = new WeightMatrix(weightWidth, weightHeight, 
       sampleVector, neighborsMethod, distanceMethod);
+    epoch++;
+    weightMatrix.setExecutor(executor, partitions);
+    weightMatrix.setBestMatchingCache(cacheRadius);
+    weightMatrix.setBestMatchingIndex(bestMatchingIndex);
     
     startLearn();		  
   }
@@ -265,23 +779,52 @@ public class SelfOrganizingMap {
    * 
    */
   public final void stepLearn() throws SOMException {
+    int steps;
+    double tEnd;
+    
     if (weightMatrix == null)
       throw new SOMException("Weight Matrix not initialized");
     
     mutex.lock();
     
-    if (t > 1.0d) {
-      if (iteration != 0)
-        emitEnd();
+    try {
+      if (t > 1.0d) {
+        if (iteration != 0)
+          emitEnd();
 
-      return;
-    }
+        return;
+      }
 
-    try {
-      weightMatrix.executeStepLearn(t);
-      t += tPerIteration;
-      iteration++;
+      if (learningMode == LearningMode.CONCURRENT) {
+        // Each worker runs some iterations, so one step runs many of them.
+        steps = 0;
+        tEnd  = t;
+        
+        while (tEnd <= 1.0d && steps < CONCURRENT_ITERATIONS * 
+          (executor == null ? 1 : partitions)) {
+          tEnd += tPerIteration;
+          steps++;
+        }
+        
+        weightMatrix.executeConcurrentStepLearn(t, tEnd, steps);
+        t          = tEnd;
+        iteration += steps;
+      }
+      else {
+        if (learningMode == LearningMode.BATCH)
+          weightMatrix.executeBatchLearn(t);
+        else
+          weightMatrix.executeStepLearn(t);
+        t += tPerIteration;
+        iteration++;
+      }
+      epoch++;
+      finished = false;
       emitStepEnd();
+      
+      if (checkpoint != null)
+        checkpoint.step(weightMatrix, t, iteration, iterationNumber, 
+          t > 1.0d);
     }
     finally {
       mutex.unlock();
@@ -330,10 +873,59 @@ public class SelfOrganizingMap {
     neighborsMethod) throws SOMException {
     weightMatrix = new WeightMatrix(weightWidth, weightHeight, 
       sampleVector, neighborsMethod, distanceMethod);
+    epoch++;
+    weightMatrix.setExecutor(executor, partitions);
+    weightMatrix.setBestMatchingCache(cacheRadius);
+    weightMatrix.setBestMatchingIndex(bestMatchingIndex);
     
     stepLearn();
   }
   
+  /**
+   * Class interface to adapt a trained map to new samples without a new
+   * learning process. The samples may be a batch of a stream, or the 
+   * lines appended to the learning samples given by a SampleVectorRange.
+   * The learning time and iteration counter are not changed.
+   * 
+   * @param samples - Samples to be learned.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public final void learnIncremental(SampleVectorInterface samples) 
+    throws SOMException {
+    int i;
+    double tStep;
+    
+    if (samples == null)
+      throw new SOMException("Invalid sample vector");
+    
+    mutex.lock();
+    
+    try {
+      if (status == Status.START || learningThread != null)
+        throw new SOMException("The process is already started"); 
+      
+      if (weightMatrix == null)
+        throw new SOMException("The process was not started");
+      
+      for (i = 0; i < incrementalSteps; i++) {
+        tStep = incrementalFrom;
+        if (incrementalSteps > 1)
+          tStep += (incrementalTo - incrementalFrom) * i / 
+            (incrementalSteps - 1);
+        
+        weightMatrix.executeBatchLearn(samples, tStep, incrementalRate);
+        epoch++;
+      }
+    }
+    finally {
+      mutex.unlock();
+    }
+  }
+  
   /**
    * Class interface to resume the learning process of Self Organizing Map
    * when the process was paused.
@@ -349,6 +941,10 @@ public class SelfOrganizingMap {
 
   /**
    * Class interface to stop the learning process of Self Organizing Map.
+   * It returns when the current step ends. The status is written before
+   * the mutex is locked, so the learning loop stops without holding it 
+   * again, and once more under the mutex, since a process being started
+   * may have written START in between.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
@@ -358,15 +954,12 @@ public class SelfOrganizingMap {
   public final void stopLearn() throws SOMException {
     status = Status.STOP;
     
-    try {    
-      Thread.sleep(200);  
-    } 
-    catch (InterruptedException e) {
-      throw new SOMException("Problems with thread", e);
-    }
     mutex.lock();
     
     try {
+      status = Status.STOP;
+      
+      waitLearnEnd();
       setIterationNumber(iterationNumber);
     }
     finally {
@@ -375,7 +968,9 @@ public class SelfOrganizingMap {
   }
 
   /**
-   * Class interface to stop the learning process of Self Organizing Map.
+   * Class interface to pause the learning process of Self Organizing Map.
+   * It returns when the current step ends. As on stopLearn, the status is
+   * written again under the mutex.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
@@ -387,6 +982,18 @@ public class SelfOrganizingMap {
       throw new SOMException("The process is not started"); 
 
     status = Status.PAUSE;
+    
+    mutex.lock();
+    
+    try {
+      if (status == Status.START)
+        status = Status.PAUSE;
+      
+      waitLearnEnd();
+    }
+    finally {
+      mutex.unlock();
+    }
   }
 
   /**
@@ -406,7 +1013,8 @@ public class SelfOrganizingMap {
   
   /**
    * After the learning process we must mount the groups for each sample
-   * element. 
+   * element. The groups are mounted on a snapshot of the weights, so they
+   * may also be mounted while the process is learning.
    * 
    * @param sampleVector - Vector that contains all element to be separated
    *                       between the groups.
@@ -420,16 +1028,112 @@ public class SelfOrganizingMap {
    */
   public final WeightElementVO[][] mountGroups(SampleVectorInterface 
     sampleVector) throws SOMException {
-    if (status == Status.START)
-      throw new SOMException("The process is already started");
-    
-    if (weightMatrix == null)
-      throw new SOMException("The process was not started");
-    
     if (sampleVector == null)
       throw new SOMException("The sample vector must not be empty");
     
-    return weightMatrix.mountGroups(sampleVector);
+    return getSnapshot().mountGroups(sampleVector, executor, partitions);
+  }
+  
+  /**
+   * Assessor to retrieve an immutable snapshot of the weights. It may be
+   * called at any time, also while the process is learning: the weights
+   * are copied between two steps, and the same snapshot is returned 
+   * until the next step changes them.
+   * 
+   * @return Snapshot of the current weights.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public final WeightSnapshot getSnapshot() throws SOMException {
+    WeightSnapshot current;
+    
+    current = snapshot;
+    
+    if (current != null && current.getEpoch() == epoch)
+      return current;
+    
+    mutex.lock();
+    
+    try {
+      if (weightMatrix == null)
+        throw new SOMException("The process was not started");
+      
+      if (snapshot == null || snapshot.getEpoch() != epoch)
+        snapshot = new WeightSnapshot(weightMatrix, epoch, t, iteration);
+      
+      return snapshot;
+    }
+    finally {
+      mutex.unlock();
+    }
+  }
+  
+  /**
+   * Write the trained model to a file. The model keeps the weights, the
+   * methods and the learning time, so the learning may be resumed after
+   * the model is read. When the learning process ended, the time of the
+   * end is written, so the model is read as an ended process.
+   * 
+   * @param fileName - File to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public final void writeModel(String fileName) throws SOMException {
+    mutex.lock();
+    
+    try {
+      if (weightMatrix == null)
+        throw new SOMException("The process was not started");
+      
+      new SOMModel(weightMatrix.getStorage(), 
+        weightMatrix.getDistanceMethod(), weightMatrix.getNeighborsMethod(),
+        finished ? endT : t, finished ? endIteration : iteration, 
+        iterationNumber).write(fileName);
+    }
+    finally {
+      mutex.unlock();
+    }
+  }
+  
+  /**
+   * Create a Self Organizing Map from a model written by the writeModel
+   * method or by a checkpoint. The map is stopped where the model was 
+   * written, so the groups can be mounted at once or the learning can be
+   * resumed. A model of an ended process is read with the time of the 
+   * end, so resuming it only emits the end event and does not learn 
+   * again.
+   * 
+   * @param fileName     - File to be read.
+   * @param sampleVector - Contains the sample vector to be rearranged.
+   * 
+   * @return The Self Organizing Map.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public static SelfOrganizingMap readModel(String fileName, 
+    SampleVectorInterface sampleVector) throws SOMException {
+    SOMModel model;
+    SelfOrganizingMap som;
+    
+    model = SOMModel.read(fileName);
+    som   = new SelfOrganizingMap(model.getIterationNumber(), sampleVector);
+    
+    som.weightMatrix = new WeightMatrix(model.getStorage(), sampleVector, 
+      model.getNeighborsMethod(), model.getDistanceMethod());
+    som.t            = model.getT();
+    som.iteration    = model.getIteration();
+    som.epoch++;
+    
+    return som;
   }
   
   /**
@@ -0,0 +1,78 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.cluster;
+
+import br.com.ibmp.som.cluster.vo.SOMWorkerResultVO;
+import br.com.ibmp.som.cluster.vo.SOMWorkerTaskVO;
+import br.com.ibmp.som.exception.SOMException;
+
+/**
+ * Transport to a worker that runs in the same process. The epochs are
+ * executed on the calling thread.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMLocalTransport implements SOMTransportInterface {
+
+  /** The worker. */
+  private SOMWorkerBean worker;
+  
+  /**
+   * Constructor.
+   * 
+   * @param worker - The worker.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMLocalTransport(SOMWorkerBean worker) throws SOMException {
+    if (worker == null)
+      throw new SOMException("Invalid worker");
+    
+    this.worker = worker;
+  }
+  
+  /**
+   * Send one learning epoch to the worker and wait for the result.
+   * 
+   * @param task - Epoch to be executed.
+   * 
+   * @return Epoch result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerResultVO execute(SOMWorkerTaskVO task) throws SOMException {
+    return worker.execute(task);
+  }
+
+  /**
+   * Release the worker.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void close() {
+  }
+}
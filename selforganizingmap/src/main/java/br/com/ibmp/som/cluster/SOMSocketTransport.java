@@ -0,0 +1,136 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+import br.com.ibmp.som.cluster.vo.SOMWorkerResultVO;
+import br.com.ibmp.som.cluster.vo.SOMWorkerTaskVO;
+import br.com.ibmp.som.exception.SOMException;
+
+/**
+ * Transport to a worker server over a socket. The connection is opened
+ * on the first epoch and kept until the transport is closed.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMSocketTransport implements SOMTransportInterface {
+
+  /** Worker server host. */
+  private String host;
+  
+  /** Worker server port. */
+  private int port;
+  
+  /** Connection with the worker server. */
+  private Socket socket;
+  
+  /** Connection input. */
+  private DataInputStream input;
+  
+  /** Connection output. */
+  private DataOutputStream output;
+  
+  /**
+   * Constructor.
+   * 
+   * @param host - Worker server host.
+   * @param port - Worker server port.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMSocketTransport(String host, int port) {
+    this.host = host;
+    this.port = port;
+    
+    socket = null;
+  }
+  
+  /**
+   * Send one learning epoch to the worker and wait for the result.
+   * 
+   * @param task - Epoch to be executed.
+   * 
+   * @return Epoch result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public synchronized SOMWorkerResultVO execute(SOMWorkerTaskVO task) 
+    throws SOMException {
+    try {
+      if (socket == null) {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        
+        input  = new DataInputStream(new BufferedInputStream(
+          socket.getInputStream()));
+        output = new DataOutputStream(new BufferedOutputStream(
+          socket.getOutputStream()));
+      }
+      
+      SOMWorkerProtocol.writeTask(output, task);
+      output.flush();
+      
+      return SOMWorkerProtocol.readResult(input);
+    }
+    catch (IOException e) {
+      close();
+      throw new SOMException("Problems with worker connection: " + host + 
+        ":" + port, e);
+    }
+  }
+
+  /**
+   * Close the connection with the worker server.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public synchronized void close() {
+    if (socket == null)
+      return;
+    
+    try {
+      output.writeByte(SOMWorkerProtocol.CLOSE);
+      output.flush();
+    }
+    catch (IOException e) {
+      // The worker server is already gone.
+    }
+    
+    try {
+      socket.close();
+    }
+    catch (IOException e) {
+      // Nothing to do, the connection is released anyway.
+    }
+    
+    socket = null;
+  }
+}
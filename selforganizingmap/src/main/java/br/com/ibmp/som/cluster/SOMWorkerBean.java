@@ -1,5 +1,207 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
 package br.com.ibmp.som.cluster;
 
+import java.util.Random;
+
+import br.com.ibmp.som.cluster.vo.SOMWorkerResultVO;
+import br.com.ibmp.som.cluster.vo.SOMWorkerTaskVO;
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.BatchAccumulator;
+import br.com.ibmp.som.matrix.SampleVectorInterface;
+import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.neighbors.AbstractNeighborsMethod;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
+
+/**
+ * Worker that executes the learning epochs over its own part of the 
+ * samples. The weights are received from the manager in the beginning of
+ * each epoch, and a task of a manager with other methods is rejected.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
 public class SOMWorkerBean {
 
+  /** Samples of this worker. */
+  private SampleVectorInterface sampleVector;
+  
+  /** Scale neighbors and learning method. */
+  private NeighborsMethodInterface neighborsMethod;
+  
+  /** Distance calcule method. */
+  private DistanceMethodInterface distanceMethod;
+  
+  /** Identifier of the distance and neighbors methods. */
+  private String methods;
+  
+  /** Weight matrix reused between the epochs. */
+  private WeightMatrix weightMatrix;
+  
+  /** Random instance. */
+  private Random randomize;
+  
+  /**
+   * Constructor.
+   * 
+   * @param sampleVector - Samples of this worker.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerBean(SampleVectorInterface sampleVector) 
+    throws SOMException {
+    this(sampleVector, new GaussianNeighborsMethod(), 
+      new EuclideanDistanceMethod());
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param sampleVector    - Samples of this worker.
+   * @param neighborsMethod - Scale neighbors and learning method. The 
+   *                          instance must not be shared with other workers.
+   * @param distanceMethod  - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerBean(SampleVectorInterface sampleVector, 
+    NeighborsMethodInterface neighborsMethod, 
+    DistanceMethodInterface distanceMethod) throws SOMException {
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+    
+    if (neighborsMethod == null)
+      throw new SOMException("Not valid neighbors method");
+    
+    this.sampleVector    = sampleVector;
+    this.neighborsMethod = neighborsMethod;
+    this.distanceMethod  = distanceMethod;
+    
+    methods      = getMethods(distanceMethod, neighborsMethod);
+    weightMatrix = null;
+    randomize    = new Random();
+  }
+  
+  /**
+   * Assessor to retrieve the identifier of the distance and neighbors 
+   * methods. It has the class names and the neighbors parameters, so two
+   * equal identifiers learn the same way.
+   * 
+   * @param distanceMethod  - Distance calcule method.
+   * @param neighborsMethod - Scale neighbors and learning method.
+   * 
+   * @return Identifier of the methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  static String getMethods(DistanceMethodInterface distanceMethod, 
+    NeighborsMethodInterface neighborsMethod) {
+    String methods;
+    AbstractNeighborsMethod method;
+    
+    methods = (distanceMethod == null ? "" : 
+      distanceMethod.getClass().getName()) + "," + 
+      neighborsMethod.getClass().getName();
+    
+    if (neighborsMethod instanceof AbstractNeighborsMethod) {
+      method   = (AbstractNeighborsMethod) neighborsMethod;
+      methods += "(" + method.getRadius() + "," + method.getLattice() + 
+        "," + method.isToroidal() + ")";
+    }
+    
+    return methods;
+  }
+  
+  /**
+   * Assessor for returning the samples of this worker.
+   * 
+   * @return Samples of this worker.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SampleVectorInterface getSample() {
+    return sampleVector;
+  }
+  
+  /**
+   * Execute one learning epoch over the samples of this worker.
+   * 
+   * @param task - Epoch to be executed.
+   * 
+   * @return Epoch result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public synchronized SOMWorkerResultVO execute(SOMWorkerTaskVO task) 
+    throws SOMException {
+    int i;
+    WeightStorage weights, storage;
+    BatchAccumulator accumulator;
+    
+    if (!methods.equals(task.getMethods()))
+      throw new SOMException("Problems with methods: " + task.getMethods() +
+        " is not " + methods);
+    
+    weights = task.getWeights();
+    
+    if (weightMatrix == null || 
+        weightMatrix.getStorage().getWidth() != weights.getWidth() ||
+        weightMatrix.getStorage().getHeight() != weights.getHeight())
+      weightMatrix = new WeightMatrix(new WeightStorage(weights), sampleVector,
+        neighborsMethod, distanceMethod);
+    else {
+      weightMatrix.getStorage().setWeights(weights);
+      weightMatrix.weightsChanged();
+    }
+    
+    storage = weightMatrix.getStorage();
+    
+    if (task.getType() == SOMWorkerTaskVO.TaskType.BATCH) {
+      accumulator = new BatchAccumulator(storage.getNeuronNumber(), 
+        storage.getDimension());
+      
+      weightMatrix.accumulateBatch(sampleVector, neighborsMethod.getKernel(
+        task.getT(), storage.getWidth(), storage.getHeight()), 0, 
+        sampleVector.getRowSize(), randomize, accumulator);
+      
+      return new SOMWorkerResultVO(accumulator);
+    }
+    
+    for (i = 0; i < task.getIterations(); i++)
+      weightMatrix.executeStepLearn(task.getT() + 
+        (task.getTEnd() - task.getT()) * i / task.getIterations());
+    
+    return new SOMWorkerResultVO(new WeightStorage(storage));
+  }
 }
@@ -1,19 +1,497 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
 package br.com.ibmp.som.cluster;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import br.com.ibmp.som.cluster.vo.SOMWorkerResultVO;
+import br.com.ibmp.som.cluster.vo.SOMWorkerTaskVO;
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.listener.SelfOrganizingMapListener;
+import br.com.ibmp.som.matrix.BatchAccumulator;
+import br.com.ibmp.som.matrix.SampleVectorFile;
+import br.com.ibmp.som.matrix.SampleVectorInterface;
+import br.com.ibmp.som.matrix.SampleVectorRange;
+import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
+
+/**
+ * Manager of the distributed learning process. The samples are split
+ * between the workers, each epoch is executed by all workers at the same
+ * time and the results are merged on one weight matrix, that is sent to
+ * the workers on the next epoch. The workers must use the same distance
+ * and neighbors methods of the manager, otherwise they reject the tasks.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
 public class SOMWorkerManagerBean {
 
-  public SOMWorkerManagerBean(String fileName, int workers) {
+  /** 
+   * How the worker results are merged. AVERAGE executes online epochs and
+   * takes the mean of the worker weights. BATCH executes batch epochs and 
+   * sums the worker accumulators, which gives the same result of the 
+   * batch learning over all samples.
+   */
+  public enum MergeMode {AVERAGE, BATCH};
+  
+  /** All samples. */
+  private SampleVectorInterface sampleVector;
+  
+  /** Transports to the workers. */
+  private List<SOMTransportInterface> transports;
+  
+  /** Scale neighbors and learning method. */
+  private NeighborsMethodInterface neighborsMethod;
+  
+  /** Distance calcule method. */
+  private DistanceMethodInterface distanceMethod;
+  
+  /** Listener array to emit the step end and end events. */
+  private List<SelfOrganizingMapListener> listeners;
+  
+  /** How the worker results are merged. */
+  private MergeMode mergeMode;
+  
+  /** Online iterations of each worker on each epoch. */
+  private int epochIterations;
+  
+  /** True when the learning process must stop. */
+  private volatile boolean stopped;
+  
+  /**
+   * Constructor. The file is split between workers on this process.
+   * 
+   * @param fileName - Sample file name.
+   * @param workers  - Number of workers.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerManagerBean(String fileName, int workers) 
+    throws SOMException {
+    this(new SampleVectorFile(fileName), workers);
+  }
+  
+  /**
+   * Constructor. The samples are split between workers on this process.
+   * 
+   * @param sampleVector - All samples.
+   * @param workers      - Number of workers.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerManagerBean(SampleVectorInterface sampleVector, int workers)
+    throws SOMException {
+    this(sampleVector, createLocalTransports(sampleVector, workers));
+  }
+  
+  /**
+   * Constructor. Each transport must reach a worker with its own part of 
+   * the samples and the default methods.
+   * 
+   * @param sampleVector - All samples, used to randomize the first weights.
+   * @param transports   - Transports to the workers.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerManagerBean(SampleVectorInterface sampleVector, 
+    List<SOMTransportInterface> transports) throws SOMException {
+    this(sampleVector, transports, new EuclideanDistanceMethod(), 
+      new GaussianNeighborsMethod());
+  }
+  
+  /**
+   * Constructor. Each transport must reach a worker with its own part of 
+   * the samples and the same methods.
+   * 
+   * @param sampleVector    - All samples, used to randomize the first 
+   *                          weights.
+   * @param transports      - Transports to the workers.
+   * @param distanceMethod  - Distance calcule method.
+   * @param neighborsMethod - Scale neighbors and learning method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerManagerBean(SampleVectorInterface sampleVector, 
+    List<SOMTransportInterface> transports, 
+    DistanceMethodInterface distanceMethod, 
+    NeighborsMethodInterface neighborsMethod) throws SOMException {
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+    
+    if (transports == null || transports.isEmpty())
+      throw new SOMException("Invalid worker number");
+    
+    if (neighborsMethod == null)
+      throw new SOMException("Not valid neighbors method");
+    
+    this.sampleVector    = sampleVector;
+    this.transports      = new ArrayList<SOMTransportInterface>(transports);
+    this.distanceMethod  = distanceMethod;
+    this.neighborsMethod = neighborsMethod;
     
+    listeners       = new ArrayList<SelfOrganizingMapListener>();
+    mergeMode       = MergeMode.BATCH;
+    epochIterations = 100;
+    stopped         = false;
   }
   
-  //FIXME - Open the file, read lines and store in a database, then
-  //call the SOMWorkerBean passing a SampleVectorSql for each worker
-  //according the number of workers. Wait for workers return the weight 
-  //matrix take the MEDIA of all weight matrix and finish the process
+  /**
+   * Create one worker on this process for each part of the samples.
+   * 
+   * @param sampleVector - All samples.
+   * @param workers      - Number of workers.
+   * 
+   * @return Transports to the workers.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private static List<SOMTransportInterface> createLocalTransports(
+    SampleVectorInterface sampleVector, int workers) throws SOMException {
+    List<SOMTransportInterface> transports;
+    
+    transports = new ArrayList<SOMTransportInterface>();
+    
+    for (SampleVectorRange range : SampleVectorRange.split(sampleVector, 
+      workers))
+      transports.add(new SOMLocalTransport(new SOMWorkerBean(range)));
+    
+    return transports;
+  }
   
-  //FIXME - use the pause, stop and play process
+  /**
+   * Assessor to set how the worker results are merged.
+   * 
+   * @param mergeMode - How the worker results are merged.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setMergeMode(MergeMode mergeMode) throws SOMException {
+    if (mergeMode == null)
+      throw new SOMException("Invalid merge mode");
+    
+    this.mergeMode = mergeMode;
+  }
   
+  /**
+   * Assessor to retrieve how the worker results are merged.
+   * 
+   * @return How the worker results are merged.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public MergeMode getMergeMode() {
+    return mergeMode;
+  }
   
+  /**
+   * Assessor to set the online iterations of each worker on each epoch.
+   * Only used by the AVERAGE merge mode. Each worker executes epochs 
+   * times epoch iterations online steps on the whole learning process.
+   * 
+   * @param epochIterations - Online iterations of each epoch.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setEpochIterations(int epochIterations) throws SOMException {
+    if (epochIterations < 1)
+      throw new SOMException("Invalid epoch iterations: " + epochIterations);
+    
+    this.epochIterations = epochIterations;
+  }
   
+  /**
+   * Assessor to retrieve the online iterations of each worker on each 
+   * epoch.
+   * 
+   * @return Online iterations of each epoch.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getEpochIterations() {
+    return epochIterations;
+  }
   
+  /**
+   * Add a listener to receive the epoch end and end events.
+   * 
+   * @param listener - Class to receive the events.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public final void addListener(SelfOrganizingMapListener listener) {
+    listeners.add(listener);
+  }
+  
+  /**
+   * Remove a listener of this class.
+   * 
+   * @param listener - Class to be removed.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public final void removeListener(SelfOrganizingMapListener listener) {
+    listeners.remove(listener);
+  }
+  
+  /**
+   * Stop the learning process after the current epoch.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void stopLearn() {
+    stopped = true;
+  }
+  
+  /**
+   * Execute the distributed learning process.
+   * 
+   * @param width  - Weight matrix width.
+   * @param height - Weight matrix height.
+   * @param epochs - Number of epochs.
+   * 
+   * @return The learned weight matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public WeightMatrix learn(int width, int height, int epochs) 
+    throws SOMException {
+    int epoch;
+    double t, tEnd;
+    String methods;
+    WeightMatrix weightMatrix;
+    ExecutorService executor;
+    List<SOMWorkerResultVO> results;
+    SOMWorkerTaskVO.TaskType type;
+    
+    if (epochs < 1)
+      throw new SOMException("Invalid epoch number: " + epochs);
+    
+    weightMatrix = new WeightMatrix(width, height, sampleVector, 
+      neighborsMethod, distanceMethod);
+    methods      = SOMWorkerBean.getMethods(distanceMethod, neighborsMethod);
+    
+    type = mergeMode == MergeMode.BATCH ? SOMWorkerTaskVO.TaskType.BATCH : 
+      SOMWorkerTaskVO.TaskType.ONLINE;
+    
+    stopped  = false;
+    executor = Executors.newFixedThreadPool(transports.size());
+    
+    try {
+      for (epoch = 0; epoch < epochs && !stopped; epoch++) {
+        t    = (double) epoch / epochs;
+        tEnd = (double) (epoch + 1) / epochs;
+        
+        results = execute(executor, new SOMWorkerTaskVO(type, 
+          weightMatrix.getStorage(), t, tEnd, epochIterations, methods));
+        
+        if (mergeMode == MergeMode.BATCH)
+          mergeAccumulators(weightMatrix.getStorage(), results);
+        else
+          mergeWeights(weightMatrix.getStorage(), results);
+        
+        weightMatrix.weightsChanged();
+        
+        for (SelfOrganizingMapListener listener : listeners)
+          listener.stepEnd(weightMatrix, epoch + 1);
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+    
+    for (SelfOrganizingMapListener listener : listeners)
+      listener.end(weightMatrix, epoch);
+    
+    return weightMatrix;
+  }
+  
+  /**
+   * Send one epoch to all workers and wait for the results.
+   * 
+   * @param executor - Executor that waits each worker.
+   * @param task     - Epoch to be executed.
+   * 
+   * @return Result of each worker.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private List<SOMWorkerResultVO> execute(ExecutorService executor, 
+    final SOMWorkerTaskVO task) throws SOMException {
+    List<Future<SOMWorkerResultVO>> futures;
+    List<SOMWorkerResultVO> results;
+    
+    futures = new ArrayList<Future<SOMWorkerResultVO>>();
+    results = new ArrayList<SOMWorkerResultVO>();
+    
+    for (final SOMTransportInterface transport : transports)
+      futures.add(executor.submit(new Callable<SOMWorkerResultVO>() {
+        public SOMWorkerResultVO call() throws SOMException {
+          return transport.execute(task);
+        }
+      }));
+    
+    try {
+      for (Future<SOMWorkerResultVO> future : futures)
+        results.add(future.get());
+    }
+    catch (InterruptedException e) {
+      throw new SOMException("Problems with thread", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof SOMException)
+        throw (SOMException) e.getCause();
+      
+      throw new SOMException("Problems with thread", e.getCause());
+    }
+    
+    return results;
+  }
+  
+  /**
+   * Sum the worker accumulators and rewrite the weights with the means.
+   * 
+   * @param storage - Weights to be updated.
+   * @param results - Result of each worker.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void mergeAccumulators(WeightStorage storage, 
+    List<SOMWorkerResultVO> results) throws SOMException {
+    BatchAccumulator accumulator;
+    
+    accumulator = new BatchAccumulator(storage.getNeuronNumber(), 
+      storage.getDimension());
+    
+    for (SOMWorkerResultVO result : results) {
+      if (result.getAccumulator() == null)
+        throw new SOMException("Invalid worker result");
+      
+      accumulator.merge(result.getAccumulator());
+    }
+    
+    accumulator.update(storage);
+  }
+  
+  /**
+   * Rewrite the weights with the mean of the worker weights. A value 
+   * missing on some worker is ignored, and a value missing on all workers
+   * stays missing.
+   * 
+   * @param storage - Weights to be updated.
+   * @param results - Result of each worker.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void mergeWeights(WeightStorage storage, 
+    List<SOMWorkerResultVO> results) throws SOMException {
+    int i, count;
+    double sum;
+    WeightStorage weights;
+    
+    for (SOMWorkerResultVO result : results) {
+      weights = result.getWeights();
+      
+      if (weights == null || 
+          weights.getNeuronNumber() != storage.getNeuronNumber() ||
+          weights.getDimension() != storage.getDimension())
+        throw new SOMException("Invalid worker result");
+    }
+    
+    for (i = 0; i < storage.getValues().length; i++) {
+      sum   = 0.0d;
+      count = 0;
+      
+      for (SOMWorkerResultVO result : results) {
+        weights = result.getWeights();
+        
+        if (!weights.isMissing(i)) {
+          sum += weights.getValues()[i];
+          count++;
+        }
+      }
+      
+      if (count == 0)
+        storage.setMissing(i);
+      else
+        storage.setValue(i, sum / count);
+    }
+  }
+  
+  /**
+   * Close the transports to the workers.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void close() throws SOMException {
+    for (SOMTransportInterface transport : transports)
+      transport.close();
+  }
 }
@@ -0,0 +1,192 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import br.com.ibmp.som.cluster.vo.SOMWorkerResultVO;
+import br.com.ibmp.som.cluster.vo.SOMWorkerTaskVO;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.BatchAccumulator;
+import br.com.ibmp.som.matrix.WeightStorage;
+
+/**
+ * Binary protocol between the socket transport and the worker server.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+final class SOMWorkerProtocol {
+
+  /** Protocol version. */
+  static final int VERSION = 2;
+  
+  /** Request that contains a task. */
+  static final byte TASK = 0;
+  
+  /** Request to close the connection. */
+  static final byte CLOSE = 1;
+  
+  /** Response that contains a result. */
+  static final byte RESULT = 0;
+  
+  /** Response that contains an error message. */
+  static final byte ERROR = 1;
+  
+  /**
+   * Constructor. This class only has static methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private SOMWorkerProtocol() {
+  }
+  
+  /**
+   * Write a task request.
+   * 
+   * @param output - Stream to be written.
+   * @param task   - Task to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  static void writeTask(DataOutput output, SOMWorkerTaskVO task) 
+    throws IOException {
+    output.writeByte(TASK);
+    output.writeInt(VERSION);
+    output.writeByte(task.getType().ordinal());
+    output.writeDouble(task.getT());
+    output.writeDouble(task.getTEnd());
+    output.writeInt(task.getIterations());
+    output.writeUTF(task.getMethods());
+    
+    task.getWeights().write(output);
+  }
+  
+  /**
+   * Read a task request, after the request type. When an exception is
+   * thrown, the rest of the request was not read, so the stream must be
+   * closed.
+   * 
+   * @param input - Stream to be read.
+   * 
+   * @return The task.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * @throws SOMException
+   * 
+   */
+  static SOMWorkerTaskVO readTask(DataInput input) 
+    throws IOException, SOMException {
+    int version, iterations, ordinal;
+    double t, tEnd;
+    String methods;
+    SOMWorkerTaskVO.TaskType type;
+    
+    if ((version = input.readInt()) != VERSION)
+      throw new SOMException("Invalid protocol version: " + version);
+    
+    ordinal = input.readByte();
+    
+    if (ordinal < 0 || ordinal >= SOMWorkerTaskVO.TaskType.values().length)
+      throw new SOMException("Invalid task type: " + ordinal);
+    
+    type       = SOMWorkerTaskVO.TaskType.values()[ordinal];
+    t          = input.readDouble();
+    tEnd       = input.readDouble();
+    iterations = input.readInt();
+    methods    = input.readUTF();
+    
+    return new SOMWorkerTaskVO(type, WeightStorage.read(input), t, tEnd, 
+      iterations, methods);
+  }
+  
+  /**
+   * Write a result response.
+   * 
+   * @param output - Stream to be written.
+   * @param result - Result to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  static void writeResult(DataOutput output, SOMWorkerResultVO result) 
+    throws IOException {
+    output.writeByte(RESULT);
+    
+    if (result.getAccumulator() != null) {
+      output.writeByte(SOMWorkerTaskVO.TaskType.BATCH.ordinal());
+      result.getAccumulator().write(output);
+    }
+    else {
+      output.writeByte(SOMWorkerTaskVO.TaskType.ONLINE.ordinal());
+      result.getWeights().write(output);
+    }
+  }
+  
+  /**
+   * Write an error response.
+   * 
+   * @param output  - Stream to be written.
+   * @param message - Error message.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  static void writeError(DataOutput output, String message) 
+    throws IOException {
+    output.writeByte(ERROR);
+    output.writeUTF(message == null ? "" : message);
+  }
+  
+  /**
+   * Read a response. An error response is thrown as an exception.
+   * 
+   * @param input - Stream to be read.
+   * 
+   * @return The result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * @throws SOMException
+   * 
+   */
+  static SOMWorkerResultVO readResult(DataInput input) 
+    throws IOException, SOMException {
+    if (input.readByte() == ERROR)
+      throw new SOMException("Worker error: " + input.readUTF());
+    
+    if (input.readByte() == SOMWorkerTaskVO.TaskType.BATCH.ordinal())
+      return new SOMWorkerResultVO(BatchAccumulator.read(input));
+    
+    return new SOMWorkerResultVO(WeightStorage.read(input));
+  }
+}
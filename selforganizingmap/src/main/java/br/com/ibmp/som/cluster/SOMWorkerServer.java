@@ -0,0 +1,258 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import br.com.ibmp.som.cluster.vo.SOMWorkerTaskVO;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.SampleVectorFile;
+import br.com.ibmp.som.matrix.SampleVectorRange;
+
+/**
+ * Server that exposes a worker on a local socket, so the worker can run
+ * on other process. Connections are served one at a time.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMWorkerServer implements Runnable {
+
+  /** The worker. */
+  private SOMWorkerBean worker;
+  
+  /** Listening socket. */
+  private ServerSocket serverSocket;
+  
+  /** True while the server accepts connections. */
+  private volatile boolean running;
+  
+  /**
+   * Constructor. The server listens only on the loopback address.
+   * 
+   * @param worker - The worker.
+   * @param port   - Port to listen, or 0 to use any free port.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMWorkerServer(SOMWorkerBean worker, int port) throws SOMException {
+    if (worker == null)
+      throw new SOMException("Invalid worker");
+    
+    this.worker = worker;
+    
+    try {
+      serverSocket = new ServerSocket(port, 1, InetAddress.getByName(null));
+    }
+    catch (IOException e) {
+      throw new SOMException("Problems with server socket", e);
+    }
+    
+    running = true;
+  }
+  
+  /**
+   * Assessor to retrieve the listening port.
+   * 
+   * @return Listening port.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+  
+  /**
+   * Start serving on a daemon thread.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void start() {
+    Thread thread;
+    
+    thread = new Thread(this, "SOMWorkerServer-" + getPort());
+    thread.setDaemon(true);
+    thread.start();
+  }
+  
+  /**
+   * Serve connections until the server is closed.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void run() {
+    Socket socket;
+    
+    while (running) {
+      try {
+        socket = serverSocket.accept();
+      }
+      catch (IOException e) {
+        if (running)
+          System.err.println("[ERROR] Problems with server socket: " + 
+            e.getMessage());
+        
+        return;
+      }
+      
+      try {
+        serve(socket);
+      }
+      catch (IOException e) {
+        System.err.println("[ERROR] Problems with worker connection: " + 
+          e.getMessage());
+      }
+      catch (RuntimeException e) {
+        System.err.println("[ERROR] Problems with worker connection: " + e);
+      }
+      finally {
+        try {
+          socket.close();
+        } 
+        catch (IOException e) {
+          // Nothing to do, the connection is released anyway.
+        }
+      }
+    }
+  }
+  
+  /**
+   * Serve the requests of one connection. A request that can not be read
+   * is answered with an error and the connection is closed, since the 
+   * rest of the request is still on the stream. A task that fails is 
+   * answered with an error and the connection is kept.
+   * 
+   * @param socket - The connection.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private void serve(Socket socket) throws IOException {
+    SOMWorkerTaskVO task;
+    DataInputStream input;
+    DataOutputStream output;
+    
+    socket.setTcpNoDelay(true);
+    
+    input  = new DataInputStream(new BufferedInputStream(
+      socket.getInputStream()));
+    output = new DataOutputStream(new BufferedOutputStream(
+      socket.getOutputStream()));
+    
+    try {
+      while (input.readByte() == SOMWorkerProtocol.TASK) {
+        try {
+          task = SOMWorkerProtocol.readTask(input);
+        }
+        catch (SOMException e) {
+          SOMWorkerProtocol.writeError(output, e.getMessage());
+          output.flush();
+          
+          return;
+        }
+        
+        try {
+          SOMWorkerProtocol.writeResult(output, worker.execute(task));
+        }
+        catch (SOMException e) {
+          SOMWorkerProtocol.writeError(output, e.getMessage());
+        }
+        catch (RuntimeException e) {
+          // The samples may fail too, as a database sample vector does.
+          System.err.println("[ERROR] Problems with worker task: " + e);
+          SOMWorkerProtocol.writeError(output, e.toString());
+        }
+        
+        output.flush();
+      }
+    }
+    catch (EOFException e) {
+      // The manager closed the connection without the close request.
+    }
+  }
+  
+  /**
+   * Stop accepting connections.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void close() {
+    running = false;
+    
+    try {
+      serverSocket.close();
+    }
+    catch (IOException e) {
+      // Nothing to do, the socket is released anyway.
+    }
+  }
+  
+  /**
+   * Run a worker server over a line range of a sample file. 
+   * 
+   * Usage: SOMWorkerServer file from to [port]
+   * 
+   * @param args - Command line arguments.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static void main(String[] args) {
+    SOMWorkerServer server;
+    SampleVectorFile sampleVector;
+    
+    if (args.length < 3) {
+      System.err.println("Usage: SOMWorkerServer file from to [port]");
+      System.exit(1);
+    }
+    
+    try {
+      sampleVector = new SampleVectorFile(args[0]);
+      
+      server = new SOMWorkerServer(new SOMWorkerBean(new SampleVectorRange(
+        sampleVector, Integer.parseInt(args[1]), Integer.parseInt(args[2]))), 
+        args.length > 3 ? Integer.parseInt(args[3]) : 0);
+      
+      System.out.println(server.getPort());
+      server.run();
+    }
+    catch (SOMException e) {
+      System.err.println("[ERROR] Problems with worker server");
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
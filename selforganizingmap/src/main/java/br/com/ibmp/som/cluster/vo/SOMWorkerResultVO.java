@@ -0,0 +1,89 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.cluster.vo;
+
+import br.com.ibmp.som.matrix.BatchAccumulator;
+import br.com.ibmp.som.matrix.WeightStorage;
+
+/**
+ * Class that contains the result of one learning epoch executed by a 
+ * worker. Only one of the weights or the accumulator is set, according
+ * to the task type.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+ * @version 1.0
+ *
+ */
+public class SOMWorkerResultVO {
+
+  /** Weights in the end of an online task. */
+  private WeightStorage weights;
+  
+  /** Neighborhood weighted sums of a batch task. */
+  private BatchAccumulator accumulator;
+  
+  /**
+   * Constructor of an online task result.
+   * 
+   * @param weights - Weights in the end of the task.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public SOMWorkerResultVO(WeightStorage weights) {
+    this.weights     = weights;
+    this.accumulator = null;
+  }
+  
+  /**
+   * Constructor of a batch task result.
+   * 
+   * @param accumulator - Neighborhood weighted sums of the worker samples.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public SOMWorkerResultVO(BatchAccumulator accumulator) {
+    this.weights     = null;
+    this.accumulator = accumulator;
+  }
+
+  /**
+   * Assessor to retrieve the weights in the end of an online task.
+   * 
+   * @return Weights, or null if this is a batch task result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public WeightStorage getWeights() {
+    return weights;
+  }
+
+  /**
+   * Assessor to retrieve the neighborhood weighted sums of a batch task.
+   * 
+   * @return Weighted sums, or null if this is an online task result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public BatchAccumulator getAccumulator() {
+    return accumulator;
+  }
+}
@@ -0,0 +1,152 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.cluster.vo;
+
+import br.com.ibmp.som.matrix.WeightStorage;
+
+/**
+ * Class that contains one learning epoch to be executed by a worker.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+ * @version 1.0
+ *
+ */
+public class SOMWorkerTaskVO {
+
+  /** 
+   * Task type. BATCH returns the neighborhood weighted sums of the worker
+   * samples and ONLINE returns the weights after the online learning over
+   * the worker samples.
+   */
+  public enum TaskType {BATCH, ONLINE};
+  
+  /** Task type. */
+  private TaskType type;
+  
+  /** Weights in the beginning of the epoch. */
+  private WeightStorage weights;
+  
+  /** Time in the beginning of the epoch. */
+  private double t;
+  
+  /** Time in the end of the epoch. */
+  private double tEnd;
+  
+  /** Number of online learning steps. */
+  private int iterations;
+  
+  /** Identifier of the distance and neighbors methods of the manager. */
+  private String methods;
+  
+  /**
+   * Constructor.
+   * 
+   * @param type       - Task type.
+   * @param weights    - Weights in the beginning of the epoch.
+   * @param t          - Time in the beginning of the epoch.
+   * @param tEnd       - Time in the end of the epoch.
+   * @param iterations - Number of online learning steps.
+   * @param methods    - Identifier of the distance and neighbors methods
+   *                     of the manager.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public SOMWorkerTaskVO(TaskType type, WeightStorage weights, double t, 
+    double tEnd, int iterations, String methods) {
+    this.type       = type;
+    this.weights    = weights;
+    this.t          = t;
+    this.tEnd       = tEnd;
+    this.iterations = iterations;
+    this.methods    = methods;
+  }
+
+  /**
+   * Assessor to retrieve the task type.
+   * 
+   * @return Task type.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public TaskType getType() {
+    return type;
+  }
+
+  /**
+   * Assessor to retrieve the weights in the beginning of the epoch.
+   * 
+   * @return Weights in the beginning of the epoch.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public WeightStorage getWeights() {
+    return weights;
+  }
+
+  /**
+   * Assessor to retrieve the time in the beginning of the epoch.
+   * 
+   * @return Time in the beginning of the epoch.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public double getT() {
+    return t;
+  }
+
+  /**
+   * Assessor to retrieve the time in the end of the epoch.
+   * 
+   * @return Time in the end of the epoch.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public double getTEnd() {
+    return tEnd;
+  }
+
+  /**
+   * Assessor to retrieve the number of online learning steps.
+   * 
+   * @return Number of online learning steps.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Assessor to retrieve the identifier of the distance and neighbors 
+   * methods of the manager.
+   * 
+   * @return Identifier of the methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public String getMethods() {
+    return methods;
+  }
+}
@@ -0,0 +1,205 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.distance;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Base of the distance methods over primitive arrays. Both distances of
+ * the interface are reduced to one kernel call, and the values missing
+ * on any side are ignored.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public abstract class AbstractDistanceMethod 
+  implements DistanceMethodInterface {
+
+  /**
+   * Assessor for calculating the distance between two elements.
+   * 
+   * @param e1 - First element to be calculated.
+   * @param e2 - Second element to be calculated.
+   * 
+   * @return Distance between two elements.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public double calculateDistance(SOMElementVO e1, SOMElementVO e2)
+    throws SOMException {
+    double[] a, b;
+    long[] aMissing, bMissing;
+    
+    if (e1.getNumberOfValues() != e2.getNumberOfValues())
+      throw new SOMException("Problems with elements size: " + 
+        e1.getNumberOfValues() + "," + e2.getNumberOfValues());
+    
+    a = new double[e1.getNumberOfValues()];
+    b = new double[e2.getNumberOfValues()];
+    
+    aMissing = WeightStorage.copyValues(e1, a);
+    bMissing = WeightStorage.copyValues(e2, b);
+    
+    return calculateDistance(a, aMissing, b, 0, bMissing, a.length);
+  }
+  
+  /**
+   * Assessor for calculating the distance between a sample and one neuron
+   * of the weight storage, without boxing any value.
+   * 
+   * @param sample  - Sample values.
+   * @param missing - Sample missing values bitmap, or null if no value 
+   *                  is missing.
+   * @param storage - Weight storage that contains the neuron.
+   * @param neuron  - Neuron index.
+   * 
+   * @return Distance between the sample and the neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public double calculateDistance(double[] sample, long[] missing, 
+    WeightStorage storage, int neuron) throws SOMException {
+    int dimension;
+    
+    dimension = storage.getDimension();
+    
+    if (sample.length < dimension)
+      throw new SOMException("Problems with elements size: " + sample.length +
+        "," + dimension);
+    
+    return calculateDistance(sample, missing, storage.getValues(), 
+      storage.getOffset(neuron), storage.hasMissing() ? storage.getMissing() :
+      null, dimension);
+  }
+  
+  /**
+   * Assessor for calculating a distance that is only used to rank the 
+   * neurons. Once the partial rank distance exceeds the cutoff the 
+   * calculation may stop and return any value greater than the cutoff.
+   * 
+   * @param sample  - Sample values.
+   * @param missing - Sample missing values bitmap, or null if no value 
+   *                  is missing.
+   * @param storage - Weight storage that contains the neuron.
+   * @param neuron  - Neuron index.
+   * @param cutoff  - Rank distance of the best neuron found so far.
+   * 
+   * @return Rank distance between the sample and the neuron, or a value
+   *         greater than the cutoff.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public double calculateRankDistance(double[] sample, long[] missing, 
+    WeightStorage storage, int neuron, double cutoff) throws SOMException {
+    int dimension;
+    
+    dimension = storage.getDimension();
+    
+    if (sample.length < dimension)
+      throw new SOMException("Problems with elements size: " + sample.length +
+        "," + dimension);
+    
+    return calculateRankDistance(sample, missing, storage.getValues(), 
+      storage.getOffset(neuron), storage.hasMissing() ? storage.getMissing() :
+      null, dimension, cutoff);
+  }
+  
+  /**
+   * Assessor for converting a lower bound of the squared euclidean 
+   * distance into a lower bound of the rank distance. By default the 
+   * distance has no bound.
+   * 
+   * @param squaredDistance - Lower bound of the squared euclidean 
+   *                          distance.
+   * 
+   * @return Zero.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double getRankLowerBound(double squaredDistance) {
+    return 0.0d;
+  }
+  
+  /**
+   * Assessor to retrieve if the distance is a metric. By default it is 
+   * not.
+   * 
+   * @return False.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public boolean isMetric() {
+    return false;
+  }
+  
+  /**
+   * Assessor for calculating the rank distance between two primitive 
+   * arrays. By default it is the distance, calculated up to the end.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * @param cutoff    - Rank distance of the best neuron found so far.
+   * 
+   * @return Rank distance between the values, or a value greater than the
+   *         cutoff.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double calculateRankDistance(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension, double cutoff) {
+    return calculateDistance(a, aMissing, b, offset, bMissing, dimension);
+  }
+  
+  /**
+   * Assessor for calculating the distance between two primitive arrays.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, with the bit 
+   *                    of each value at its index, or null.
+   * @param dimension - Number of values.
+   * 
+   * @return Distance between the values.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected abstract double calculateDistance(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension);
+}
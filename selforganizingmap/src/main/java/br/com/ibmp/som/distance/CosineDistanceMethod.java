@@ -0,0 +1,51 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.distance;
+
+/**
+ * Cosine method for calculate the distance. The distance is one minus 
+ * the cosine of the angle between the values, so it only depends on the 
+ * direction of the values.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class CosineDistanceMethod extends AbstractDistanceMethod {
+
+  /**
+   * Assessor for calculating the distance between two primitive arrays.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * 
+   * @return Cosine distance, between zero and two.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double calculateDistance(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension) {
+    return DistanceKernels.cosine(a, aMissing, b, offset, bMissing, 
+      dimension);
+  }
+}
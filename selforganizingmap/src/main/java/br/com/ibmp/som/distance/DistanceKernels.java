@@ -0,0 +1,366 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.distance;
+
+/**
+ * Distance kernels over primitive arrays. The first array is compared 
+ * from index zero and the second one from an offset, so a sample can be
+ * compared with a neuron of the weight storage without copies.
+ * 
+ * The loops without missing values are kept as plain counted loops, which
+ * the JIT compiler already unrolls; unrolling them by hand was measured
+ * slower. Missing value bitmaps have the bit of each value at the same index of
+ * the value in its array.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public final class DistanceKernels {
+
+  /** Number of values summed between two cutoff checks. */
+  private static final int BLOCK_SIZE = 32;
+  
+  /**
+   * Constructor. This class only has static methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private DistanceKernels() {
+  }
+  
+  /**
+   * Assessor to retrieve if a value is missing on some bitmap.
+   * 
+   * @param missing - Missing values bitmap, or null if no value is missing.
+   * @param index   - Value index.
+   * 
+   * @return True if the value is missing, otherwise false.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static boolean isMissing(long[] missing, int index) {
+    return missing != null && (missing[index >>> 6] & (1L << index)) != 0;
+  }
+  
+  /**
+   * Squared euclidean distance.
+   * 
+   * @param a         - First values, from index zero.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param dimension - Number of values.
+   * 
+   * @return Sum of the squared differences.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double squaredEuclidean(double[] a, double[] b, int offset, 
+    int dimension) {
+    int i;
+    double sum, diff;
+    
+    sum = 0.0d;
+    
+    for (i = 0; i < dimension; i++) {
+      diff = a[i] - b[offset + i];
+      sum += diff * diff;
+    }
+    
+    return sum;
+  }
+  
+  /**
+   * Squared euclidean distance that ignores the missing values.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * 
+   * @return Sum of the squared differences of the values that are not 
+   *         missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double squaredEuclidean(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension) {
+    int i;
+    double sum, diff;
+    
+    if (aMissing == null && bMissing == null)
+      return squaredEuclidean(a, b, offset, dimension);
+    
+    sum = 0.0d;
+    
+    for (i = 0; i < dimension; i++) {
+      if (!isMissing(aMissing, i) && !isMissing(bMissing, offset + i)) {
+        diff = a[i] - b[offset + i];
+        sum += diff * diff;
+      }
+    }
+    
+    return sum;
+  }
+  
+  /**
+   * Squared euclidean distance that ignores the missing values and stops
+   * once the partial sum exceeds the cutoff. The sum is checked after 
+   * each block of values, so the inner loop stays a plain counted loop.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * @param cutoff    - Sum that abandons the calculation.
+   * 
+   * @return Sum of the squared differences, or a partial sum greater than
+   *         the cutoff.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double squaredEuclidean(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension, double cutoff) {
+    int i, end;
+    double sum, diff;
+    
+    sum = 0.0d;
+    
+    for (i = 0; i < dimension && sum <= cutoff; ) {
+      end = Math.min(i + BLOCK_SIZE, dimension);
+      
+      if (aMissing == null && bMissing == null) {
+        for (; i < end; i++) {
+          diff = a[i] - b[offset + i];
+          sum += diff * diff;
+        }
+      }
+      else {
+        for (; i < end; i++) {
+          if (!isMissing(aMissing, i) && !isMissing(bMissing, offset + i)) {
+            diff = a[i] - b[offset + i];
+            sum += diff * diff;
+          }
+        }
+      }
+    }
+    
+    return sum;
+  }
+  
+  /**
+   * Manhattan distance.
+   * 
+   * @param a         - First values, from index zero.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param dimension - Number of values.
+   * 
+   * @return Sum of the absolute differences.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double manhattan(double[] a, double[] b, int offset, 
+    int dimension) {
+    int i;
+    double sum;
+    
+    sum = 0.0d;
+    
+    for (i = 0; i < dimension; i++)
+      sum += Math.abs(a[i] - b[offset + i]);
+    
+    return sum;
+  }
+  
+  /**
+   * Manhattan distance that ignores the missing values.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * 
+   * @return Sum of the absolute differences of the values that are not 
+   *         missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double manhattan(double[] a, long[] aMissing, double[] b, 
+    int offset, long[] bMissing, int dimension) {
+    int i;
+    double sum;
+    
+    if (aMissing == null && bMissing == null)
+      return manhattan(a, b, offset, dimension);
+    
+    sum = 0.0d;
+    
+    for (i = 0; i < dimension; i++) {
+      if (!isMissing(aMissing, i) && !isMissing(bMissing, offset + i))
+        sum += Math.abs(a[i] - b[offset + i]);
+    }
+    
+    return sum;
+  }
+  
+  /**
+   * Manhattan distance that ignores the missing values and stops once the
+   * partial sum exceeds the cutoff. The sum is checked after each block 
+   * of values, so the inner loop stays a plain counted loop.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * @param cutoff    - Sum that abandons the calculation.
+   * 
+   * @return Sum of the absolute differences, or a partial sum greater than
+   *         the cutoff.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double manhattan(double[] a, long[] aMissing, double[] b, 
+    int offset, long[] bMissing, int dimension, double cutoff) {
+    int i, end;
+    double sum;
+    
+    sum = 0.0d;
+    
+    for (i = 0; i < dimension && sum <= cutoff; ) {
+      end = Math.min(i + BLOCK_SIZE, dimension);
+      
+      if (aMissing == null && bMissing == null) {
+        for (; i < end; i++)
+          sum += Math.abs(a[i] - b[offset + i]);
+      }
+      else {
+        for (; i < end; i++) {
+          if (!isMissing(aMissing, i) && !isMissing(bMissing, offset + i))
+            sum += Math.abs(a[i] - b[offset + i]);
+        }
+      }
+    }
+    
+    return sum;
+  }
+  
+  /**
+   * Cosine distance, one minus the cosine of the angle between the 
+   * values. If one of the values has norm zero the distance is one.
+   * 
+   * @param a         - First values, from index zero.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param dimension - Number of values.
+   * 
+   * @return Cosine distance, between zero and two.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double cosine(double[] a, double[] b, int offset, 
+    int dimension) {
+    int i;
+    double dot, aa, bb, x, y;
+    
+    dot = aa = bb = 0.0d;
+    
+    for (i = 0; i < dimension; i++) {
+      x = a[i];
+      y = b[offset + i];
+      
+      dot += x * y;
+      aa  += x * x;
+      bb  += y * y;
+    }
+    
+    return cosine(dot, aa, bb);
+  }
+  
+  /**
+   * Cosine distance that ignores the missing values.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * 
+   * @return Cosine distance of the values that are not missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static double cosine(double[] a, long[] aMissing, double[] b, 
+    int offset, long[] bMissing, int dimension) {
+    int i;
+    double dot, aa, bb;
+    
+    if (aMissing == null && bMissing == null)
+      return cosine(a, b, offset, dimension);
+    
+    dot = aa = bb = 0.0d;
+    
+    for (i = 0; i < dimension; i++) {
+      if (!isMissing(aMissing, i) && !isMissing(bMissing, offset + i)) {
+        dot += a[i] * b[offset + i];
+        aa  += a[i] * a[i];
+        bb  += b[offset + i] * b[offset + i];
+      }
+    }
+    
+    return cosine(dot, aa, bb);
+  }
+  
+  /**
+   * Cosine distance from the dot product and the squared norms.
+   * 
+   * @param dot - Dot product.
+   * @param aa  - Squared norm of the first values.
+   * @param bb  - Squared norm of the second values.
+   * 
+   * @return Cosine distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static double cosine(double dot, double aa, double bb) {
+    if (aa == 0.0d || bb == 0.0d)
+      return 1.0d;
+    
+    return 1.0d - dot / Math.sqrt(aa * bb);
+  }
+}
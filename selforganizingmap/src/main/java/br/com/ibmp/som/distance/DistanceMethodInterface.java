@@ -18,11 +18,18 @@
 package br.com.ibmp.som.distance;
 
 import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
 import br.com.ibmp.som.matrix.vo.SOMElementVO;
 
 /**
  * Distace method interface for calculate the distance.
  * 
+ * The distances over primitive arrays, the rank distance, the rank lower
+ * bound and the metric flag were added after the first version, so a 
+ * class that implements only the element distance no longer compiles. 
+ * New methods should extend AbstractDistanceMethod, which implements all 
+ * of them over one kernel between two primitive arrays.
+ * 
  * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
  * @version 1.0
  *
@@ -43,4 +50,78 @@ public interface DistanceMethodInterface {
    * 
    */
   public double calculateDistance(SOMElementVO e1, SOMElementVO e2) throws SOMException;	
+  
+  /**
+   * Assessor for calculating the distance between a sample and one neuron
+   * of the weight storage, without boxing any value.
+   * 
+   * @param sample  - Sample values.
+   * @param missing - Sample missing values bitmap, or null if no value 
+   *                  is missing.
+   * @param storage - Weight storage that contains the neuron.
+   * @param neuron  - Neuron index.
+   * 
+   * @return Distance between the sample and the neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public double calculateDistance(double[] sample, long[] missing, 
+    WeightStorage storage, int neuron) throws SOMException;
+  
+  /**
+   * Assessor for calculating a distance that is only used to rank the 
+   * neurons, like the best matching search. The rank distance has the 
+   * same order of the distance, but it may skip a monotone final step 
+   * like the square root. Once the partial rank distance exceeds the 
+   * cutoff the calculation may stop and return any value greater than 
+   * the cutoff.
+   * 
+   * @param sample  - Sample values.
+   * @param missing - Sample missing values bitmap, or null if no value 
+   *                  is missing.
+   * @param storage - Weight storage that contains the neuron.
+   * @param neuron  - Neuron index.
+   * @param cutoff  - Rank distance of the best neuron found so far.
+   * 
+   * @return Rank distance between the sample and the neuron, or a value
+   *         greater than the cutoff.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public double calculateRankDistance(double[] sample, long[] missing, 
+    WeightStorage storage, int neuron, double cutoff) throws SOMException;
+  
+  /**
+   * Assessor for converting a lower bound of the squared euclidean 
+   * distance into a lower bound of the rank distance. It is used by the 
+   * best matching indexes to skip neurons without calculating them.
+   * 
+   * @param squaredDistance - Lower bound of the squared euclidean 
+   *                          distance.
+   * 
+   * @return Lower bound of the rank distance, or zero if the distance has
+   *         no bound.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double getRankLowerBound(double squaredDistance);
+  
+  /**
+   * Assessor to retrieve if the distance is a metric. On a metric the 
+   * triangle inequality holds, so the distance to a neuron changes at 
+   * most by the distance the neuron moved.
+   * 
+   * @return True if the distance is a metric, otherwise false.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public boolean isMetric();
 }
@@ -17,9 +17,6 @@
  */
 package br.com.ibmp.som.distance;
 
-import br.com.ibmp.som.exception.SOMException;
-import br.com.ibmp.som.matrix.vo.SOMElementVO;
-
 /**
  * Euclidean method for calculate the distance.
  * 
@@ -27,36 +24,81 @@ import br.com.ibmp.som.matrix.vo.SOMElementVO;
  * @version 1.0
  *
  */
-public class EuclideanDistanceMethod implements DistanceMethodInterface {
+public class EuclideanDistanceMethod extends AbstractDistanceMethod {
+
+  /**
+   * Assessor for calculating the distance between two primitive arrays.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * 
+   * @return Square root of the sum of the squared differences.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double calculateDistance(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension) {
+    return Math.sqrt(DistanceKernels.squaredEuclidean(a, aMissing, b, offset,
+      bMissing, dimension));
+  }
+
+  /**
+   * Assessor for calculating the rank distance between two primitive 
+   * arrays. It is the squared
+   * distance, that has the same order without the square root.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * @param cutoff    - Rank distance of the best neuron found so far.
+   * 
+   * @return Sum of the squared differences, or a value greater than the
+   *         cutoff.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double calculateRankDistance(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension, double cutoff) {
+    return DistanceKernels.squaredEuclidean(a, aMissing, b, offset, bMissing, 
+      dimension, cutoff);
+  }
 
   /**
-   * Assessor for calculating the distance between two elements.
+   * Assessor for converting a lower bound of the squared euclidean 
+   * distance into a lower bound of the rank distance. The rank
+   * distance is the squared distance itself.
    * 
-   * @param e1 - First element to be calculated.
-   * @param e2 - Second element to be calculated.
+   * @param squaredDistance - Lower bound of the squared euclidean 
+   *                          distance.
    * 
-   * @return Distance between two elements.
+   * @return The same bound.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
-   * @throws SOMException
+   */
+  public double getRankLowerBound(double squaredDistance) {
+    return squaredDistance;
+  }
+
+  /**
+   * Assessor to retrieve if the distance is a metric. The euclidean 
+   * distance respects the triangle inequality.
+   * 
+   * @return True.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
    */
-  public double calculateDistance(SOMElementVO e1, SOMElementVO e2)
-    throws SOMException {
-    int i;
-    double x;
-    
-	  if (e1.getNumberOfValues() != e2.getNumberOfValues())
-      throw new SOMException("Problems with elements size: " + e1.getNumberOfValues() +
-        "," + e2.getNumberOfValues());
-	
-	  x = 0.0d;
-	  for (i = 0; i < e1.getNumberOfValues(); i++) {
-      if (e1.getValue(i) != null && e2.getValue(i) != null)
-        x += Math.pow(e1.getValue(i).doubleValue() - e2.getValue(i).doubleValue(), 2);
-	  }
-	
-    return Math.sqrt(x);
+  public boolean isMetric() {
+    return true;
   }
-}
\ No newline at end of file
+}
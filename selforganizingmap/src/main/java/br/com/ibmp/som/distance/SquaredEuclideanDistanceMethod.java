@@ -0,0 +1,92 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.distance;
+
+/**
+ * Squared euclidean method for calculate the distance. It ranks the 
+ * neurons like the euclidean method without the square root.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SquaredEuclideanDistanceMethod extends AbstractDistanceMethod {
+
+  /**
+   * Assessor for calculating the distance between two primitive arrays.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * 
+   * @return Sum of the squared differences.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double calculateDistance(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension) {
+    return DistanceKernels.squaredEuclidean(a, aMissing, b, offset, bMissing,
+      dimension);
+  }
+
+  /**
+   * Assessor for calculating the rank distance between two primitive 
+   * arrays. It is the distance,
+   * abandoned once it exceeds the cutoff.
+   * 
+   * @param a         - First values, from index zero.
+   * @param aMissing  - Missing bitmap of the first values, or null.
+   * @param b         - Second values, from the offset.
+   * @param offset    - First index of the second values.
+   * @param bMissing  - Missing bitmap of the second values, or null.
+   * @param dimension - Number of values.
+   * @param cutoff    - Rank distance of the best neuron found so far.
+   * 
+   * @return Sum of the squared differences, or a value greater than the
+   *         cutoff.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double calculateRankDistance(double[] a, long[] aMissing, 
+    double[] b, int offset, long[] bMissing, int dimension, double cutoff) {
+    return DistanceKernels.squaredEuclidean(a, aMissing, b, offset, bMissing, 
+      dimension, cutoff);
+  }
+
+  /**
+   * Assessor for converting a lower bound of the squared euclidean 
+   * distance into a lower bound of the rank distance. The rank
+   * distance is the squared distance itself.
+   * 
+   * @param squaredDistance - Lower bound of the squared euclidean 
+   *                          distance.
+   * 
+   * @return The same bound.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double getRankLowerBound(double squaredDistance) {
+    return squaredDistance;
+  }
+}
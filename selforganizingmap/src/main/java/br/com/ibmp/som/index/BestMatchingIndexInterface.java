@@ -0,0 +1,87 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.index;
+
+import java.util.Random;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.BestMatchingVO;
+
+/**
+ * Best matching index interface for searching the best neuron without 
+ * scanning every neuron of the weight storage.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public interface BestMatchingIndexInterface {
+
+  /**
+   * Update the index to the current weights of a storage. It must be 
+   * called again every time the weights change, and the implementation 
+   * may keep the parts of the previous index that are still useful.
+   * 
+   * @param storage        - Weight storage to be indexed.
+   * @param distanceMethod - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void update(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod) throws SOMException;
+  
+  /**
+   * Assessor for searching the best neuron of some sample. If more then 
+   * one neuron match then a random neuron is kept. The search can be 
+   * called by several threads at the same time.
+   * 
+   * @param sample       - Sample values to be match.
+   * @param missing      - Sample missing values bitmap, or null if no 
+   *                       value is missing.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param bestMatching - Search result.
+   * 
+   * @return True if the index found the best neuron, or false if the 
+   *         caller must scan every neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public boolean search(double[] sample, long[] missing, Random randomize,
+    BestMatchingVO bestMatching) throws SOMException;
+  
+  /**
+   * Create an empty index with the same settings, so other weights can 
+   * be indexed at the same time.
+   * 
+   * @return The new index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public BestMatchingIndexInterface copy() throws SOMException;
+}
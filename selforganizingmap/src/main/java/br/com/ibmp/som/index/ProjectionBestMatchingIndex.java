@@ -0,0 +1,683 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.index;
+
+import java.util.Random;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.BestMatchingVO;
+
+/**
+ * Best matching index that projects every neuron on the main directions
+ * of the weights. The euclidean distance between two projections is 
+ * never greater than the distance between the weights, so it is a lower
+ * bound that skips most neurons without reading their values.
+ * 
+ * In the exact mode every neuron that the bound cannot skip is 
+ * calculated, and the result is the same of a full scan. In the 
+ * approximate mode only the neurons with the lowest bounds are 
+ * calculated.
+ * 
+ * The directions are found on a sample of the neurons and kept while 
+ * they still describe the weights, so the update done after each batch
+ * learning step usually only projects the neurons again. Storages with 
+ * missing values and samples with missing values are not indexed.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class ProjectionBestMatchingIndex implements BestMatchingIndexInterface {
+
+  /** Maximum number of values of the neuron sample used by the directions. */
+  private static final int SAMPLE_VALUES = 1 << 20;
+  
+  /** Number of iterations of the directions search. */
+  private static final int ITERATIONS = 8;
+  
+  /** 
+   * Fraction of the described weight variance under which the directions 
+   * are searched again. 
+   */
+  private static final double REBUILD_RATIO = 0.9d;
+  
+  /** Relative tolerance of the lower bounds to the rounding errors. */
+  private static final double TOLERANCE = 1.0e-9d;
+  
+  /** Number of projections of each neuron. */
+  private int projectionNumber;
+  
+  /** Number of neurons calculated by the approximate mode, 0 if exact. */
+  private int candidateNumber;
+  
+  /** Indexed weight storage. */
+  private WeightStorage storage;
+  
+  /** Distance calcule method. */
+  private DistanceMethodInterface distanceMethod;
+  
+  /** Number of values of each neuron. */
+  private int dimension;
+  
+  /** Number of directions, not greater than the dimension. */
+  private int basisSize;
+  
+  /** Mean weight. */
+  private double[] mean;
+  
+  /** Orthonormal directions, one after other. */
+  private double[] basis;
+  
+  /** Fraction of the weight variance described by the new directions. */
+  private double basisRatio;
+  
+  /** Projections of each neuron, one after other. */
+  private double[] projections;
+  
+  /** Greatest squared norm of a centered neuron. */
+  private double maxNorm;
+  
+  /** True if the index can be searched. */
+  private boolean usable;
+  
+  /** Random instance. */
+  private Random randomize;
+  
+  /**
+   * Constructor of an exact index.
+   * 
+   * @param projectionNumber - Number of projections of each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public ProjectionBestMatchingIndex(int projectionNumber) 
+    throws SOMException {
+    this(projectionNumber, 0);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param projectionNumber - Number of projections of each neuron.
+   * @param candidateNumber  - Number of neurons with the lowest bounds 
+   *                           that are calculated, or 0 for the exact 
+   *                           search.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public ProjectionBestMatchingIndex(int projectionNumber, 
+    int candidateNumber) throws SOMException {
+    if (projectionNumber < 1)
+      throw new SOMException("Invalid projection number: " + 
+        projectionNumber);
+    
+    if (candidateNumber < 0)
+      throw new SOMException("Invalid candidate number: " + candidateNumber);
+    
+    this.projectionNumber = projectionNumber;
+    this.candidateNumber  = candidateNumber;
+    
+    usable    = false;
+    randomize = new Random();
+  }
+  
+  /**
+   * Create an empty index with the same settings, so other weights can 
+   * be indexed at the same time.
+   * 
+   * @return The new index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public BestMatchingIndexInterface copy() throws SOMException {
+    return new ProjectionBestMatchingIndex(projectionNumber, 
+      candidateNumber);
+  }
+  
+  /**
+   * Assessor to retrieve the number of projections of each neuron.
+   * 
+   * @return Number of projections.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getProjectionNumber() {
+    return projectionNumber;
+  }
+  
+  /**
+   * Assessor to retrieve the number of neurons calculated by the 
+   * approximate mode.
+   * 
+   * @return Number of calculated neurons, or 0 if the search is exact.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getCandidateNumber() {
+    return candidateNumber;
+  }
+  
+  /**
+   * Update the index to the current weights of a storage. The directions 
+   * are kept while they describe most of the weight variance described 
+   * when they were found.
+   * 
+   * @param storage        - Weight storage to be indexed.
+   * @param distanceMethod - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void update(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod) throws SOMException {
+    if (storage == null)
+      throw new SOMException("Not valid weight storage");
+    
+    if (distanceMethod == null)
+      throw new SOMException("Not valid distance method");
+    
+    this.storage        = storage;
+    this.distanceMethod = distanceMethod;
+    
+    usable = !storage.hasMissing();
+    if (!usable)
+      return;
+    
+    if (basis == null || dimension != storage.getDimension())
+      findBasis();
+    else if (project() < basisRatio * REBUILD_RATIO)
+      findBasis();
+  }
+  
+  /**
+   * Find the mean weight and the main directions of the weights with a 
+   * subspace iteration over a sample of the neurons, and project every 
+   * neuron on them.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private void findBasis() {
+    int i, j, d, neuron, offset, rowNumber, neuronNumber, step;
+    double sum;
+    double[] values, rows, dots, next;
+    
+    dimension    = storage.getDimension();
+    neuronNumber = storage.getNeuronNumber();
+    values       = storage.getValues();
+    basisSize    = Math.min(projectionNumber, dimension);
+    
+    mean = new double[dimension];
+    for (neuron = 0; neuron < neuronNumber; neuron++) {
+      offset = storage.getOffset(neuron);
+      for (d = 0; d < dimension; d++)
+        mean[d] += values[offset + d];
+    }
+    
+    for (d = 0; d < dimension; d++)
+      mean[d] /= neuronNumber;
+    
+    rowNumber = Math.min(neuronNumber, 
+      Math.max(basisSize, SAMPLE_VALUES / Math.max(1, dimension)));
+    step      = neuronNumber / rowNumber;
+    rows      = new double[rowNumber * dimension];
+    
+    for (i = 0; i < rowNumber; i++) {
+      offset = storage.getOffset(i * step);
+      for (d = 0; d < dimension; d++)
+        rows[i * dimension + d] = values[offset + d] - mean[d];
+    }
+    
+    basis = new double[basisSize * dimension];
+    for (i = 0; i < basis.length; i++)
+      basis[i] = randomize.nextGaussian();
+    
+    orthonormalize(basis);
+    
+    dots = new double[basisSize];
+    
+    for (i = 0; i < ITERATIONS; i++) {
+      next = new double[basis.length];
+      
+      for (neuron = 0; neuron < rowNumber; neuron++) {
+        offset = neuron * dimension;
+        
+        for (j = 0; j < basisSize; j++) {
+          sum = 0.0d;
+          for (d = 0; d < dimension; d++)
+            sum += rows[offset + d] * basis[j * dimension + d];
+          
+          dots[j] = sum;
+        }
+        
+        for (j = 0; j < basisSize; j++)
+          for (d = 0; d < dimension; d++)
+            next[j * dimension + d] += dots[j] * rows[offset + d];
+      }
+      
+      orthonormalize(next);
+      basis = next;
+    }
+    
+    basisRatio = project();
+  }
+  
+  /**
+   * Orthonormalize the directions with the Gram-Schmidt process, done 
+   * twice to keep the rounding errors away from the lower bound. A 
+   * direction that depends on the previous ones is cleared, which only 
+   * makes the bound weaker.
+   * 
+   * @param directions - Directions, one after other.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private void orthonormalize(double[] directions) {
+    int pass, i, j, d;
+    double dot, norm;
+    
+    for (pass = 0; pass < 2; pass++) {
+      for (i = 0; i < basisSize; i++) {
+        for (j = 0; j < i; j++) {
+          dot = 0.0d;
+          for (d = 0; d < dimension; d++)
+            dot += directions[i * dimension + d] * 
+              directions[j * dimension + d];
+          
+          for (d = 0; d < dimension; d++)
+            directions[i * dimension + d] -= dot * 
+              directions[j * dimension + d];
+        }
+        
+        norm = 0.0d;
+        for (d = 0; d < dimension; d++)
+          norm += directions[i * dimension + d] * 
+            directions[i * dimension + d];
+        
+        norm = Math.sqrt(norm);
+        
+        for (d = 0; d < dimension; d++) {
+          if (norm > 1.0e-12d)
+            directions[i * dimension + d] /= norm;
+          else
+            directions[i * dimension + d] = 0.0d;
+        }
+      }
+    }
+  }
+  
+  /**
+   * Project every neuron on the directions.
+   * 
+   * @return Fraction of the weight variance described by the directions.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private double project() {
+    int neuron, neuronNumber, j, d, offset;
+    double sum, norm, projected, total, diff;
+    double[] values;
+    
+    neuronNumber = storage.getNeuronNumber();
+    values       = storage.getValues();
+    
+    if (projections == null || 
+        projections.length != neuronNumber * basisSize)
+      projections = new double[neuronNumber * basisSize];
+    
+    maxNorm   = 0.0d;
+    projected = 0.0d;
+    total     = 0.0d;
+    
+    for (neuron = 0; neuron < neuronNumber; neuron++) {
+      offset = storage.getOffset(neuron);
+      
+      norm = 0.0d;
+      for (d = 0; d < dimension; d++) {
+        diff  = values[offset + d] - mean[d];
+        norm += diff * diff;
+      }
+      
+      for (j = 0; j < basisSize; j++) {
+        sum = 0.0d;
+        for (d = 0; d < dimension; d++)
+          sum += (values[offset + d] - mean[d]) * basis[j * dimension + d];
+        
+        projections[neuron * basisSize + j] = sum;
+        projected += sum * sum;
+      }
+      
+      maxNorm = Math.max(maxNorm, norm);
+      total  += norm;
+    }
+    
+    return total > 0.0d ? projected / total : 1.0d;
+  }
+  
+  /**
+   * Assessor for searching the best neuron of some sample. If more then 
+   * one neuron match then a random neuron is kept.
+   * 
+   * @param sample       - Sample values to be match.
+   * @param missing      - Sample missing values bitmap, or null if no 
+   *                       value is missing.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param bestMatching - Search result.
+   * 
+   * @return True if the index found the best neuron, or false if the 
+   *         storage or the sample has missing values.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public boolean search(double[] sample, long[] missing, Random randomize,
+    BestMatchingVO bestMatching) throws SOMException {
+    int j, d;
+    double sum, diff, norm, tolerance;
+    double[] point;
+    
+    if (!usable || missing != null)
+      return false;
+    
+    if (sample.length < dimension)
+      throw new SOMException("Problems with elements size: " + 
+        sample.length + "," + dimension);
+    
+    point = new double[basisSize];
+    norm  = 0.0d;
+    
+    for (d = 0; d < dimension; d++) {
+      diff  = sample[d] - mean[d];
+      norm += diff * diff;
+    }
+    
+    for (j = 0; j < basisSize; j++) {
+      sum = 0.0d;
+      for (d = 0; d < dimension; d++)
+        sum += (sample[d] - mean[d]) * basis[j * dimension + d];
+      
+      point[j] = sum;
+    }
+    
+    tolerance = TOLERANCE * (norm + maxNorm);
+    
+    if (candidateNumber == 0)
+      searchExact(sample, point, tolerance, randomize, bestMatching);
+    else
+      searchApproximate(sample, point, tolerance, randomize, bestMatching);
+    
+    return true;
+  }
+  
+  /**
+   * Assessor for the squared euclidean distance between the projections 
+   * of a sample and of a neuron.
+   * 
+   * @param point  - Sample projections.
+   * @param neuron - Neuron index.
+   * 
+   * @return Squared distance between the projections.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private double getBound(double[] point, int neuron) {
+    int j, offset;
+    double sum, diff;
+    
+    offset = neuron * basisSize;
+    sum    = 0.0d;
+    
+    for (j = 0; j < basisSize; j++) {
+      diff = point[j] - projections[offset + j];
+      sum += diff * diff;
+    }
+    
+    return sum;
+  }
+  
+  /**
+   * Search every neuron that the lower bound cannot skip, starting from 
+   * the neuron with the lowest bound.
+   * 
+   * @param sample       - Sample values to be match.
+   * @param point        - Sample projections.
+   * @param tolerance    - Tolerance subtracted from the bounds.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param bestMatching - Search result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void searchExact(double[] sample, double[] point, 
+    double tolerance, Random randomize, BestMatchingVO bestMatching) 
+    throws SOMException {
+    int neuron, neuronNumber, first, bestNeuron, matchNumber;
+    double bound, firstBound, bestDistance, currDistance;
+    
+    neuronNumber = storage.getNeuronNumber();
+    first        = 0;
+    firstBound   = Double.MAX_VALUE;
+    
+    for (neuron = 0; neuron < neuronNumber; neuron++) {
+      bound = getBound(point, neuron);
+      if (bound < firstBound) {
+        firstBound = bound;
+        first      = neuron;
+      }
+    }
+    
+    bestDistance = distanceMethod.calculateRankDistance(sample, null, 
+      storage, first, Double.MAX_VALUE);
+    bestNeuron   = first;
+    matchNumber  = 1;
+    
+    for (neuron = 0; neuron < neuronNumber; neuron++) {
+      if (neuron == first)
+        continue;
+      
+      bound = distanceMethod.getRankLowerBound(
+        Math.max(0.0d, getBound(point, neuron) - tolerance));
+      if (bound > bestDistance)
+        continue;
+      
+      currDistance = distanceMethod.calculateRankDistance(sample, null, 
+        storage, neuron, bestDistance);
+      
+      if (currDistance < bestDistance) {
+        bestDistance = currDistance;
+        bestNeuron   = neuron;
+        matchNumber  = 1;
+      }
+      else if (currDistance == bestDistance) {
+        matchNumber++;
+        if (randomize.nextInt(matchNumber) == 0)
+          bestNeuron = neuron;
+      }
+    }
+    
+    bestMatching.setBestMatching(bestNeuron, bestDistance, matchNumber);
+  }
+  
+  /**
+   * Search only the neurons with the lowest bounds. The candidates are 
+   * kept on a max heap ordered by the bound.
+   * 
+   * @param sample       - Sample values to be match.
+   * @param point        - Sample projections.
+   * @param tolerance    - Tolerance subtracted from the bounds.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param bestMatching - Search result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void searchApproximate(double[] sample, double[] point, 
+    double tolerance, Random randomize, BestMatchingVO bestMatching) 
+    throws SOMException {
+    int i, neuron, neuronNumber, size, bestNeuron, matchNumber;
+    int[] neurons;
+    double bound, bestDistance, currDistance;
+    double[] bounds;
+    
+    neuronNumber = storage.getNeuronNumber();
+    neurons      = new int[Math.min(candidateNumber, neuronNumber)];
+    bounds       = new double[neurons.length];
+    size         = 0;
+    
+    for (neuron = 0; neuron < neuronNumber; neuron++) {
+      bound = getBound(point, neuron);
+      
+      if (size < neurons.length) {
+        neurons[size] = neuron;
+        bounds[size]  = bound;
+        siftUp(neurons, bounds, size);
+        size++;
+      }
+      else if (bound < bounds[0]) {
+        neurons[0] = neuron;
+        bounds[0]  = bound;
+        siftDown(neurons, bounds, size);
+      }
+    }
+    
+    bestDistance = Double.MAX_VALUE;
+    bestNeuron   = -1;
+    matchNumber  = 0;
+    
+    for (i = 0; i < size; i++) {
+      bound = distanceMethod.getRankLowerBound(
+        Math.max(0.0d, bounds[i] - tolerance));
+      if (bound > bestDistance)
+        continue;
+      
+      currDistance = distanceMethod.calculateRankDistance(sample, null, 
+        storage, neurons[i], bestDistance);
+      
+      if (currDistance < bestDistance) {
+        bestDistance = currDistance;
+        bestNeuron   = neurons[i];
+        matchNumber  = 1;
+      }
+      else if (currDistance == bestDistance) {
+        matchNumber++;
+        if (randomize.nextInt(matchNumber) == 0)
+          bestNeuron = neurons[i];
+      }
+    }
+    
+    bestMatching.setBestMatching(bestNeuron, bestDistance, matchNumber);
+  }
+  
+  /**
+   * Move a new heap entry up to its position.
+   * 
+   * @param neurons - Neuron of each entry.
+   * @param bounds  - Bound of each entry.
+   * @param idx     - Entry index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void siftUp(int[] neurons, double[] bounds, int idx) {
+    int parent;
+    
+    while (idx > 0) {
+      parent = (idx - 1) >>> 1;
+      if (bounds[parent] >= bounds[idx])
+        break;
+      
+      swap(neurons, bounds, parent, idx);
+      idx = parent;
+    }
+  }
+  
+  /**
+   * Move a replaced heap root down to its position.
+   * 
+   * @param neurons - Neuron of each entry.
+   * @param bounds  - Bound of each entry.
+   * @param size    - Number of entries.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void siftDown(int[] neurons, double[] bounds, int size) {
+    int idx, child;
+    
+    idx = 0;
+    
+    while ((child = 2 * idx + 1) < size) {
+      if (child + 1 < size && bounds[child + 1] > bounds[child])
+        child++;
+      
+      if (bounds[idx] >= bounds[child])
+        break;
+      
+      swap(neurons, bounds, idx, child);
+      idx = child;
+    }
+  }
+  
+  /**
+   * Swap two heap entries.
+   * 
+   * @param neurons - Neuron of each entry.
+   * @param bounds  - Bound of each entry.
+   * @param i       - First entry index.
+   * @param j       - Second entry index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void swap(int[] neurons, double[] bounds, int i, int j) {
+    int neuron;
+    double bound;
+    
+    neuron     = neurons[i];
+    neurons[i] = neurons[j];
+    neurons[j] = neuron;
+    
+    bound     = bounds[i];
+    bounds[i] = bounds[j];
+    bounds[j] = bound;
+  }
+}
@@ -0,0 +1,393 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.inference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.inference.vo.InferenceResultVO;
+import br.com.ibmp.som.matrix.SOMModel;
+import br.com.ibmp.som.matrix.SampleVectorInterface;
+import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightSnapshot;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Read only lookups of samples on a trained map. The weights are copied
+ * when the inference is created, so the map may keep learning, and the
+ * lookups only read the copy, so any number of threads may use the same
+ * inference. Unlike the learning search, ties are resolved to the lowest
+ * neuron index, so the same sample always has the same result.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMInference {
+
+  /** Frozen weights. */
+  private WeightStorage storage;
+  
+  /** Distance calcule method. */
+  private DistanceMethodInterface distanceMethod;
+  
+  /**
+   * Constructor.
+   * 
+   * @param weightMatrix - Trained weight matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMInference(WeightMatrix weightMatrix) throws SOMException {
+    if (weightMatrix == null)
+      throw new SOMException("Not valid weight matrix");
+    
+    if (weightMatrix.getDistanceMethod() == null)
+      throw new SOMException("Not valid distance method");
+    
+    storage        = new WeightStorage(weightMatrix.getStorage());
+    distanceMethod = weightMatrix.getDistanceMethod();
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param model - Trained model.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMInference(SOMModel model) throws SOMException {
+    if (model == null)
+      throw new SOMException("Not valid model");
+    
+    storage        = new WeightStorage(model.getStorage());
+    distanceMethod = model.getDistanceMethod();
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param snapshot - Snapshot of a learning map.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMInference(WeightSnapshot snapshot) throws SOMException {
+    if (snapshot == null)
+      throw new SOMException("Not valid snapshot");
+    
+    storage        = snapshot.copyStorage();
+    distanceMethod = snapshot.getDistanceMethod();
+  }
+  
+  /**
+   * Assessor to retrieve the matrix width.
+   * 
+   * @return The matrix width.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getWidth() {
+    return storage.getWidth();
+  }
+  
+  /**
+   * Assessor to retrieve the matrix height.
+   * 
+   * @return The matrix height.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getHeight() {
+    return storage.getHeight();
+  }
+  
+  /**
+   * Assessor to retrieve the number of values of each sample.
+   * 
+   * @return Number of values of each sample.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getDimension() {
+    return storage.getDimension();
+  }
+  
+  /**
+   * Lookup the best matching neuron of a sample.
+   * 
+   * @param sample - Sample to be matched.
+   * 
+   * @return The best matching neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public InferenceResultVO lookup(SOMElementVO sample) throws SOMException {
+    return lookup(sample, 1);
+  }
+  
+  /**
+   * Lookup the nearest neurons of a sample.
+   * 
+   * @param sample - Sample to be matched.
+   * @param k      - Number of neurons.
+   * 
+   * @return The nearest neurons, from the best matching neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public InferenceResultVO lookup(SOMElementVO sample, int k) 
+    throws SOMException {
+    double[] values;
+    
+    if (sample == null)
+      throw new SOMException("Invalid sample");
+    
+    if (sample.getNumberOfValues() != storage.getDimension())
+      throw new SOMException("Problems with elements size: " + 
+        sample.getNumberOfValues() + "," + storage.getDimension());
+    
+    values = new double[storage.getDimension()];
+    
+    return lookup(values, WeightStorage.copyValues(sample, values), k);
+  }
+  
+  /**
+   * Lookup the nearest neurons of a sample given by its values.
+   * 
+   * @param sample  - Sample values to be matched.
+   * @param missing - Sample missing values bitmap, or null if no value 
+   *                  is missing.
+   * @param k       - Number of neurons.
+   * 
+   * @return The nearest neurons, from the best matching neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public InferenceResultVO lookup(double[] sample, long[] missing, int k) 
+    throws SOMException {
+    int i, j, size, neuron;
+    int[] neurons, xPositions, yPositions;
+    double currDistance;
+    double[] distances;
+    
+    if (sample == null || sample.length != storage.getDimension())
+      throw new SOMException("Problems with elements size: " + 
+        (sample == null ? 0 : sample.length) + "," + storage.getDimension());
+    
+    if (k < 1 || k > storage.getNeuronNumber())
+      throw new SOMException("Invalid neuron number: " + k);
+    
+    neurons   = new int[k];
+    distances = new double[k];
+    size      = 0;
+    
+    // Keep the k best rank distances sorted. A neuron is abandoned as 
+    // soon as it is worse than the last kept neuron.
+    for (neuron = 0; neuron < storage.getNeuronNumber(); neuron++) {
+      currDistance = distanceMethod.calculateRankDistance(sample, missing, 
+        storage, neuron, size < k ? Double.MAX_VALUE : distances[k - 1]);
+      
+      if (size == k && currDistance >= distances[k - 1])
+        continue;
+      
+      if (size < k)
+        size++;
+      
+      for (j = size - 1; j > 0 && distances[j - 1] > currDistance; j--) {
+        neurons[j]   = neurons[j - 1];
+        distances[j] = distances[j - 1];
+      }
+      
+      neurons[j]   = neuron;
+      distances[j] = currDistance;
+    }
+    
+    if (Double.isNaN(distances[0]))
+      throw new SOMException("Problems with the best matching search");
+    
+    xPositions = new int[k];
+    yPositions = new int[k];
+    
+    for (i = 0; i < k; i++) {
+      xPositions[i] = storage.getXPosition(neurons[i]);
+      yPositions[i] = storage.getYPosition(neurons[i]);
+      distances[i]  = distanceMethod.calculateDistance(sample, missing, 
+        storage, neurons[i]);
+    }
+    
+    return new InferenceResultVO(neurons, xPositions, yPositions, distances);
+  }
+  
+  /**
+   * Lookup the nearest neurons of all samples of a sample vector.
+   * 
+   * @param sampleVector - Samples to be matched.
+   * @param k            - Number of neurons.
+   * 
+   * @return The nearest neurons of each sample, in the sample order.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public InferenceResultVO[] lookup(SampleVectorInterface sampleVector, 
+    int k) throws SOMException {
+    return lookup(sampleVector, k, null, 1);
+  }
+  
+  /**
+   * Lookup the nearest neurons of all samples of a sample vector. The 
+   * samples are split between the executor threads.
+   * 
+   * @param sampleVector - Samples to be matched.
+   * @param k            - Number of neurons.
+   * @param executor     - Executor of the lookups, or null to lookup on 
+   *                       the calling thread.
+   * @param partitions   - Number of sample partitions.
+   * 
+   * @return The nearest neurons of each sample, in the sample order.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public InferenceResultVO[] lookup(final SampleVectorInterface sampleVector,
+    final int k, ExecutorService executor, int partitions) 
+    throws SOMException {
+    int i, rowSize;
+    List<Future<Object>> futures;
+    final InferenceResultVO[] results;
+    
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+    
+    if (partitions < 1)
+      throw new SOMException("Invalid partitions: " + partitions);
+    
+    rowSize = sampleVector.getRowSize();
+    results = new InferenceResultVO[rowSize];
+    
+    if (executor == null || partitions == 1 || rowSize < 2) {
+      lookup(sampleVector, k, 0, rowSize, results);
+      
+      return results;
+    }
+    
+    partitions = Math.min(partitions, rowSize);
+    futures    = new ArrayList<Future<Object>>(partitions);
+    
+    for (i = 0; i < partitions; i++) {
+      final int from = (int) ((long) rowSize * i / partitions);
+      final int to   = (int) ((long) rowSize * (i + 1) / partitions);
+      
+      futures.add(executor.submit(new Callable<Object>() {
+        public Object call() throws SOMException {
+          lookup(sampleVector, k, from, to, results);
+          
+          return null;
+        }
+      }));
+    }
+    
+    try {
+      for (Future<Object> future : futures)
+        future.get();
+    }
+    catch (InterruptedException e) {
+      for (Future<Object> future : futures)
+        future.cancel(true);
+      
+      throw new SOMException("Problems with thread", e);
+    }
+    catch (ExecutionException e) {
+      for (Future<Object> future : futures)
+        future.cancel(true);
+      
+      if (e.getCause() instanceof SOMException)
+        throw (SOMException) e.getCause();
+      
+      throw new SOMException("Problems with the lookup", e);
+    }
+    
+    return results;
+  }
+  
+  /**
+   * Lookup the nearest neurons of a sample range on the calling thread.
+   * 
+   * @param sampleVector - Samples to be matched.
+   * @param k            - Number of neurons.
+   * @param from         - First sample of the range.
+   * @param to           - Sample after the last sample of the range.
+   * @param results      - Results of all samples.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void lookup(SampleVectorInterface sampleVector, int k, int from,
+    int to, InferenceResultVO[] results) throws SOMException {
+    int i;
+    double[] values;
+    SOMElementVO element;
+    
+    values = new double[storage.getDimension()];
+    
+    for (i = from; i < to; i++) {
+      element = sampleVector.getElement(i);
+      
+      if (element.getNumberOfValues() != values.length)
+        throw new SOMException("Problems with elements size: " + 
+          element.getNumberOfValues() + "," + values.length);
+      
+      results[i] = lookup(values, WeightStorage.copyValues(element, values),
+        k);
+    }
+  }
+}
@@ -0,0 +1,392 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.inference;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.inference.vo.InferenceResultVO;
+import br.com.ibmp.som.matrix.SOMModel;
+
+/**
+ * Local HTTP server of an inference. A POST to /lookup sends one sample
+ * per line, with the values separated by tabs and empty values missing,
+ * and receives one line per sample with the neuron, x, y and distance 
+ * of each nearest neuron, separated by tabs. The number of neurons is 
+ * given by the k parameter of the query, and is 1 by default. Requests
+ * greater than MAX_BYTES or with more than MAX_LINES samples are 
+ * rejected.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMInferenceServer {
+
+  /** Default number of threads that serve the requests. */
+  public final static int THREADS = 4;
+  
+  /** Greatest request body, in bytes. */
+  public final static int MAX_BYTES = 16 << 20;
+  
+  /** Greatest number of samples of one request. */
+  public final static int MAX_LINES = 100000;
+  
+  /** The inference. */
+  private SOMInference inference;
+  
+  /** The HTTP server. */
+  private HttpServer server;
+  
+  /** Threads that serve the requests. */
+  private ExecutorService executor;
+  
+  /**
+   * Constructor. The server listens only on the loopback address.
+   * 
+   * @param inference - The inference.
+   * @param port      - Port to listen, or 0 to use any free port.
+   * @param threads   - Number of threads that serve the requests.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMInferenceServer(SOMInference inference, int port, int threads) 
+    throws SOMException {
+    if (inference == null)
+      throw new SOMException("Invalid inference");
+    
+    if (threads < 1)
+      throw new SOMException("Invalid threads: " + threads);
+    
+    this.inference = inference;
+    
+    try {
+      server = HttpServer.create(new InetSocketAddress(
+        InetAddress.getByName(null), port), 0);
+    }
+    catch (IOException e) {
+      throw new SOMException("Problems with server socket", e);
+    }
+    
+    executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      public Thread newThread(Runnable runnable) {
+        Thread thread;
+        
+        thread = new Thread(runnable, "SOMInferenceServer-" + getPort());
+        thread.setDaemon(true);
+        
+        return thread;
+      }
+    });
+    
+    server.setExecutor(executor);
+    server.createContext("/lookup", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        serve(exchange);
+      }
+    });
+  }
+  
+  /**
+   * Assessor to retrieve the listening port.
+   * 
+   * @return Listening port.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+  
+  /**
+   * Start serving on the server threads.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void start() {
+    server.start();
+  }
+  
+  /**
+   * Serve one lookup request.
+   * 
+   * @param exchange - The request.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private void serve(HttpExchange exchange) throws IOException {
+    int status;
+    byte[] body;
+    String response;
+    OutputStream output;
+    
+    try {
+      if (!exchange.getRequestMethod().equals("POST")) {
+        status   = 405;
+        response = "Invalid method: " + exchange.getRequestMethod() + "\n";
+      }
+      else if ((body = readBody(exchange.getRequestBody())) == null) {
+        status   = 413;
+        response = "Request greater than " + MAX_BYTES + " bytes\n";
+      }
+      else {
+        status   = 200;
+        response = lookup(body, exchange.getRequestURI().getRawQuery());
+      }
+    }
+    catch (SOMException e) {
+      status   = 400;
+      response = e.getMessage() + "\n";
+    }
+    catch (RuntimeException e) {
+      System.err.println("[ERROR] Problems with lookup request: " + e);
+      status   = 500;
+      response = e + "\n";
+    }
+    
+    body = response.getBytes("UTF-8");
+    
+    exchange.getResponseHeaders().set("Content-Type", 
+      "text/tab-separated-values; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    
+    output = exchange.getResponseBody();
+    
+    try {
+      output.write(body);
+    }
+    finally {
+      output.close();
+      exchange.close();
+    }
+  }
+  
+  /**
+   * Read the request body, up to MAX_BYTES bytes.
+   * 
+   * @param input - Request body stream.
+   * 
+   * @return The request body, or null if it is greater than MAX_BYTES.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private static byte[] readBody(InputStream input) throws IOException {
+    int read, size;
+    byte[] buffer;
+    ByteArrayOutputStream body;
+    
+    buffer = new byte[8192];
+    body   = new ByteArrayOutputStream();
+    size   = 0;
+    
+    while ((read = input.read(buffer)) != -1) {
+      size += read;
+      if (size > MAX_BYTES)
+        return null;
+      
+      body.write(buffer, 0, read);
+    }
+    
+    return body.toByteArray();
+  }
+  
+  /**
+   * Lookup all samples of one request.
+   * 
+   * @param body  - The request body.
+   * @param query - Raw query, or null if none.
+   * 
+   * @return The response body.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * @throws IOException
+   * 
+   */
+  private String lookup(byte[] body, String query) 
+    throws SOMException, IOException {
+    int i, k, lineNumber, sampleNumber;
+    long[] missing;
+    double[] values;
+    String line;
+    String[] columns;
+    StringBuilder response;
+    BufferedReader reader;
+    InferenceResultVO result;
+    
+    k            = getK(query);
+    values       = new double[inference.getDimension()];
+    response     = new StringBuilder();
+    reader       = new BufferedReader(new InputStreamReader(
+      new ByteArrayInputStream(body), "UTF-8"));
+    sampleNumber = 0;
+    
+    for (lineNumber = 1; (line = reader.readLine()) != null; lineNumber++) {
+      if (line.trim().length() == 0)
+        continue;
+      
+      if (++sampleNumber > MAX_LINES)
+        throw new SOMException("Request with more than " + MAX_LINES + 
+          " samples");
+      
+      columns = line.split("\t", -1);
+      missing = null;
+      
+      if (columns.length != values.length)
+        throw new SOMException("Problems with elements size on line " + 
+          lineNumber + ": " + columns.length + "," + values.length);
+      
+      for (i = 0; i < values.length; i++) {
+        if (columns[i].trim().length() == 0) {
+          if (missing == null)
+            missing = new long[(values.length + 63) >>> 6];
+          
+          missing[i >>> 6] |= (1L << i);
+          values[i]         = 0.0d;
+          continue;
+        }
+        
+        try {
+          values[i] = Double.parseDouble(columns[i].trim());
+        }
+        catch (NumberFormatException e) {
+          throw new SOMException("Invalid value on line " + lineNumber + 
+            ": " + columns[i]);
+        }
+      }
+      
+      result = inference.lookup(values, missing, k);
+      
+      for (i = 0; i < result.getSize(); i++) {
+        if (i > 0)
+          response.append('\t');
+        
+        response.append(result.getNeuron(i)).append('\t')
+          .append(result.getXPosition(i)).append('\t')
+          .append(result.getYPosition(i)).append('\t')
+          .append(result.getDistance(i));
+      }
+      
+      response.append('\n');
+    }
+    
+    return response.toString();
+  }
+  
+  /**
+   * Retrieve the number of neurons of a query.
+   * 
+   * @param query - Raw query, or null if none.
+   * 
+   * @return Number of neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private static int getK(String query) throws SOMException {
+    if (query == null)
+      return 1;
+    
+    for (String parameter : query.split("&")) {
+      if (parameter.startsWith("k=")) {
+        try {
+          return Integer.parseInt(parameter.substring(2));
+        }
+        catch (NumberFormatException e) {
+          throw new SOMException("Invalid neuron number: " + parameter);
+        }
+      }
+    }
+    
+    return 1;
+  }
+  
+  /**
+   * Stop serving and release the threads.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void close() {
+    server.stop(0);
+    executor.shutdown();
+  }
+  
+  /**
+   * Run an inference server over a model file.
+   * 
+   * Usage: SOMInferenceServer model [port] [threads]
+   * 
+   * @param args - Command line arguments.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static void main(String[] args) {
+    SOMInferenceServer server;
+    
+    if (args.length < 1) {
+      System.err.println("Usage: SOMInferenceServer model [port] [threads]");
+      System.exit(1);
+    }
+    
+    try {
+      server = new SOMInferenceServer(new SOMInference(
+        SOMModel.read(args[0])), args.length > 1 ? 
+        Integer.parseInt(args[1]) : 0, args.length > 2 ? 
+        Integer.parseInt(args[2]) : THREADS);
+      
+      System.out.println(server.getPort());
+      server.start();
+    }
+    catch (SOMException e) {
+      System.err.println("[ERROR] Problems with inference server");
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.inference.vo;
+
+/**
+ * Class that contains the result of an inference lookup: the nearest 
+ * neurons of a sample, from the best matching neuron to the farthest.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+ * @version 1.0
+ *
+ */
+public class InferenceResultVO {
+
+  /** Neuron indexes. */
+  private int[] neurons;
+  
+  /** X position of each neuron. */
+  private int[] xPositions;
+  
+  /** Y position of each neuron. */
+  private int[] yPositions;
+  
+  /** Distance between the sample and each neuron. */
+  private double[] distances;
+  
+  /**
+   * Constructor.
+   * 
+   * @param neurons    - Neuron indexes.
+   * @param xPositions - X position of each neuron.
+   * @param yPositions - Y position of each neuron.
+   * @param distances  - Distance between the sample and each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public InferenceResultVO(int[] neurons, int[] xPositions, 
+    int[] yPositions, double[] distances) {
+    this.neurons    = neurons;
+    this.xPositions = xPositions;
+    this.yPositions = yPositions;
+    this.distances  = distances;
+  }
+  
+  /**
+   * Assessor to retrieve the number of neurons.
+   * 
+   * @return Number of neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getSize() {
+    return neurons.length;
+  }
+  
+  /**
+   * Assessor to retrieve the best matching neuron index.
+   * 
+   * @return Best matching neuron index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getNeuron() {
+    return neurons[0];
+  }
+  
+  /**
+   * Assessor to retrieve the X position of the best matching neuron.
+   * 
+   * @return X position in the matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getXPosition() {
+    return xPositions[0];
+  }
+  
+  /**
+   * Assessor to retrieve the Y position of the best matching neuron.
+   * 
+   * @return Y position in the matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getYPosition() {
+    return yPositions[0];
+  }
+  
+  /**
+   * Assessor to retrieve the quantization error, the distance between 
+   * the sample and the best matching neuron.
+   * 
+   * @return Quantization error.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public double getDistance() {
+    return distances[0];
+  }
+  
+  /**
+   * Assessor to retrieve some neuron index.
+   * 
+   * @param idx - Rank of the neuron, 0 for the best matching neuron.
+   * 
+   * @return Neuron index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getNeuron(int idx) {
+    return neurons[idx];
+  }
+  
+  /**
+   * Assessor to retrieve the X position of some neuron.
+   * 
+   * @param idx - Rank of the neuron, 0 for the best matching neuron.
+   * 
+   * @return X position in the matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getXPosition(int idx) {
+    return xPositions[idx];
+  }
+  
+  /**
+   * Assessor to retrieve the Y position of some neuron.
+   * 
+   * @param idx - Rank of the neuron, 0 for the best matching neuron.
+   * 
+   * @return Y position in the matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getYPosition(int idx) {
+    return yPositions[idx];
+  }
+  
+  /**
+   * Assessor to retrieve the distance between the sample and some neuron.
+   * 
+   * @param idx - Rank of the neuron, 0 for the best matching neuron.
+   * 
+   * @return Distance between the sample and the neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public double getDistance(int idx) {
+    return distances[idx];
+  }
+}
@@ -0,0 +1,223 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.listener;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightMatrix;
+
+/**
+ * Listener that forwards the events to other listener at a chosen 
+ * cadence and on its own thread, so a slow listener does not stall the
+ * learning process. The events wait on a bounded queue, and the oldest
+ * waiting event is dropped when the queue is full. The forwarded weight
+ * matrix is a copy taken when the event is received, since the learning
+ * matrix changes while the listener reads it.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class ThrottledSelfOrganizingMapListener 
+  implements SelfOrganizingMapListener {
+
+  /** Default number of waiting events. */
+  public final static int CAPACITY = 16;
+  
+  /** Listener that receives the events. */
+  private SelfOrganizingMapListener listener;
+  
+  /** Number of iterations between two step end events, or 0. */
+  private int steps;
+  
+  /** Nanoseconds between two step end events, or 0. */
+  private long interval;
+  
+  /** Iteration of the last forwarded step end event. */
+  private int lastIteration;
+  
+  /** Time of the last forwarded step end event. */
+  private long lastTime;
+  
+  /** Thread that forwards the events. */
+  private ThreadPoolExecutor notifier;
+  
+  /**
+   * Constructor. A step end event is forwarded when any of the cadences
+   * is reached, and every step end event is forwarded when both are 0.
+   * The end event is always forwarded.
+   * 
+   * @param listener - Listener that receives the events.
+   * @param steps    - Number of iterations between two step end events,
+   *                   or 0 to ignore the iterations.
+   * @param millis   - Milliseconds between two step end events, or 0 to
+   *                   ignore the time.
+   * @param capacity - Maximum number of waiting events.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public ThrottledSelfOrganizingMapListener(
+    SelfOrganizingMapListener listener, int steps, long millis, 
+    int capacity) throws SOMException {
+    if (listener == null)
+      throw new SOMException("Invalid listener");
+    
+    if (steps < 0 || millis < 0)
+      throw new SOMException("Invalid cadence: " + steps + "," + millis);
+    
+    if (capacity < 1)
+      throw new SOMException("Invalid capacity: " + capacity);
+    
+    this.listener = listener;
+    this.steps    = steps;
+    
+    interval      = TimeUnit.MILLISECONDS.toNanos(millis);
+    lastIteration = 0;
+    lastTime      = System.nanoTime() - interval;
+    
+    notifier = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, 
+      new ArrayBlockingQueue<Runnable>(capacity), new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread;
+          
+          thread = new Thread(runnable, "SelfOrganizingMapListener");
+          thread.setDaemon(true);
+          
+          return thread;
+        }
+      }, new ThreadPoolExecutor.DiscardOldestPolicy());
+  }
+  
+  /**
+   * Assessor to retrieve the listener that receives the events.
+   * 
+   * @return Listener that receives the events.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SelfOrganizingMapListener getListener() {
+    return listener;
+  }
+  
+  /**
+   * Assessor to copy the weight matrix of an event. The copy is always
+   * valid, since it has the same size and methods of the copied matrix.
+   * 
+   * @param matrix - Current weight matrix.
+   * 
+   * @return Copy of the weight matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static WeightMatrix copy(WeightMatrix matrix) {
+    try {
+      return matrix.copy();
+    }
+    catch (SOMException e) {
+      throw new IllegalStateException("Problems with weight matrix", e);
+    }
+  }
+  
+  /**
+   * Forward the end event with a copy of the weight matrix.
+   * 
+   * @param matrix    - Current weight matrix.
+   * @param iteration - Current iteration.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void end(WeightMatrix matrix, final int iteration) {
+    final WeightMatrix copy;
+    
+    lastIteration = 0;
+    lastTime      = System.nanoTime() - interval;
+    copy          = copy(matrix);
+    
+    notifier.execute(new Runnable() {
+      public void run() {
+        listener.end(copy, iteration);
+      }
+    });
+  }
+  
+  /**
+   * Forward the step end event with a copy of the weight matrix if the 
+   * cadence was reached.
+   * 
+   * @param matrix    - Current weight matrix.
+   * @param iteration - Current iteration.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void stepEnd(WeightMatrix matrix, final int iteration) {
+    long now;
+    boolean forward;
+    final WeightMatrix copy;
+    
+    now     = 0;
+    forward = steps == 0 && interval == 0;
+    
+    // A new process starts the iterations again.
+    if (iteration < lastIteration)
+      forward = true;
+    
+    if (steps > 0 && iteration - lastIteration >= steps)
+      forward = true;
+    
+    if (interval > 0) {
+      now = System.nanoTime();
+      
+      if (now - lastTime >= interval)
+        forward = true;
+    }
+    
+    if (!forward)
+      return;
+    
+    lastIteration = iteration;
+    lastTime      = now;
+    copy          = copy(matrix);
+    
+    notifier.execute(new Runnable() {
+      public void run() {
+        listener.stepEnd(copy, iteration);
+      }
+    });
+  }
+  
+  /**
+   * Stop the forwarding thread. The waiting events are still forwarded.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void close() {
+    notifier.shutdown();
+  }
+}
@@ -0,0 +1,355 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import br.com.ibmp.som.exception.SOMException;
+
+/**
+ * Neighborhood weighted sums of the batch learning process. For each
+ * neuron it keeps the sum of the samples multiplied by the neighborhood
+ * coefficient and the sum of the coefficients, so the new weight is the
+ * division of both.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+ * @version 1.0
+ *
+ */
+public class BatchAccumulator {
+
+  /** Number of neurons. */
+  private int neuronNumber;
+
+  /** Number of values of each neuron. */
+  private int dimension;
+
+  /** Weighted sum of the sample values of each neuron value. */
+  private double[] numerator;
+
+  /** Sum of the coefficients of each neuron. */
+  private double[] denominator;
+
+  /**
+   * Sum of the coefficients of the missing sample values of each neuron
+   * value, or null while no missing value was accumulated.
+   */
+  private double[] missingDenominator;
+
+  /**
+   * Constructor.
+   * 
+   * @param neuronNumber - Number of neurons.
+   * @param dimension    - Number of values of each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public BatchAccumulator(int neuronNumber, int dimension) {
+    this.neuronNumber = neuronNumber;
+    this.dimension    = dimension;
+
+    numerator   = new double[neuronNumber * dimension];
+    denominator = new double[neuronNumber];
+
+    missingDenominator = null;
+  }
+
+  /**
+   * Assessor to retrieve the number of neurons.
+   * 
+   * @return Number of neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getNeuronNumber() {
+    return neuronNumber;
+  }
+
+  /**
+   * Assessor to retrieve the number of values of each neuron.
+   * 
+   * @return Number of values of each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getDimension() {
+    return dimension;
+  }
+
+  /**
+   * Assessor to retrieve the weighted sums. The array is returned without
+   * copy.
+   * 
+   * @return Weighted sum of each neuron value.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double[] getNumerator() {
+    return numerator;
+  }
+
+  /**
+   * Assessor to retrieve the coefficient sums. The array is returned
+   * without copy.
+   * 
+   * @return Coefficient sum of each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double[] getDenominator() {
+    return denominator;
+  }
+
+  /**
+   * Assessor to retrieve the coefficient sums of the missing values. The
+   * array is returned without copy.
+   * 
+   * @return Coefficient sum of the missing values of each neuron value,
+   *         or null if no missing value was accumulated.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double[] getMissingDenominator() {
+    return missingDenominator;
+  }
+
+  /**
+   * Clear all sums.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void clear() {
+    Arrays.fill(numerator, 0.0d);
+    Arrays.fill(denominator, 0.0d);
+
+    if (missingDenominator != null)
+      Arrays.fill(missingDenominator, 0.0d);
+  }
+
+  /**
+   * Accumulate one sample on some neuron.
+   * 
+   * @param neuron      - Neuron index.
+   * @param coefficient - Neighborhood coefficient.
+   * @param sample      - Sample values.
+   * @param missing     - Sample missing values bitmap, or null if no value
+   *                      is missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void accumulate(int neuron, double coefficient, double[] sample,
+    long[] missing) {
+    int i, offset;
+
+    offset = neuron * dimension;
+
+    denominator[neuron] += coefficient;
+
+    if (missing == null) {
+      for (i = 0; i < dimension; i++)
+        numerator[offset + i] += coefficient * sample[i];
+    }
+    else {
+      if (missingDenominator == null)
+        missingDenominator = new double[neuronNumber * dimension];
+
+      for (i = 0; i < dimension; i++) {
+        if ((missing[i >>> 6] & (1L << i)) != 0)
+          missingDenominator[offset + i] += coefficient;
+        else
+          numerator[offset + i] += coefficient * sample[i];
+      }
+    }
+  }
+
+  /**
+   * Add the sums of other accumulator to this accumulator.
+   * 
+   * @param accumulator - Accumulator to be added.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void merge(BatchAccumulator accumulator) throws SOMException {
+    int i;
+
+    if (accumulator.neuronNumber != neuronNumber ||
+        accumulator.dimension != dimension)
+      throw new SOMException("Problems with accumulator size: " +
+        accumulator.neuronNumber + "x" + accumulator.dimension + "," +
+        neuronNumber + "x" + dimension);
+
+    for (i = 0; i < numerator.length; i++)
+      numerator[i] += accumulator.numerator[i];
+
+    for (i = 0; i < denominator.length; i++)
+      denominator[i] += accumulator.denominator[i];
+
+    if (accumulator.missingDenominator != null) {
+      if (missingDenominator == null)
+        missingDenominator = new double[neuronNumber * dimension];
+
+      for (i = 0; i < missingDenominator.length; i++)
+        missingDenominator[i] += accumulator.missingDenominator[i];
+    }
+  }
+
+  /**
+   * Rewrite the weights with the accumulated means. Neuron values that
+   * did not receive any sample keep the current weight.
+   * 
+   * @param storage - Weight storage to be updated.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void update(WeightStorage storage) throws SOMException {
+    update(storage, 1.0d);
+  }
+
+  /**
+   * Move the weights towards the accumulated means. Neuron values that
+   * did not receive any sample keep the current weight, and missing
+   * weight values are rewritten with the mean.
+   * 
+   * @param storage - Weight storage to be updated.
+   * @param rate    - Fraction of the way to the mean, 1 to rewrite the 
+   *                  weights with the means.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void update(WeightStorage storage, double rate) 
+    throws SOMException {
+    int neuron, i, offset;
+    double sum, mean;
+
+    if (storage.getNeuronNumber() != neuronNumber ||
+        storage.getDimension() != dimension)
+      throw new SOMException("Problems with accumulator size: " +
+        storage.getNeuronNumber() + "x" + storage.getDimension() + "," +
+        neuronNumber + "x" + dimension);
+
+    for (neuron = 0; neuron < neuronNumber; neuron++) {
+      if (denominator[neuron] <= 0.0d)
+        continue;
+
+      offset = neuron * dimension;
+
+      for (i = offset; i < offset + dimension; i++) {
+        sum = denominator[neuron];
+        if (missingDenominator != null)
+          sum -= missingDenominator[i];
+
+        // Ignore what is left of the subtraction when every sample of this
+        // neuron was missing the value.
+        if (sum > denominator[neuron] * 1.0e-12d) {
+          mean = numerator[i] / sum;
+          
+          if (rate >= 1.0d || storage.isMissing(i))
+            storage.setValue(i, mean);
+          else
+            storage.setValue(i, storage.getValues()[i] + 
+              rate * (mean - storage.getValues()[i]));
+        }
+      }
+    }
+  }
+
+  /**
+   * Write all sums to a stream.
+   * 
+   * @param output - Stream to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  public void write(DataOutput output) throws IOException {
+    int i;
+    
+    output.writeInt(neuronNumber);
+    output.writeInt(dimension);
+    
+    for (i = 0; i < numerator.length; i++)
+      output.writeDouble(numerator[i]);
+    
+    for (i = 0; i < denominator.length; i++)
+      output.writeDouble(denominator[i]);
+    
+    output.writeBoolean(missingDenominator != null);
+    
+    if (missingDenominator != null) {
+      for (i = 0; i < missingDenominator.length; i++)
+        output.writeDouble(missingDenominator[i]);
+    }
+  }
+  
+  /**
+   * Read an accumulator written by the write method.
+   * 
+   * @param input - Stream to be read.
+   * 
+   * @return The accumulator.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  public static BatchAccumulator read(DataInput input) throws IOException {
+    int i;
+    BatchAccumulator accumulator;
+    
+    accumulator = new BatchAccumulator(input.readInt(), input.readInt());
+    
+    for (i = 0; i < accumulator.numerator.length; i++)
+      accumulator.numerator[i] = input.readDouble();
+    
+    for (i = 0; i < accumulator.denominator.length; i++)
+      accumulator.denominator[i] = input.readDouble();
+    
+    if (input.readBoolean()) {
+      accumulator.missingDenominator = 
+        new double[accumulator.neuronNumber * accumulator.dimension];
+      
+      for (i = 0; i < accumulator.missingDenominator.length; i++)
+        accumulator.missingDenominator[i] = input.readDouble();
+    }
+    
+    return accumulator;
+  }
+}
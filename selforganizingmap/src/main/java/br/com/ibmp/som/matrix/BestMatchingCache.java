@@ -0,0 +1,494 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.vo.BestMatchingVO;
+
+/**
+ * Last best matching neuron of each sample of the batch learning. The 
+ * search starts on a grid window around the last neuron, and it only 
+ * scans every neuron when the window cannot be proved to contain the 
+ * best one.
+ * 
+ * For each sample the cache keeps a lower bound of the distance to every
+ * neuron outside the window. When the weights change, no distance 
+ * changes more than the greatest neuron move, so the bound is decreased 
+ * by that move. A window neuron closer than the bound is the best neuron
+ * of the whole grid. The bound needs the triangle inequality, so the 
+ * cache is not used with distances that are not metrics or when some 
+ * value is missing.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+ * @version 1.0
+ *
+ */
+public class BestMatchingCache {
+
+  /** Relative tolerance of the bounds to the rounding errors. */
+  private static final double TOLERANCE = 1.0e-9d;
+  
+  /** Grid radius of the window around the last best matching neuron. */
+  private int radius;
+  
+  /** Last best matching neuron of each sample, or -1 if unknown. */
+  private int[] neurons;
+  
+  /** 
+   * Lower bound of the distance from each sample to the neurons outside 
+   * its window, plus the drift when it was calculated. 
+   */
+  private double[] bounds;
+  
+  /** Sum of the greatest neuron move of each weight update. */
+  private double drift;
+  
+  /** Weights of the last update. */
+  private WeightStorage previous;
+  
+  /** Neuron values used to measure the moves. */
+  private double[] values;
+  
+  /** True if the cache can be searched. */
+  private boolean usable;
+  
+  /**
+   * Constructor.
+   * 
+   * @param sampleNumber - Number of samples.
+   * @param radius       - Grid radius of the window around the last best
+   *                       matching neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public BestMatchingCache(int sampleNumber, int radius) 
+    throws SOMException {
+    if (sampleNumber < 0)
+      throw new SOMException("Invalid sample number: " + sampleNumber);
+    
+    if (radius < 0)
+      throw new SOMException("Invalid cache radius: " + radius);
+    
+    this.radius = radius;
+    
+    neurons = new int[sampleNumber];
+    bounds  = new double[sampleNumber];
+    
+    clear();
+  }
+  
+  /**
+   * Assessor to retrieve the grid radius of the window.
+   * 
+   * @return Grid radius of the window.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getRadius() {
+    return radius;
+  }
+  
+  /**
+   * Assessor to retrieve the number of samples.
+   * 
+   * @return Number of samples.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getSampleNumber() {
+    return neurons.length;
+  }
+  
+  /**
+   * Forget the last best matching neuron of every sample.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void clear() {
+    Arrays.fill(neurons, -1);
+    
+    drift    = 0.0d;
+    previous = null;
+    usable   = false;
+  }
+  
+  /**
+   * Update the cache to the current weights. The greatest neuron move 
+   * since the last update is added to the drift, which decreases every 
+   * bound at once.
+   * 
+   * @param storage        - Weight storage.
+   * @param distanceMethod - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void update(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod) throws SOMException {
+    int neuron, dimension;
+    double move;
+    
+    if (!distanceMethod.isMetric() || storage.hasMissing()) {
+      clear();
+      return;
+    }
+    
+    dimension = storage.getDimension();
+    
+    if (previous == null || previous.getWidth() != storage.getWidth() || 
+        previous.getHeight() != storage.getHeight() || 
+        previous.getDimension() != dimension) {
+      clear();
+      
+      previous = new WeightStorage(storage);
+      values   = new double[dimension];
+      usable   = true;
+      return;
+    }
+    
+    move = 0.0d;
+    
+    for (neuron = 0; neuron < storage.getNeuronNumber(); neuron++) {
+      System.arraycopy(previous.getValues(), previous.getOffset(neuron), 
+        values, 0, dimension);
+      move = Math.max(move, distanceMethod.calculateDistance(values, null, 
+        storage, neuron));
+    }
+    
+    drift += move;
+    previous.setWeights(storage);
+  }
+  
+  /**
+   * Assessor for searching the best neuron of some sample. If more then 
+   * one neuron match then a random neuron is kept. Different samples can 
+   * be searched by several threads at the same time.
+   * 
+   * @param storage        - Weight storage of the last update.
+   * @param distanceMethod - Distance calcule method.
+   * @param sample         - Sample values to be match.
+   * @param missing        - Sample missing values bitmap, or null if no
+   *                         value is missing.
+   * @param idx            - Sample index.
+   * @param randomize      - Random instance used to choose between ties.
+   * @param bestMatching   - Search result.
+   * 
+   * @return True if the cache found the best neuron, or false if the 
+   *         cache cannot be used.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public boolean search(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod, double[] sample, long[] missing,
+    int idx, Random randomize, BestMatchingVO bestMatching) 
+    throws SOMException {
+    if (!usable || missing != null)
+      return false;
+    
+    if (idx < 0 || idx >= neurons.length)
+      throw new SOMException("Invalid sample index: " + idx);
+    
+    if (neurons[idx] == -1 || bounds[idx] - drift <= 0.0d ||
+        !searchWindow(storage, distanceMethod, sample, idx, randomize, 
+          bestMatching))
+      searchAll(storage, distanceMethod, sample, idx, randomize, 
+        bestMatching);
+    
+    return true;
+  }
+  
+  /**
+   * Assessor to retrieve if a neuron is inside the window of other.
+   * 
+   * @param storage - Weight storage.
+   * @param center  - Neuron on the window center.
+   * @param neuron  - Neuron to be checked.
+   * 
+   * @return True if the neuron is inside the window.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private boolean isInside(WeightStorage storage, int center, int neuron) {
+    return Math.abs(storage.getXPosition(neuron) - 
+      storage.getXPosition(center)) <= radius && 
+      Math.abs(storage.getYPosition(neuron) - 
+      storage.getYPosition(center)) <= radius;
+  }
+  
+  /**
+   * Search the window around the last best neuron. The new window bound 
+   * is the old bound or a neuron of the old window that is left outside.
+   * 
+   * @param storage        - Weight storage.
+   * @param distanceMethod - Distance calcule method.
+   * @param sample         - Sample values to be match.
+   * @param idx            - Sample index.
+   * @param randomize      - Random instance used to choose between ties.
+   * @param bestMatching   - Search result.
+   * 
+   * @return True if the best neuron is inside the window.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private boolean searchWindow(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod, double[] sample, int idx, 
+    Random randomize, BestMatchingVO bestMatching) throws SOMException {
+    int x, y, last, neuron, bestNeuron, matchNumber;
+    int fromX, toX, fromY, toY;
+    double bound, bestDistance, currDistance;
+    
+    last  = neurons[idx];
+    bound = bounds[idx] - drift;
+    fromX = Math.max(0, storage.getXPosition(last) - radius);
+    toX   = Math.min(storage.getWidth() - 1, storage.getXPosition(last) + 
+      radius);
+    fromY = Math.max(0, storage.getYPosition(last) - radius);
+    toY   = Math.min(storage.getHeight() - 1, storage.getYPosition(last) + 
+      radius);
+    
+    bestDistance = Double.MAX_VALUE;
+    bestNeuron   = -1;
+    matchNumber  = 0;
+    
+    for (x = fromX; x <= toX; x++) {
+      for (y = fromY; y <= toY; y++) {
+        neuron       = storage.getNeuron(x, y);
+        currDistance = distanceMethod.calculateRankDistance(sample, null, 
+          storage, neuron, bestDistance);
+        
+        if (currDistance < bestDistance) {
+          bestDistance = currDistance;
+          bestNeuron   = neuron;
+          matchNumber  = 1;
+        }
+        else if (currDistance == bestDistance) {
+          matchNumber++;
+          if (randomize.nextInt(matchNumber) == 0)
+            bestNeuron = neuron;
+        }
+      }
+    }
+    
+    if (bestNeuron == -1 || !(distanceMethod.calculateDistance(sample, null,
+        storage, bestNeuron) < bound * (1.0d - TOLERANCE)))
+      return false;
+    
+    if (bestNeuron != last) {
+      for (x = fromX; x <= toX; x++) {
+        for (y = fromY; y <= toY; y++) {
+          neuron = storage.getNeuron(x, y);
+          
+          if (!isInside(storage, bestNeuron, neuron))
+            bound = Math.min(bound, distanceMethod.calculateDistance(sample,
+              null, storage, neuron));
+        }
+      }
+    }
+    
+    neurons[idx] = bestNeuron;
+    bounds[idx]  = bound + drift;
+    
+    bestMatching.setBestMatching(bestNeuron, bestDistance, matchNumber);
+    
+    return true;
+  }
+  
+  /**
+   * Scan every neuron and calculate the window bound of the best one. The
+   * window has at most (2*radius+1)^2 neurons, so the closest neuron 
+   * outside it is one of the closest (2*radius+1)^2+1 neurons, which are 
+   * kept on a max heap ordered by the rank distance during the same scan.
+   * 
+   * @param storage        - Weight storage.
+   * @param distanceMethod - Distance calcule method.
+   * @param sample         - Sample values to be match.
+   * @param idx            - Sample index.
+   * @param randomize      - Random instance used to choose between ties.
+   * @param bestMatching   - Search result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void searchAll(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod, double[] sample, int idx, 
+    Random randomize, BestMatchingVO bestMatching) throws SOMException {
+    int i, neuron, bestNeuron, matchNumber, outsideNeuron, size;
+    int[] closest;
+    double bestDistance, outsideDistance, currDistance, cutoff;
+    double[] distances;
+    
+    closest   = new int[(2 * radius + 1) * (2 * radius + 1) + 1];
+    distances = new double[closest.length];
+    size      = 0;
+    
+    bestDistance = Double.MAX_VALUE;
+    bestNeuron   = -1;
+    matchNumber  = 0;
+    
+    for (neuron = 0; neuron < storage.getNeuronNumber(); neuron++) {
+      cutoff       = size < closest.length ? Double.MAX_VALUE : distances[0];
+      currDistance = distanceMethod.calculateRankDistance(sample, null, 
+        storage, neuron, cutoff);
+      
+      if (currDistance < bestDistance) {
+        bestDistance = currDistance;
+        bestNeuron   = neuron;
+        matchNumber  = 1;
+      }
+      else if (currDistance == bestDistance) {
+        matchNumber++;
+        if (randomize.nextInt(matchNumber) == 0)
+          bestNeuron = neuron;
+      }
+      
+      if (size < closest.length) {
+        closest[size]   = neuron;
+        distances[size] = currDistance;
+        siftUp(closest, distances, size);
+        size++;
+      }
+      else if (currDistance < distances[0]) {
+        closest[0]   = neuron;
+        distances[0] = currDistance;
+        siftDown(closest, distances, size);
+      }
+    }
+    
+    bestMatching.setBestMatching(bestNeuron, bestDistance, matchNumber);
+    
+    if (bestNeuron == -1) {
+      neurons[idx] = -1;
+      return;
+    }
+    
+    outsideDistance = Double.MAX_VALUE;
+    outsideNeuron   = -1;
+    
+    for (i = 0; i < size; i++) {
+      if (distances[i] < outsideDistance && 
+          !isInside(storage, bestNeuron, closest[i])) {
+        outsideDistance = distances[i];
+        outsideNeuron   = closest[i];
+      }
+    }
+    
+    neurons[idx] = bestNeuron;
+    
+    if (outsideNeuron == -1)
+      bounds[idx] = Double.MAX_VALUE;
+    else
+      bounds[idx] = distanceMethod.calculateDistance(sample, null, storage,
+        outsideNeuron) + drift;
+  }
+  
+  /**
+   * Move a new heap entry up to its position.
+   * 
+   * @param neurons   - Neuron of each entry.
+   * @param distances - Rank distance of each entry.
+   * @param idx       - Entry index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void siftUp(int[] neurons, double[] distances, int idx) {
+    int parent;
+    
+    while (idx > 0) {
+      parent = (idx - 1) >>> 1;
+      if (distances[parent] >= distances[idx])
+        break;
+      
+      swap(neurons, distances, parent, idx);
+      idx = parent;
+    }
+  }
+  
+  /**
+   * Move a replaced heap root down to its position.
+   * 
+   * @param neurons   - Neuron of each entry.
+   * @param distances - Rank distance of each entry.
+   * @param size      - Number of entries.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void siftDown(int[] neurons, double[] distances, int size) {
+    int idx, child;
+    
+    idx = 0;
+    
+    while ((child = 2 * idx + 1) < size) {
+      if (child + 1 < size && distances[child + 1] > distances[child])
+        child++;
+      
+      if (distances[idx] >= distances[child])
+        break;
+      
+      swap(neurons, distances, idx, child);
+      idx = child;
+    }
+  }
+  
+  /**
+   * Swap two heap entries.
+   * 
+   * @param neurons   - Neuron of each entry.
+   * @param distances - Rank distance of each entry.
+   * @param i         - First entry index.
+   * @param j         - Second entry index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void swap(int[] neurons, double[] distances, int i, 
+    int j) {
+    int neuron;
+    double distance;
+    
+    neuron     = neurons[i];
+    neurons[i] = neurons[j];
+    neurons[j] = neuron;
+    
+    distance     = distances[i];
+    distances[i] = distances[j];
+    distances[j] = distance;
+  }
+}
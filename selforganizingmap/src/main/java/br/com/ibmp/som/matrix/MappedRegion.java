@@ -0,0 +1,192 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read only memory mapped region of a file. Regions larger than one 
+ * mapping are split in chunks. Only absolute reads are used, so one 
+ * region can be read by many threads.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+final class MappedRegion {
+
+  /** 
+   * Size of each chunk. It is multiple of 8, so aligned values never 
+   * cross two chunks.
+   */
+  private static final int CHUNK_SIZE = 1 << 30;
+  
+  /** Mapped chunks. */
+  private MappedByteBuffer[] chunks;
+  
+  /** Region size. */
+  private long size;
+  
+  /**
+   * Constructor.
+   * 
+   * @param channel  - Channel of the file.
+   * @param position - Region position in the file.
+   * @param size     - Region size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  MappedRegion(FileChannel channel, long position, long size) 
+    throws IOException {
+    int i;
+    
+    this.size = size;
+    
+    chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+    
+    for (i = 0; i < chunks.length; i++)
+      chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, 
+        position + (long) i * CHUNK_SIZE, 
+        Math.min(CHUNK_SIZE, size - (long) i * CHUNK_SIZE));
+  }
+  
+  /**
+   * Assessor to retrieve the region size.
+   * 
+   * @return Region size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  long getSize() {
+    return size;
+  }
+  
+  /**
+   * Assessor to retrieve one byte.
+   * 
+   * @param position - Position in the region.
+   * 
+   * @return The byte.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  byte getByte(long position) {
+    return chunks[(int) (position / CHUNK_SIZE)].get(
+      (int) (position % CHUNK_SIZE));
+  }
+  
+  /**
+   * Assessor to retrieve some bytes.
+   * 
+   * @param position - Position in the region.
+   * @param bytes    - Destination array.
+   * @param length   - Number of bytes.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  void getBytes(long position, byte[] bytes, int length) {
+    int i;
+    
+    for (i = 0; i < length; i++)
+      bytes[i] = getByte(position + i);
+  }
+  
+  /**
+   * Assessor to retrieve one long. The position must be multiple of 8.
+   * 
+   * @param position - Position in the region.
+   * 
+   * @return The long.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  long getLong(long position) {
+    return chunks[(int) (position / CHUNK_SIZE)].getLong(
+      (int) (position % CHUNK_SIZE));
+  }
+  
+  /**
+   * Assessor to retrieve one double. The position must be multiple of 8.
+   * 
+   * @param position - Position in the region.
+   * 
+   * @return The double.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  double getDouble(long position) {
+    return chunks[(int) (position / CHUNK_SIZE)].getDouble(
+      (int) (position % CHUNK_SIZE));
+  }
+  
+  /**
+   * Assessor to retrieve some doubles. The position must be multiple of 8.
+   * 
+   * @param position - Position in the region.
+   * @param values   - Destination array.
+   * @param from     - First index of the destination array.
+   * @param length   - Number of doubles.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  void getDoubles(long position, double[] values, int from, int length) {
+    int chunk, offset, count;
+    ByteBuffer buffer;
+    
+    while (length > 0) {
+      chunk  = (int) (position / CHUNK_SIZE);
+      offset = (int) (position % CHUNK_SIZE);
+      count  = Math.min(length, (chunks[chunk].capacity() - offset) >>> 3);
+      
+      buffer = chunks[chunk].duplicate();
+      buffer.position(offset);
+      buffer.asDoubleBuffer().get(values, from, count);
+      
+      position += 8L * count;
+      from     += count;
+      length   -= count;
+    }
+  }
+  
+  /**
+   * Assessor to retrieve one float. The position must be multiple of 4.
+   * 
+   * @param position - Position in the region.
+   * 
+   * @return The float.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  float getFloat(long position) {
+    return chunks[(int) (position / CHUNK_SIZE)].getFloat(
+      (int) (position % CHUNK_SIZE));
+  }
+}
@@ -0,0 +1,287 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.File;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import br.com.ibmp.som.exception.SOMException;
+
+/**
+ * Periodic checkpoint of a learning process. At the chosen cadence the
+ * weights are copied to a buffer and written to a model file by another
+ * thread, so the learning does not wait for the disk. There are two 
+ * buffers: one is being written while the other keeps the last copy, 
+ * and a newer copy replaces a copy that is still waiting. Each file is
+ * written aside and renamed over the last one, so the file always keeps
+ * a complete model that SelfOrganizingMap.readModel can resume.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMCheckpoint {
+
+  /** File that keeps the last checkpoint. */
+  private String fileName;
+  
+  /** Number of iterations between two checkpoints, or 0. */
+  private int steps;
+  
+  /** Nanoseconds between two checkpoints, or 0. */
+  private long interval;
+  
+  /** Iteration of the last checkpoint. */
+  private int lastIteration;
+  
+  /** Time of the last checkpoint. */
+  private long lastTime;
+  
+  /** Weight buffers. */
+  private WeightStorage[] buffers;
+  
+  /** Model waiting to be written, or null if none. */
+  private SOMModel pending;
+  
+  /** Buffer that is being written, or null if none. */
+  private WeightStorage writing;
+  
+  /** Error of the last write, or null if none. */
+  private SOMException error;
+  
+  /** Thread that writes the checkpoints. */
+  private ThreadPoolExecutor writer;
+  
+  /**
+   * Constructor. A checkpoint is written when any of the cadences is 
+   * reached.
+   * 
+   * @param fileName - File that keeps the last checkpoint.
+   * @param steps    - Number of iterations between two checkpoints, or 0
+   *                   to ignore the iterations.
+   * @param millis   - Milliseconds between two checkpoints, or 0 to 
+   *                   ignore the time.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMCheckpoint(String fileName, int steps, long millis) 
+    throws SOMException {
+    if (fileName == null)
+      throw new SOMException("File is not valid");
+    
+    if (steps < 0 || millis < 0 || (steps == 0 && millis == 0))
+      throw new SOMException("Invalid cadence: " + steps + "," + millis);
+    
+    this.fileName = fileName;
+    this.steps    = steps;
+    
+    interval      = TimeUnit.MILLISECONDS.toNanos(millis);
+    lastIteration = 0;
+    lastTime      = System.nanoTime();
+    
+    buffers = new WeightStorage[2];
+    pending = null;
+    writing = null;
+    error   = null;
+    
+    writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, 
+      new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread;
+          
+          thread = new Thread(runnable, "SOMCheckpoint");
+          thread.setDaemon(true);
+          
+          return thread;
+        }
+      });
+  }
+  
+  /**
+   * Assessor to retrieve the file that keeps the last checkpoint.
+   * 
+   * @return File that keeps the last checkpoint.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public String getFileName() {
+    return fileName;
+  }
+  
+  /**
+   * Checkpoint the learning process if the cadence is reached. It only
+   * copies the weights, and must not run with a learning step.
+   * 
+   * @param weightMatrix    - Weight matrix that is learning.
+   * @param t               - Time variable.
+   * @param iteration       - Iteration counter.
+   * @param iterationNumber - Number of times to be iterate the algorithm.
+   * @param force           - True to checkpoint without the cadence.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void step(WeightMatrix weightMatrix, double t, int iteration, 
+    int iterationNumber, boolean force) throws SOMException {
+    long now;
+    WeightStorage storage, buffer;
+    
+    now = System.nanoTime();
+    
+    if (!force && (steps == 0 || iteration - lastIteration < steps) &&
+        (interval == 0 || now - lastTime < interval))
+      return;
+    
+    lastIteration = iteration;
+    lastTime      = now;
+    
+    storage = weightMatrix.getStorage();
+    
+    synchronized (this) {
+      if (pending != null)
+        buffer = pending.getStorage();
+      else
+        buffer = buffers[0] == writing ? buffers[1] : buffers[0];
+      
+      if (buffer == null || 
+          buffer.getNeuronNumber() != storage.getNeuronNumber() ||
+          buffer.getDimension() != storage.getDimension()) {
+        buffer = new WeightStorage(storage);
+        
+        if (buffers[0] == writing)
+          buffers[1] = buffer;
+        else
+          buffers[0] = buffer;
+      }
+      else
+        buffer.setWeights(storage);
+      
+      pending = new SOMModel(buffer, weightMatrix.getDistanceMethod(), 
+        weightMatrix.getNeighborsMethod(), t, iteration, iterationNumber);
+      
+      if (writing == null) {
+        writing = buffer;
+        
+        writer.execute(new Runnable() {
+          public void run() {
+            writePending();
+          }
+        });
+      }
+    }
+  }
+  
+  /**
+   * Write the waiting models until none is left.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private void writePending() {
+    File file, temporary;
+    SOMModel model;
+    
+    file      = new File(fileName);
+    temporary = new File(fileName + ".tmp");
+    
+    while (true) {
+      synchronized (this) {
+        model   = pending;
+        pending = null;
+        
+        if (model == null) {
+          writing = null;
+          notifyAll();
+          
+          return;
+        }
+        
+        writing = model.getStorage();
+      }
+      
+      try {
+        model.write(temporary.getPath());
+        
+        // Some systems do not rename over an existing file.
+        if (!temporary.renameTo(file) && 
+            (!file.delete() || !temporary.renameTo(file)))
+          throw new SOMException("Problems with checkpoint: " + fileName);
+      }
+      catch (SOMException e) {
+        synchronized (this) {
+          error = e;
+        }
+      }
+    }
+  }
+  
+  /**
+   * Wait the waiting checkpoints to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public synchronized void await() throws SOMException {
+    SOMException e;
+    
+    try {
+      while (writing != null)
+        wait();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new SOMException("Interrupted while waiting the checkpoint", ex);
+    }
+    
+    if (error != null) {
+      e     = error;
+      error = null;
+      
+      throw e;
+    }
+  }
+  
+  /**
+   * Wait the waiting checkpoints to be written and stop the thread that
+   * writes them.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void close() throws SOMException {
+    try {
+      await();
+    }
+    finally {
+      writer.shutdown();
+    }
+  }
+}
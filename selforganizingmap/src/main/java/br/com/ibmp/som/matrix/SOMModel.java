@@ -0,0 +1,433 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.neighbors.AbstractNeighborsMethod;
+import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
+
+/**
+ * Trained model of a self organizing map. It keeps the weights, the 
+ * distance and neighbors methods and the learning time, so a model can
+ * be written to a file and read again to mount groups or to continue the
+ * learning process.
+ * 
+ * The file has a fixed header, the class names of the distance and 
+ * neighbors methods, the weights line after line in float64 and the 
+ * missing values bitmap. Each section starts on a multiple of 8. The 
+ * methods are created again by their class names, so they must have a
+ * constructor without parameters, or the constructor with radius, 
+ * lattice and toroidal flag of the AbstractNeighborsMethod.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMModel {
+
+  /** File identifier. */
+  static final int MAGIC = 0x534F4D4D;
+  
+  /** File format version. */
+  static final int VERSION = 1;
+  
+  /** Flag set when the weights have missing values. */
+  static final int FLAG_MISSING = 1;
+  
+  /** Flag set when the map wraps around its borders. */
+  static final int FLAG_TOROIDAL = 2;
+  
+  /** Model weights. */
+  private WeightStorage storage;
+  
+  /** Distance calcule method. */
+  private DistanceMethodInterface distanceMethod;
+  
+  /** Scale neighbors and learning method. */
+  private NeighborsMethodInterface neighborsMethod;
+  
+  /** Time variable. */
+  private double t;
+  
+  /** Iteration counter. */
+  private int iteration;
+  
+  /** Number of times to be iterate the algorithm. */
+  private int iterationNumber;
+  
+  /**
+   * Constructor.
+   * 
+   * @param storage         - Model weights.
+   * @param distanceMethod  - Distance calcule method.
+   * @param neighborsMethod - Scale neighbors and learning method.
+   * @param t               - Time variable.
+   * @param iteration       - Iteration counter.
+   * @param iterationNumber - Number of times to be iterate the algorithm.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SOMModel(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod, 
+    NeighborsMethodInterface neighborsMethod, double t, int iteration, 
+    int iterationNumber) throws SOMException {
+    if (storage == null)
+      throw new SOMException("Not valid weight storage");
+    
+    if (distanceMethod == null)
+      throw new SOMException("Not valid distance method");
+    
+    if (neighborsMethod == null)
+      throw new SOMException("Not valid neighbors method");
+    
+    if (iteration < 0 || iterationNumber < 1)
+      throw new SOMException("Invalid iteration: " + iteration + "," + 
+        iterationNumber);
+    
+    this.storage         = storage;
+    this.distanceMethod  = distanceMethod;
+    this.neighborsMethod = neighborsMethod;
+    this.t               = t;
+    this.iteration       = iteration;
+    this.iterationNumber = iterationNumber;
+  }
+  
+  /**
+   * Assessor to retrieve the model weights.
+   * 
+   * @return Model weights.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public WeightStorage getStorage() {
+    return storage;
+  }
+  
+  /**
+   * Assessor to retrieve the distance method.
+   * 
+   * @return Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public DistanceMethodInterface getDistanceMethod() {
+    return distanceMethod;
+  }
+  
+  /**
+   * Assessor to retrieve the neighbors method.
+   * 
+   * @return Scale neighbors and learning method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public NeighborsMethodInterface getNeighborsMethod() {
+    return neighborsMethod;
+  }
+  
+  /**
+   * Assessor to retrieve the time variable.
+   * 
+   * @return Time variable.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double getT() {
+    return t;
+  }
+  
+  /**
+   * Assessor to retrieve the iteration counter.
+   * 
+   * @return Iteration counter.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getIteration() {
+    return iteration;
+  }
+  
+  /**
+   * Assessor to retrieve the iteration number.
+   * 
+   * @return Number of times to be iterate the algorithm.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getIterationNumber() {
+    return iterationNumber;
+  }
+  
+  /**
+   * Write this model to a file. The weights are streamed, so no copy of
+   * them is made.
+   * 
+   * @param fileName - File to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void write(String fileName) throws SOMException {
+    int i, flags, radius, lattice;
+    double[] values;
+    long[] missing;
+    DataOutputStream output;
+    AbstractNeighborsMethod method;
+    
+    if (fileName == null)
+      throw new SOMException("File is not valid");
+    
+    flags   = storage.hasMissing() ? FLAG_MISSING : 0;
+    radius  = -1;
+    lattice = -1;
+    
+    if (neighborsMethod instanceof AbstractNeighborsMethod) {
+      method  = (AbstractNeighborsMethod) neighborsMethod;
+      radius  = method.getRadius();
+      lattice = method.getLattice().ordinal();
+      
+      if (method.isToroidal())
+        flags |= FLAG_TOROIDAL;
+    }
+    
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(fileName), 1 << 16));
+    }
+    catch (IOException e) {
+      throw new SOMException("Problems with writer", e);
+    }
+    
+    try {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(storage.getWidth());
+      output.writeInt(storage.getHeight());
+      output.writeInt(storage.getDimension());
+      output.writeInt(flags);
+      output.writeInt(iterationNumber);
+      output.writeInt(iteration);
+      output.writeDouble(t);
+      output.writeInt(radius);
+      output.writeInt(lattice);
+      
+      output.writeUTF(distanceMethod.getClass().getName());
+      output.writeUTF(neighborsMethod.getClass().getName());
+      
+      while (output.size() % 8 != 0)
+        output.writeByte(0);
+      
+      values = storage.getValues();
+      
+      for (i = 0; i < values.length; i++)
+        output.writeDouble(values[i]);
+      
+      if ((flags & FLAG_MISSING) != 0) {
+        missing = storage.getMissing();
+        
+        for (i = 0; i < missing.length; i++)
+          output.writeLong(missing[i]);
+      }
+    }
+    catch (IOException e) {
+      throw new SOMException("Problems with writer", e);
+    }
+    finally {
+      try {
+        output.close();
+      }
+      catch (IOException e) {
+        throw new SOMException("Problems with writer", e);
+      }
+    }
+  }
+  
+  /**
+   * Read a model written by the write method. The weights are read from
+   * a memory mapping of the file.
+   * 
+   * @param fileName - File to be read.
+   * 
+   * @return The model.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public static SOMModel read(String fileName) throws SOMException {
+    int i, j, flags, radius, lattice, iteration, iterationNumber;
+    long position, size, bits;
+    double t;
+    String distanceName, neighborsName;
+    WeightStorage storage;
+    MappedRegion region;
+    RandomAccessFile file;
+    
+    if (fileName == null)
+      throw new SOMException("File is not valid");
+    
+    if (!new File(fileName).exists())
+      throw new SOMException("File does not exists");
+    
+    try {
+      file = new RandomAccessFile(fileName, "r");
+    }
+    catch (IOException e) {
+      throw new SOMException("File not found", e);
+    }
+    
+    try {
+      if (file.readInt() != MAGIC || file.readInt() != VERSION)
+        throw new SOMException("Invalid model file");
+      
+      storage = new WeightStorage(file.readInt(), file.readInt(), 
+        file.readInt());
+      
+      flags           = file.readInt();
+      iterationNumber = file.readInt();
+      iteration       = file.readInt();
+      t               = file.readDouble();
+      radius          = file.readInt();
+      lattice         = file.readInt();
+      
+      distanceName  = file.readUTF();
+      neighborsName = file.readUTF();
+      
+      position = SampleVectorMapped.align(file.getFilePointer());
+      size     = 8L * storage.getValues().length;
+      
+      if ((flags & FLAG_MISSING) != 0)
+        size += 8L * storage.getMissing().length;
+      
+      if (file.length() < position + size)
+        throw new SOMException("Invalid model file");
+      
+      region = new MappedRegion(file.getChannel(), position, 
+        8L * storage.getValues().length);
+      
+      region.getDoubles(0, storage.getValues(), 0, 
+        storage.getValues().length);
+      
+      position += region.getSize();
+      
+      if ((flags & FLAG_MISSING) != 0) {
+        region = new MappedRegion(file.getChannel(), position, 
+          8L * storage.getMissing().length);
+        
+        for (i = 0; i < storage.getMissing().length; i++) {
+          bits = region.getLong(8L * i);
+          
+          for (j = 0; j < 64; j++) {
+            if ((bits & (1L << j)) != 0)
+              storage.setMissing((i << 6) + j);
+          }
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new SOMException("Problems with reader", e);
+    }
+    finally {
+      try {
+        file.close();
+      }
+      catch (IOException e) {
+        // Nothing to do, the weights were already copied.
+      }
+    }
+    
+    return new SOMModel(storage, 
+      createMethod(DistanceMethodInterface.class, distanceName, -1, -1, 
+        flags), createMethod(NeighborsMethodInterface.class, neighborsName,
+        radius, lattice, flags), t, iteration, iterationNumber);
+  }
+  
+  /**
+   * Create a distance or neighbors method by its class name. The class
+   * must implement the method interface, so the model file does not 
+   * create objects of any other class.
+   * 
+   * @param type      - Method interface.
+   * @param className - Method class name.
+   * @param radius    - Neighbors radius, or -1 to use the constructor 
+   *                    without parameters.
+   * @param lattice   - Neighbors lattice ordinal.
+   * @param flags     - Model flags.
+   * 
+   * @return The method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private static <T> T createMethod(Class<T> type, String className, 
+    int radius, int lattice, int flags) throws SOMException {
+    Class<?> methodClass;
+    AbstractNeighborsMethod.Lattice[] lattices;
+    
+    try {
+      methodClass = Class.forName(className, false, 
+        SOMModel.class.getClassLoader());
+      
+      if (!type.isAssignableFrom(methodClass))
+        throw new SOMException("Invalid method: " + className);
+      
+      if (radius < 0)
+        return type.cast(methodClass.getConstructor().newInstance());
+      
+      lattices = AbstractNeighborsMethod.Lattice.values();
+      
+      if (lattice < 0 || lattice >= lattices.length)
+        throw new SOMException("Invalid model file");
+      
+      return type.cast(methodClass.getConstructor(int.class, 
+        AbstractNeighborsMethod.Lattice.class, boolean.class).newInstance(
+        radius, lattices[lattice], (flags & FLAG_TOROIDAL) != 0));
+    }
+    catch (SOMException e) {
+      throw e;
+    }
+    catch (ClassNotFoundException e) {
+      throw new SOMException("Method not found: " + className, e);
+    }
+    catch (Exception e) {
+      throw new SOMException("Problems with method: " + className, e);
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Converter from any sample vector to the binary sample file read by the
+ * SampleVectorMapped.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public final class SampleVectorConverter {
+
+  /**
+   * Constructor. This class only has static methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private SampleVectorConverter() {
+  }
+  
+  /**
+   * Write a sample vector as a binary sample file.
+   * 
+   * @param sampleVector    - Sample vector to be written.
+   * @param fileName        - Binary file name.
+   * @param singlePrecision - True to write the values as float32, false to
+   *                          write them as float64.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public static void convert(SampleVectorInterface sampleVector, 
+    String fileName, boolean singlePrecision) throws SOMException {
+    int row, i, rowSize, colSize;
+    long position, stringsSize;
+    boolean hasMissing;
+    SOMElementVO element;
+    ByteArrayOutputStream headerBytes;
+    DataOutputStream header, output;
+    
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+    
+    if (fileName == null)
+      throw new SOMException("File is not valid");
+    
+    rowSize     = sampleVector.getRowSize();
+    colSize     = sampleVector.getColSize();
+    stringsSize = 0;
+    hasMissing  = false;
+    
+    // First pass to find the strings size and the missing values.
+    for (row = 0; row < rowSize; row++) {
+      element = sampleVector.getElement(row);
+      
+      if (element.getNumberOfValues() != colSize)
+        throw new SOMException("Problems with elements size: " + 
+          element.getNumberOfValues() + "," + colSize);
+      
+      stringsSize += encode(element.getName()).length + 
+        encode(element.getDescription()).length;
+      
+      for (i = 0; i < colSize && !hasMissing; i++)
+        hasMissing = element.isMissing(i);
+    }
+    
+    try {
+      headerBytes = new ByteArrayOutputStream();
+      header      = new DataOutputStream(headerBytes);
+      
+      header.writeInt(sampleVector.getHeader().size());
+      
+      for (String column : sampleVector.getHeader())
+        header.writeUTF(column);
+      
+      header.flush();
+      
+      output = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(fileName), 1 << 16));
+      
+      try {
+        output.writeInt(SampleVectorMapped.MAGIC);
+        output.writeInt(SampleVectorMapped.VERSION);
+        output.writeInt(singlePrecision ? 4 : 8);
+        output.writeInt(rowSize);
+        output.writeInt(colSize);
+        output.writeInt(hasMissing ? SampleVectorMapped.FLAG_MISSING : 0);
+        output.writeInt(headerBytes.size());
+        headerBytes.writeTo(output);
+        
+        position = pad(output, SampleVectorMapped.FIXED_HEADER_SIZE + 
+          headerBytes.size());
+        
+        writeStrings(output, sampleVector, stringsSize);
+        position = pad(output, position + (2L * rowSize + 1) * 8 + 
+          stringsSize);
+        
+        writeMatrix(output, sampleVector, singlePrecision);
+        pad(output, position + 
+          (long) rowSize * colSize * (singlePrecision ? 4 : 8));
+        
+        if (hasMissing)
+          writeMissing(output, sampleVector);
+      }
+      finally {
+        output.close();
+      }
+    }
+    catch (IOException e) {
+      throw new SOMException("Problems with writer", e);
+    }
+  }
+  
+  /**
+   * Assessor to encode a name or description.
+   * 
+   * @param value - Value to be encoded.
+   * 
+   * @return Encoded value, empty if the value is null.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static byte[] encode(String value) {
+    if (value == null)
+      return new byte[0];
+    
+    return value.getBytes(SampleVectorMapped.CHARSET);
+  }
+  
+  /**
+   * Write zeros until the next section position.
+   * 
+   * @param output   - Stream to be written.
+   * @param position - Current position.
+   * 
+   * @return Next section position.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private static long pad(DataOutputStream output, long position) 
+    throws IOException {
+    long next;
+    
+    next = SampleVectorMapped.align(position);
+    
+    for (; position < next; position++)
+      output.writeByte(0);
+    
+    return next;
+  }
+  
+  /**
+   * Write the strings position table and the names and descriptions.
+   * 
+   * @param output       - Stream to be written.
+   * @param sampleVector - Sample vector to be written.
+   * @param stringsSize  - Size of all names and descriptions.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private static void writeStrings(DataOutputStream output, 
+    SampleVectorInterface sampleVector, long stringsSize) throws IOException {
+    int row;
+    long position;
+    SOMElementVO element;
+    
+    position = 0;
+    
+    for (row = 0; row < sampleVector.getRowSize(); row++) {
+      element = sampleVector.getElement(row);
+      
+      output.writeLong(position);
+      position += encode(element.getName()).length;
+      
+      output.writeLong(position);
+      position += encode(element.getDescription()).length;
+    }
+    
+    output.writeLong(stringsSize);
+    
+    for (row = 0; row < sampleVector.getRowSize(); row++) {
+      element = sampleVector.getElement(row);
+      
+      output.write(encode(element.getName()));
+      output.write(encode(element.getDescription()));
+    }
+  }
+  
+  /**
+   * Write the values matrix. Missing values are written as zero.
+   * 
+   * @param output          - Stream to be written.
+   * @param sampleVector    - Sample vector to be written.
+   * @param singlePrecision - True to write float32, false to write float64.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private static void writeMatrix(DataOutputStream output, 
+    SampleVectorInterface sampleVector, boolean singlePrecision) 
+    throws IOException {
+    int row, i;
+    double value;
+    SOMElementVO element;
+    
+    for (row = 0; row < sampleVector.getRowSize(); row++) {
+      element = sampleVector.getElement(row);
+      
+      for (i = 0; i < sampleVector.getColSize(); i++) {
+        value = element.isMissing(i) ? 0.0d : element.getDoubleValue(i);
+        
+        if (singlePrecision)
+          output.writeFloat((float) value);
+        else
+          output.writeDouble(value);
+      }
+    }
+  }
+  
+  /**
+   * Write the missing values bitmap.
+   * 
+   * @param output       - Stream to be written.
+   * @param sampleVector - Sample vector to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private static void writeMissing(DataOutputStream output, 
+    SampleVectorInterface sampleVector) throws IOException {
+    int row, i, bit;
+    long word;
+    SOMElementVO element;
+    
+    word = 0;
+    bit  = 0;
+    
+    for (row = 0; row < sampleVector.getRowSize(); row++) {
+      element = sampleVector.getElement(row);
+      
+      for (i = 0; i < sampleVector.getColSize(); i++) {
+        if (element.isMissing(i))
+          word |= 1L << bit;
+        
+        if (++bit == 64) {
+          output.writeLong(word);
+          word = 0;
+          bit  = 0;
+        }
+      }
+    }
+    
+    if (bit != 0)
+      output.writeLong(word);
+  }
+  
+  /**
+   * Convert a tab separated sample file to a binary sample file.
+   * 
+   * Usage: SampleVectorConverter input output [float32]
+   * 
+   * @param args - Command line arguments.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.err.println("Usage: SampleVectorConverter input output [float32]");
+      System.exit(1);
+    }
+    
+    try {
+      convert(new SampleVectorFile(args[0]), args[1], 
+        args.length > 2 && args[2].equals("float32"));
+    }
+    catch (SOMException e) {
+      System.err.println("[ERROR] Problems with sample conversion");
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
@@ -19,22 +19,27 @@ package br.com.ibmp.som.matrix;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.InputStreamReader;
 import java.io.FileNotFoundException;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
 import java.util.List;
 import java.util.Random;
+import java.util.Arrays;
 import java.util.ArrayList;
-import java.util.StringTokenizer;
 
 import br.com.ibmp.som.exception.SOMException;
 import br.com.ibmp.som.matrix.vo.SOMElementVO;
 
 /**
- * Class that contains the sample vector structure.
+ * Class that contains the sample vector structure. 
+ * 
+ * All sample values are kept in one primitive array, line after line, 
+ * and each element is a view over its line. Missing values are kept in
+ * a bitmap with one bit per value.
  * 
  * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
  * @version 1.0
@@ -42,6 +47,15 @@ import br.com.ibmp.som.matrix.vo.SOMElementVO;
  */
 public class SampleVectorFile implements SampleVectorInterface {
 
+  /** Size of the file read buffer. */
+  private static final int BUFFER_SIZE = 1 << 16;
+  
+  /** Powers of ten that are exact on a double. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  
   /** Matrix Header. */
   private List<String> header;
   
@@ -54,6 +68,21 @@ public class SampleVectorFile implements SampleVectorInterface {
   /** Sample name. */
   private String name;
   
+  /** Charset of the names, descriptions and header. */
+  private Charset charset;
+  
+  /** All sample values, line after line. */
+  private double[] values;
+  
+  /** Missing values bitmap, or null if no value is missing. */
+  private long[] missing;
+  
+  /** Names of the parsed lines. */
+  private List<String> names;
+  
+  /** Descriptions of the parsed lines. */
+  private List<String> descriptions;
+  
   /**
    * Constructor.
    * 
@@ -72,12 +101,15 @@ public class SampleVectorFile implements SampleVectorInterface {
     vector    = new ArrayList<SOMElementVO>(100);
     header    = new ArrayList<String>(100);
     randomize = new Random();
+    charset   = Charset.defaultCharset();
     
     openFile(file);
   }
 
   /**
-   * Assessor for opening a file that contains the sample vector.
+   * Assessor for opening a file that contains the sample vector. The file
+   * is scanned as bytes, so the charset must encode the tab and the line
+   * break as single bytes, like UTF-8 and ISO-8859-1 do.
    * 
    * @param fileName - File to be opened.
    * 
@@ -88,11 +120,12 @@ public class SampleVectorFile implements SampleVectorInterface {
    */
   protected final void openFile(String fileName) 
     throws SOMException {
-    File file;	    
-    String line;
-    
-    InputStream is;
-    BufferedReader reader;
+    int i, n, start, end, lineNumber;
+    boolean eof;
+    byte[] buffer;
+    File file;
+    FileInputStream is;
+    FileChannel channel;
     
     file = new File(fileName);
     
@@ -106,103 +139,387 @@ public class SampleVectorFile implements SampleVectorInterface {
       throw new SOMException("File not found", e);    
     }
     
-    reader = new BufferedReader(new InputStreamReader(is));
+    channel = is.getChannel();
+    buffer  = new byte[BUFFER_SIZE];
+    
+    names        = new ArrayList<String>(100);
+    descriptions = new ArrayList<String>(100);
+    values       = new double[0];
+    missing      = null;
+    
+    start      = 0;
+    end        = 0;
+    i          = 0;
+    lineNumber = 0;
+    eof        = false;
     
     try {
-      parseHeader(reader.readLine());
-
-      while ((line = reader.readLine()) != null)
-        vector.add(parseLine(line));
+      while (true) {
+        while (i < end && buffer[i] != '\n')
+          i++;
+        
+        if (i < end || (eof && start < end)) {
+          parseLine(buffer, start, i, lineNumber++);
+          
+          start = ++i;
+        }
+        else if (eof)
+          break;
+        else {
+          // Move the incomplete line to the beginning of the buffer.
+          if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            
+            end  -= start;
+            i    -= start;
+            start = 0;
+          }
+          
+          if (end == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          
+          n = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+          
+          if (n < 0)
+            eof = true;
+          else
+            end += n;
+        }
+      }
+      
+      if (lineNumber == 0)
+        throw new SOMException("Problems with the Sample file");
     } 
     catch (IOException e) {
       throw new SOMException("Problems with reader", e);
     }
+    finally {
+      try {
+        is.close();
+      }
+      catch (IOException e) {
+        // Nothing to do, the file was already read.
+      }
+    }
+    
+    createElements();
   }
-
+  
   /**
-   * Assessor to normalize empty columns.
+   * Parse one file line. The first line is the header.
    * 
-   * @param line - Line to be normalized.
+   * @param buffer     - Buffer that contains the line.
+   * @param from       - First byte of the line.
+   * @param to         - Byte after the last byte of the line.
+   * @param lineNumber - Line number, starting on zero.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
+   * @throws SOMException
+   * 
    */
-  private final String normalizeLine(String line) {	  
-    while (line.contains("\t\t"))
-      line = line.replaceAll("\t\t", "\t \t");
-
-    return line;
+  private void parseLine(byte[] buffer, int from, int to, int lineNumber) 
+    throws SOMException {
+    if (to > from && buffer[to - 1] == '\r')
+      to--;
+    
+    if (lineNumber == 0)
+      parseHeader(buffer, from, to);
+    else
+      parseElement(buffer, from, to, lineNumber);
+  }
+  
+  /**
+   * Assessor to find the end of a column.
+   * 
+   * @param buffer - Buffer that contains the line.
+   * @param from   - First byte of the column.
+   * @param to     - Byte after the last byte of the line.
+   * 
+   * @return Byte after the last byte of the column.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static int columnEnd(byte[] buffer, int from, int to) {
+    while (from < to && buffer[from] != '\t')
+      from++;
+    
+    return from;
+  }
+  
+  /**
+   * Assessor to decode a column. Empty columns are decoded as one space.
+   * 
+   * @param buffer - Buffer that contains the column.
+   * @param from   - First byte of the column.
+   * @param to     - Byte after the last byte of the column.
+   * 
+   * @return Decoded column.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private String decode(byte[] buffer, int from, int to) {
+    if (from == to)
+      return " ";
+    
+    return new String(buffer, from, to - from, charset);
   }
   
   /** Parse the header line.
    * 
-   * @param line - Sample unparsed line.
+   * @param buffer - Buffer that contains the line.
+   * @param from   - First byte of the line.
+   * @param to     - Byte after the last byte of the line.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    *
    * @throws SOMException
    * 
    */
-  protected final void parseHeader(String line) throws SOMException {
-    StringTokenizer tokenizer;
-	    
-    line = normalizeLine(line);
+  private void parseHeader(byte[] buffer, int from, int to) 
+    throws SOMException {
+    int end;
     
-    tokenizer = new StringTokenizer(line, "\t");
-
-    while (tokenizer.hasMoreTokens())
-      header.add(tokenizer.nextToken());	    
+    // Empty columns in the end of the line are ignored.
+    while (to > from && buffer[to - 1] == '\t')
+      to--;
+    
+    while (from < to) {
+      end = columnEnd(buffer, from, to);
+      header.add(decode(buffer, from, end));
+      from = end + 1;
+    }
+    
+    if (header.size() < 2)
+      throw new SOMException("Problems with the Sample file header");
   }
   
   /**
-   * Parse the vector sample.
+   * Parse one sample line straight to the values array.
    * 
-   * @param line - Sample unparsed line.
-   * 
-   * @return List of parsed line.
+   * @param buffer     - Buffer that contains the line.
+   * @param from       - First byte of the line.
+   * @param to         - Byte after the last byte of the line.
+   * @param lineNumber - Line number, starting on zero.
    *
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
    * @throws SOMException
    * 
    */
-  protected final SOMElementVO parseLine(String line) throws SOMException {
-    String token;
-    Double value;
-    SOMElementVO element;
-    StringTokenizer tokenizer;
+  private void parseElement(byte[] buffer, int from, int to, int lineNumber) 
+    throws SOMException {
+    int i, end, row, colSize, offset, bit;
     
-    line = normalizeLine(line);
+    if (from == to)
+      throw new SOMException("Problems with the Sample file: line " + 
+        lineNumber);
     
-    tokenizer = new StringTokenizer(line, "\t");
-
-    if (!tokenizer.hasMoreTokens())
-      throw new SOMException("Problems with the Sample file");
+    end = columnEnd(buffer, from, to);
+    if (end == to)
+      throw new SOMException("Problems with the Sample file: line " + 
+        lineNumber);
+    
+    names.add(decode(buffer, from, end));
+    
+    from = end + 1;
+    end  = columnEnd(buffer, from, to);
+    
+    descriptions.add(decode(buffer, from, end));
+    
+    row     = names.size() - 1;
+    colSize = getColSize();
+    offset  = row * colSize;
+    
+    ensureCapacity(offset + colSize);
     
-    element = new SOMElementVO();
+    for (i = 0; i < colSize; i++) {
+      from = end + 1;
+      end  = from > to ? to : columnEnd(buffer, from, to);
+      
+      // Empty columns and columns missing in the end of the line.
+      if (from > to || !parseValue(buffer, from, end, offset + i, lineNumber)) {
+        bit = offset + i;
+        
+        if (missing == null)
+          missing = new long[(values.length + 63) >>> 6];
+        
+        missing[bit >>> 6] |= (1L << bit);
+        values[bit] = 0.0d;
+      }
+    }
+    
+    // Only empty columns are accepted after the last header column.
+    for (i = end; i < to; i++) {
+      if (buffer[i] != '\t' && buffer[i] != ' ')
+        throw new SOMException("Problems with the Sample file: line " + 
+          lineNumber);
+    }
+  }
+  
+  /**
+   * Parse one value straight to the values array, without intermediate
+   * objects. Values that can not be exactly parsed by the fast path are
+   * parsed by the Double class.
+   * 
+   * @param buffer     - Buffer that contains the value.
+   * @param from       - First byte of the value.
+   * @param to         - Byte after the last byte of the value.
+   * @param index      - Index of the value in the values array.
+   * @param lineNumber - Line number, starting on zero.
+   * 
+   * @return False if the value is empty, otherwise true.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private boolean parseValue(byte[] buffer, int from, int to, int index,
+    int lineNumber) throws SOMException {
+    int i, digits, exponent, exponentSign, c;
+    long mantissa;
+    boolean negative, valid, exact;
+    
+    while (from < to && buffer[from] == ' ')
+      from++;
+    
+    while (to > from && buffer[to - 1] == ' ')
+      to--;
+    
+    if (from == to)
+      return false;
     
-    element.setName(tokenizer.nextToken());
+    i        = from;
+    mantissa = 0;
+    digits   = 0;
+    exponent = 0;
+    valid    = false;
+    exact    = true;
+    negative = buffer[i] == '-';
     
-    if (!tokenizer.hasMoreTokens())
-      throw new SOMException("Problems with the Sample file");
+    if (buffer[i] == '-' || buffer[i] == '+')
+      i++;
     
-    element.setDescription(tokenizer.nextToken());
+    for (; i < to && (c = buffer[i] - '0') >= 0 && c <= 9; i++) {
+      valid = true;
+      
+      if (digits < 18) {
+        mantissa = mantissa * 10 + c;
+        if (mantissa != 0)
+          digits++;
+      }
+      else {
+        exponent++;
+        exact = exact && c == 0;
+      }
+    }
+    
+    if (i < to && buffer[i] == '.') {
+      for (i++; i < to && (c = buffer[i] - '0') >= 0 && c <= 9; i++) {
+        valid = true;
+        
+        if (digits < 18) {
+          mantissa = mantissa * 10 + c;
+          exponent--;
+          if (mantissa != 0)
+            digits++;
+        }
+        else
+          exact = exact && c == 0;
+      }
+    }
+    
+    if (valid && i < to && (buffer[i] == 'e' || buffer[i] == 'E')) {
+      exponentSign = 1;
+      c            = 0;
+      valid        = false;
+      
+      if (++i < to && (buffer[i] == '-' || buffer[i] == '+')) {
+        exponentSign = buffer[i] == '-' ? -1 : 1;
+        i++;
+      }
+      
+      for (; i < to && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+        valid = true;
+        
+        if (c < 10000)
+          c = c * 10 + buffer[i] - '0';
+      }
+      
+      exponent += exponentSign * c;
+    }
     
-    while (tokenizer.hasMoreTokens()) {
-      if ((token = tokenizer.nextToken()).equals(" "))
-        value = null;
+    if (valid && i == to && exact && mantissa < (1L << 53) && 
+        exponent >= -22 && exponent <= 22) {
+      if (exponent >= 0)
+        values[index] = mantissa * POWERS_OF_TEN[exponent];
       else
-        value = new Double(token);
+        values[index] = mantissa / POWERS_OF_TEN[-exponent];
+      
+      if (negative)
+        values[index] = -values[index];
       
-      element.addValue(value);
+      return true;
     }
     
-    while (element.getNumberOfValues() < getColSize())
-      element.addValue(null);
+    try {
+      values[index] = Double.parseDouble(new String(buffer, from, to - from, 
+        charset));
+    }
+    catch (NumberFormatException e) {
+      throw new SOMException("Problems with the Sample file: line " + 
+        lineNumber, e);
+    }
     
-    return element;
+    return true;
+  }
+  
+  /**
+   * Grow the values array and the missing values bitmap.
+   * 
+   * @param capacity - Minimum number of values.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private void ensureCapacity(int capacity) {
+    if (capacity <= values.length)
+      return;
+    
+    values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+    
+    if (missing != null)
+      missing = Arrays.copyOf(missing, (values.length + 63) >>> 6);
+  }
+  
+  /**
+   * Create the elements over the parsed values. The arrays are trimmed 
+   * to the parsed size and shared by all elements.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private void createElements() {
+    int row, colSize;
+    
+    colSize = getColSize();
+    values  = Arrays.copyOf(values, names.size() * colSize);
+    
+    if (missing != null)
+      missing = Arrays.copyOf(missing, (values.length + 63) >>> 6);
+    
+    vector = new ArrayList<SOMElementVO>(names.size());
+    
+    for (row = 0; row < names.size(); row++)
+      vector.add(new SOMElementVO(names.get(row), descriptions.get(row), 
+        values, missing, row * colSize, colSize));
+    
+    names        = null;
+    descriptions = null;
   }
-
   /**
    * Assessor for returning the sample header.
    * 
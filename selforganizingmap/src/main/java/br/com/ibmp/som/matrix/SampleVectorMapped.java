@@ -0,0 +1,368 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Sample vector over a memory mapped binary sample file, created by the
+ * SampleVectorConverter. The samples are not loaded on the heap, each 
+ * element is read from the mapped file when requested, so files larger
+ * than the heap can be used.
+ * 
+ * The file has a fixed header, the column names, a table with the 
+ * position of each line name and description, the names and descriptions
+ * in UTF-8, the values matrix line after line in float64 or float32, and
+ * the missing values bitmap. Each section starts on a multiple of 8.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SampleVectorMapped implements SampleVectorInterface {
+
+  /** File identifier. */
+  static final int MAGIC = 0x534F4D42;
+  
+  /** File format version. */
+  static final int VERSION = 1;
+  
+  /** Flag set when the file has missing values. */
+  static final int FLAG_MISSING = 1;
+  
+  /** Size of the fixed header. */
+  static final int FIXED_HEADER_SIZE = 28;
+  
+  /** Charset of the names and descriptions. */
+  static final Charset CHARSET = Charset.forName("UTF-8");
+  
+  /** Matrix Header. */
+  private List<String> header;
+  
+  /** Sample name. */
+  private String name;
+  
+  /** Random instance. */
+  private Random randomize;
+  
+  /** Number of lines. */
+  private int rowSize;
+  
+  /** Number of values of each line. */
+  private int colSize;
+  
+  /** Size of each value, 8 for float64 and 4 for float32. */
+  private int valueSize;
+  
+  /** Position of each name and description. */
+  private MappedRegion stringOffsets;
+  
+  /** Names and descriptions. */
+  private MappedRegion strings;
+  
+  /** Values matrix. */
+  private MappedRegion matrix;
+  
+  /** Missing values bitmap, or null if no value is missing. */
+  private MappedRegion missing;
+  
+  /**
+   * Constructor.
+   * 
+   * @param file - Binary file that contains the sample vector.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SampleVectorMapped(String file) throws SOMException {
+    if (file == null)
+      throw new SOMException("File is not valid");
+    
+    if (!new File(file).exists())
+      throw new SOMException("File does not exists");
+    
+    this.name = file;
+    randomize = new Random();
+    
+    openFile(file);
+  }
+  
+  /**
+   * Assessor to retrieve the position of the next section.
+   * 
+   * @param position - End of the previous section.
+   * 
+   * @return Position aligned to 8 bytes.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  static long align(long position) {
+    return (position + 7) & ~7L;
+  }
+  
+  /**
+   * Read the header and map all sections of the file.
+   * 
+   * @param fileName - File to be opened.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void openFile(String fileName) throws SOMException {
+    int i, flags, headerSize, headerNumber;
+    long position, stringsSize, matrixSize;
+    List<String> columns;
+    RandomAccessFile file;
+    FileChannel channel;
+    
+    try {
+      file = new RandomAccessFile(fileName, "r");
+    }
+    catch (IOException e) {
+      throw new SOMException("File not found", e);
+    }
+    
+    try {
+      if (file.readInt() != MAGIC || file.readInt() != VERSION)
+        throw new SOMException("Invalid binary sample file");
+      
+      valueSize  = file.readInt();
+      rowSize    = file.readInt();
+      colSize    = file.readInt();
+      flags      = file.readInt();
+      headerSize = file.readInt();
+      
+      if ((valueSize != 4 && valueSize != 8) || rowSize < 0 || colSize < 0)
+        throw new SOMException("Invalid binary sample file");
+      
+      headerNumber = file.readInt();
+      columns      = new ArrayList<String>(headerNumber);
+      
+      for (i = 0; i < headerNumber; i++)
+        columns.add(file.readUTF());
+      
+      header = Collections.unmodifiableList(columns);
+      
+      channel  = file.getChannel();
+      position = align(FIXED_HEADER_SIZE + headerSize);
+      
+      stringOffsets = new MappedRegion(channel, position, 
+        (2L * rowSize + 1) * 8);
+      
+      position   += stringOffsets.getSize();
+      stringsSize = stringOffsets.getLong(2L * rowSize * 8);
+      strings     = new MappedRegion(channel, position, stringsSize);
+      
+      position   = align(position + stringsSize);
+      matrixSize = (long) rowSize * colSize * valueSize;
+      matrix     = new MappedRegion(channel, position, matrixSize);
+      
+      position = align(position + matrixSize);
+      
+      if ((flags & FLAG_MISSING) != 0) {
+        missing   = new MappedRegion(channel, position, 
+          (((long) rowSize * colSize + 63) >>> 6) * 8);
+        position += missing.getSize();
+      }
+      else
+        missing = null;
+      
+      if (file.length() < position)
+        throw new SOMException("Invalid binary sample file");
+    }
+    catch (IOException e) {
+      throw new SOMException("Problems with reader", e);
+    }
+    finally {
+      try {
+        file.close();
+      }
+      catch (IOException e) {
+        // Nothing to do, the mappings stay valid after the close.
+      }
+    }
+  }
+  
+  /**
+   * Assessor to decode one name or description.
+   * 
+   * @param idx - String index, two for each line.
+   * 
+   * @return Decoded string.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private String getString(long idx) {
+    long from;
+    byte[] bytes;
+    
+    from  = stringOffsets.getLong(idx * 8);
+    bytes = new byte[(int) (stringOffsets.getLong((idx + 1) * 8) - from)];
+    
+    strings.getBytes(from, bytes, bytes.length);
+    
+    return new String(bytes, CHARSET);
+  }
+  
+  /**
+   * Assessor for returning the sample header.
+   * 
+   * @return List of sample header.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public List<String> getHeader() {
+    return header;
+  }
+  
+  /**
+   * Assessor for returning the sample name.
+   * 
+   * @return Sample name.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public String getName() {
+    return name;
+  }
+  
+  /**
+   * Assessor for returning the Sample vector line passed with parameter.
+   * The line is read from the mapped file on each call.
+   * 
+   * @param idx - Sample line to be returned.
+   * @return The Matrix element.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO getElement(final int idx) {
+    int i;
+    long bit;
+    double[] values;
+    long[] elementMissing;
+    
+    if (idx < 0 || idx >= rowSize)
+      throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + 
+        rowSize);
+    
+    values         = new double[colSize];
+    elementMissing = null;
+    bit            = (long) idx * colSize;
+    
+    for (i = 0; i < colSize; i++, bit++) {
+      if (missing != null && 
+          ((missing.getLong((bit >>> 6) * 8) >>> (bit & 63)) & 1L) != 0) {
+        if (elementMissing == null)
+          elementMissing = new long[(colSize + 63) >>> 6];
+        
+        elementMissing[i >>> 6] |= (1L << i);
+      }
+      else if (valueSize == 8)
+        values[i] = matrix.getDouble(bit * 8);
+      else
+        values[i] = matrix.getFloat(bit * 4);
+    }
+    
+    return new SOMElementVO(getString(2L * idx), getString(2L * idx + 1), 
+      values, elementMissing, 0, colSize);
+  }
+  
+  /**
+   * Assessor for returning a randomized weight. Each value is taken from 
+   * a random line that does not miss it.
+   * 
+   * @return Randomized weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO randomizeWeight() {
+    int i, tries;
+    Double value;
+    SOMElementVO weight;
+    
+    weight = new SOMElementVO();
+    
+    for (i = 0; i < colSize; i++) {
+      value = null;
+      
+      for (tries = 0; value == null && tries < rowSize; tries++)
+        value = getElement(randomize.nextInt(rowSize)).getValue(i);
+      
+      weight.addValue(value);
+    }
+    
+    return weight;
+  }
+  
+  /**
+   * Assessor for returning a randomized sample.
+   * 
+   * @return Randomized sample.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO randomizeSample() {
+    return getElement(randomize.nextInt(rowSize));
+  }
+  
+  /**
+   * Assessor for returning the row size.
+   * 
+   * @return Row size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getRowSize() {
+    return rowSize;
+  }
+  
+  /**
+   * Assessor for returning the column size.
+   * 
+   * @return Column size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getColSize() {
+    return colSize;
+  }
+}
@@ -0,0 +1,199 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.util.List;
+import java.util.Random;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Sample vector that contains a range of lines of other sample vector.
+ * The lines are not copied.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SampleVectorRange implements SampleVectorInterface {
+
+  /** Sample vector that contains the lines. */
+  private SampleVectorInterface sampleVector;
+
+  /** First line of the range. */
+  private int from;
+
+  /** Line after the last line of the range. */
+  private int to;
+
+  /** Random instance. */
+  private Random randomize;
+
+  /**
+   * Constructor.
+   * 
+   * @param sampleVector - Sample vector that contains the lines.
+   * @param from         - First line of the range.
+   * @param to           - Line after the last line of the range.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SampleVectorRange(SampleVectorInterface sampleVector, int from,
+    int to) throws SOMException {
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+
+    if (from < 0 || to > sampleVector.getRowSize() || from >= to)
+      throw new SOMException("Invalid sample range: " + from + "," + to);
+
+    this.sampleVector = sampleVector;
+    this.from         = from;
+    this.to           = to;
+
+    randomize = new Random();
+  }
+
+  /**
+   * Split a sample vector in ranges of almost the same size.
+   * 
+   * @param sampleVector - Sample vector to be split.
+   * @param rangeNumber  - Number of ranges.
+   * 
+   * @return The ranges.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public static SampleVectorRange[] split(SampleVectorInterface sampleVector,
+    int rangeNumber) throws SOMException {
+    int i;
+    long rowSize;
+    SampleVectorRange[] ranges;
+
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+
+    if (rangeNumber < 1 || rangeNumber > sampleVector.getRowSize())
+      throw new SOMException("Invalid range number: " + rangeNumber);
+
+    rowSize = sampleVector.getRowSize();
+    ranges  = new SampleVectorRange[rangeNumber];
+
+    for (i = 0; i < rangeNumber; i++)
+      ranges[i] = new SampleVectorRange(sampleVector,
+        (int) (rowSize * i / rangeNumber), (int) (rowSize * (i + 1) / rangeNumber));
+
+    return ranges;
+  }
+
+  /**
+   * Assessor for returning the sample header.
+   * 
+   * @return List of sample header.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public List<String> getHeader() {
+    return sampleVector.getHeader();
+  }
+
+  /**
+   * Assessor for returning the sample name.
+   * 
+   * @return Sample name.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public String getName() {
+    return sampleVector.getName() + " [" + from + "," + to + ")";
+  }
+
+  /**
+   * Assessor for returning the Sample vector line passed with parameter.
+   * 
+   * @param idx - Sample line to be returned, relative to the range.
+   * 
+   * @return The Matrix element.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO getElement(final int idx) {
+    if (idx < 0 || idx >= to - from)
+      throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " +
+        (to - from));
+
+    return sampleVector.getElement(from + idx);
+  }
+
+  /**
+   * Assessor for returning a randomized weight.
+   * 
+   * @return Randomized weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO randomizeWeight() {
+    return sampleVector.randomizeWeight();
+  }
+
+  /**
+   * Assessor for returning a randomized sample of the range.
+   * 
+   * @return Randomized sample.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO randomizeSample() {
+    return getElement(randomize.nextInt(getRowSize()));
+  }
+
+  /**
+   * Assessor for returning the row size.
+   * 
+   * @return Row size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getRowSize() {
+    return to - from;
+  }
+
+  /**
+   * Assessor for returning the column size.
+   * 
+   * @return Column size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getColSize() {
+    return sampleVector.getColSize();
+  }
+}
@@ -1,48 +1,602 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
 package br.com.ibmp.som.matrix;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import br.com.ibmp.som.exception.SOMException;
 import br.com.ibmp.som.matrix.vo.SOMElementVO;
 
+/**
+ * Sample vector over a database table. The table has the same layout of
+ * the sample file: the first column is the element name, the second one
+ * is the description and the others are the values. Null values are
+ * missing values. The first column must be unique, so the line order is
+ * the same on every page query.
+ * 
+ * The lines are read in pages ordered by the first column, using the 
+ * standard OFFSET and FETCH clauses, and the last used pages are kept on
+ * a bounded cache. The next page is read in background while the current
+ * one is used. All database access is done by one background thread, so
+ * the connection is never used by two threads at the same time.
+ * 
+ * Random samples are taken from a random page of a pool of already read
+ * pages, so no query is executed for each sample. A new random page is
+ * read in background all the time and, when it is ready, it is added to
+ * the pool in place of a random one. The pool has the same size of the
+ * cache, so the pool and the cache can hold twice that number of pages.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
 public class SampleVectorSQL implements SampleVectorInterface {
 
-  public SampleVectorSQL(int sampleNumber, int startLimit, int endLimit) {
-    
+  /** Default number of lines of each page. */
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+  
+  /** Default number of pages kept on the cache. */
+  public static final int DEFAULT_CACHE_SIZE = 64;
+  
+  /** Database connection. */
+  private Connection connection;
+  
+  /** Table name. */
+  private String table;
+  
+  /** Matrix Header. */
+  private List<String> header;
+  
+  /** Number of lines. */
+  private int rowSize;
+  
+  /** Number of lines of each page. */
+  private int pageSize;
+  
+  /** Pages kept on the cache, the least recently used first. */
+  private Map<Integer, SOMElementVO[]> cache;
+  
+  /** Pages being read. */
+  private Map<Integer, Future<SOMElementVO[]>> pending;
+  
+  /** Thread that reads the pages. */
+  private ExecutorService reader;
+  
+  /** Page query, used only by the reader thread. */
+  private PreparedStatement pageStatement;
+  
+  /** Random instance. */
+  private Random randomize;
+  
+  /** Pages of the random samples. */
+  private SOMElementVO[][] samplePages;
+  
+  /** Page index of each page of the random samples. */
+  private int[] samplePageIndex;
+  
+  /** Number of pages of the random samples. */
+  private int samplePageNumber;
+  
+  /** Next page of the random samples. */
+  private int nextSamplePage;
+  
+  /** Reading of the next page of the random samples. */
+  private Future<SOMElementVO[]> nextSample;
+  
+  /**
+   * Constructor.
+   * 
+   * @param connection - Database connection. It is not closed by this 
+   *                     class.
+   * @param table      - Table name.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SampleVectorSQL(Connection connection, String table) 
+    throws SOMException {
+    this(connection, table, DEFAULT_PAGE_SIZE, DEFAULT_CACHE_SIZE);
   }
+  
+  /**
+   * Constructor.
+   * 
+   * @param connection - Database connection. It is not closed by this 
+   *                     class.
+   * @param table      - Table name.
+   * @param pageSize   - Number of lines of each page.
+   * @param cacheSize  - Number of pages kept on the cache.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public SampleVectorSQL(Connection connection, String table, int pageSize,
+    final int cacheSize) throws SOMException {
+    if (connection == null)
+      throw new SOMException("Invalid connection");
+    
+    if (table == null)
+      throw new SOMException("Invalid table");
+    
+    if (pageSize < 1 || cacheSize < 1)
+      throw new SOMException("Invalid cache size: " + pageSize + "," + 
+        cacheSize);
+    
+    this.connection = connection;
+    this.table      = table;
+    this.pageSize   = pageSize;
+    
+    cache = new LinkedHashMap<Integer, SOMElementVO[]>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
 
+      protected boolean removeEldestEntry(
+        Map.Entry<Integer, SOMElementVO[]> eldest) {
+        return size() > cacheSize;
+      }
+    };
+    
+    pending   = new HashMap<Integer, Future<SOMElementVO[]>>();
+    randomize = new Random();
+    
+    readTable();
+    
+    reader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable runnable) {
+        Thread thread;
+        
+        thread = new Thread(runnable, "SampleVectorSQL");
+        thread.setDaemon(true);
+        
+        return thread;
+      }
+    });
+    
+    samplePages      = new SOMElementVO[Math.min(cacheSize, 
+      (rowSize + pageSize - 1) / pageSize)][];
+    samplePageIndex  = new int[samplePages.length];
+    samplePageNumber = 0;
+    nextSamplePage   = randomPage();
+    nextSample       = prefetch(nextSamplePage);
+  }
+  
+  /**
+   * Read the table header and the number of lines.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void readTable() throws SOMException {
+    int i;
+    List<String> columns;
+    Statement statement;
+    ResultSet result;
+    ResultSetMetaData metaData;
+    
+    try {
+      statement = connection.createStatement();
+      
+      try {
+        result   = statement.executeQuery("SELECT * FROM " + table + 
+          " WHERE 1 = 0");
+        metaData = result.getMetaData();
+        columns  = new ArrayList<String>(metaData.getColumnCount());
+        
+        for (i = 1; i <= metaData.getColumnCount(); i++)
+          columns.add(metaData.getColumnName(i));
+        
+        result.close();
+        
+        result = statement.executeQuery("SELECT COUNT(*) FROM " + table);
+        result.next();
+        rowSize = result.getInt(1);
+        result.close();
+      }
+      finally {
+        statement.close();
+      }
+    }
+    catch (SQLException e) {
+      throw new SOMException("Problems with database", e);
+    }
+    
+    if (columns.size() < 2)
+      throw new SOMException("Problems with the Sample table");
+    
+    if (rowSize == 0)
+      throw new SOMException("Empty Sample table: " + table);
+    
+    header = Collections.unmodifiableList(columns);
+  }
+  
+  /**
+   * Read one page of lines. Only called by the reader thread.
+   * 
+   * @param page - Page index.
+   * 
+   * @return Page elements.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SQLException
+   * 
+   */
+  private SOMElementVO[] readPage(int page) throws SQLException {
+    int row, i, colSize, size, bit;
+    double[] values;
+    long[] missing;
+    String[] names, descriptions;
+    SOMElementVO[] elements;
+    ResultSet result;
+    
+    if (pageStatement == null) {
+      pageStatement = connection.prepareStatement("SELECT * FROM " + table +
+        " ORDER BY 1 OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+      pageStatement.setFetchSize(pageSize);
+    }
+    
+    colSize      = getColSize();
+    size         = Math.min(pageSize, rowSize - page * pageSize);
+    values       = new double[size * colSize];
+    missing      = null;
+    names        = new String[size];
+    descriptions = new String[size];
+    
+    pageStatement.setInt(1, page * pageSize);
+    pageStatement.setInt(2, size);
+    
+    result = pageStatement.executeQuery();
+    
+    try {
+      for (row = 0; row < size && result.next(); row++) {
+        names[row]        = result.getString(1);
+        descriptions[row] = result.getString(2);
+        
+        for (i = 0; i < colSize; i++) {
+          bit         = row * colSize + i;
+          values[bit] = result.getDouble(i + 3);
+          
+          if (result.wasNull()) {
+            if (missing == null)
+              missing = new long[(values.length + 63) >>> 6];
+            
+            missing[bit >>> 6] |= (1L << bit);
+            values[bit] = 0.0d;
+          }
+        }
+      }
+    }
+    finally {
+      result.close();
+    }
+    
+    if (row != size)
+      throw new SQLException("The table changed while it was read");
+    
+    elements = new SOMElementVO[size];
+    
+    for (row = 0; row < size; row++)
+      elements[row] = new SOMElementVO(names[row], descriptions[row], values,
+        missing, row * colSize, colSize);
+    
+    return elements;
+  }
+  
+  /**
+   * Start reading a page in background, if it is not on the cache.
+   * 
+   * @param page - Page index.
+   * 
+   * @return The page reading, or null if the page is on the cache.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private synchronized Future<SOMElementVO[]> prefetch(final int page) {
+    Future<SOMElementVO[]> future;
+    
+    if (page * (long) pageSize >= rowSize || cache.containsKey(page))
+      return null;
+    
+    if ((future = pending.get(page)) == null) {
+      future = reader.submit(new Callable<SOMElementVO[]>() {
+        public SOMElementVO[] call() throws SQLException {
+          return readPage(page);
+        }
+      });
+      
+      pending.put(page, future);
+    }
+    
+    return future;
+  }
+  
+  /**
+   * Assessor to retrieve a page, waiting for it to be read if needed.
+   * 
+   * @param page - Page index.
+   * 
+   * @return Page elements.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private SOMElementVO[] getPage(int page) {
+    SOMElementVO[] elements;
+    Future<SOMElementVO[]> future;
+    
+    synchronized (this) {
+      if ((elements = cache.get(page)) != null)
+        return elements;
+      
+      future = prefetch(page);
+    }
+    
+    try {
+      elements = future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Problems with thread", e);
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException("Problems with database", e.getCause());
+    }
+    finally {
+      synchronized (this) {
+        pending.remove(page);
+      }
+    }
+    
+    synchronized (this) {
+      cache.put(page, elements);
+    }
+    
+    return elements;
+  }
+  
+  /**
+   * Assessor to retrieve the page of a random line, so every line has the
+   * same probability.
+   * 
+   * @return Page index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private int randomPage() {
+    return randomize.nextInt(rowSize) / pageSize;
+  }
+  
+  /**
+   * Add a page to the pool of the random samples. When the pool is full,
+   * the page takes the place of a random one.
+   * 
+   * @param page     - Page index.
+   * @param elements - Page elements.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private void addSamplePage(int page, SOMElementVO[] elements) {
+    int i;
+    
+    for (i = 0; i < samplePageNumber; i++)
+      if (samplePageIndex[i] == page)
+        return;
+    
+    if (samplePageNumber < samplePages.length)
+      i = samplePageNumber++;
+    else
+      i = randomize.nextInt(samplePages.length);
+    
+    samplePages[i]     = elements;
+    samplePageIndex[i] = page;
+  }
+  
+  /**
+   * Stop the reader thread and release the page query. The connection is
+   * not closed.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void close() throws SOMException {
+    Future<?> future;
+    
+    future = reader.submit(new Callable<Object>() {
+      public Object call() throws SQLException {
+        if (pageStatement != null)
+          pageStatement.close();
+        
+        return null;
+      }
+    });
+    
+    reader.shutdown();
+    
+    try {
+      future.get();
+    }
+    catch (InterruptedException e) {
+      throw new SOMException("Problems with thread", e);
+    }
+    catch (ExecutionException e) {
+      throw new SOMException("Problems with database", e.getCause());
+    }
+  }
+  
+  /**
+   * Assessor for returning the sample header.
+   * 
+   * @return List of sample header.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
   public List<String> getHeader() {
-    // TODO Auto-generated method stub
-    return null;
+    return header;
   }
-
+  
+  /**
+   * Assessor for returning the sample name.
+   * 
+   * @return Sample name.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
   public String getName() {
-    // TODO Auto-generated method stub
-    return null;
+    return table;
   }
-
-  public SOMElementVO getElement(int idx) {
-    // TODO Auto-generated method stub
-    return null;
+  
+  /**
+   * Assessor for returning the Sample vector line passed with parameter.
+   * Database errors are thrown as IllegalStateException.
+   * 
+   * @param idx - Sample line to be returned.
+   * @return The Matrix element.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO getElement(final int idx) {
+    int page;
+    SOMElementVO[] elements;
+    
+    if (idx < 0 || idx >= rowSize)
+      throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + 
+        rowSize);
+    
+    page     = idx / pageSize;
+    elements = getPage(page);
+    
+    prefetch(page + 1);
+    
+    return elements[idx % pageSize];
   }
-
+  
+  /**
+   * Assessor for returning a randomized weight. Each value is taken from 
+   * a random sample that does not miss it.
+   * 
+   * @return Randomized weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
   public SOMElementVO randomizeWeight() {
-    // TODO Auto-generated method stub
-    return null;
+    int i, tries;
+    Double value;
+    SOMElementVO weight;
+    
+    weight = new SOMElementVO();
+    
+    for (i = 0; i < getColSize(); i++) {
+      value = null;
+      
+      for (tries = 0; value == null && tries < rowSize; tries++)
+        value = randomizeSample().getValue(i);
+      
+      weight.addValue(value);
+    }
+    
+    return weight;
   }
-
-  public SOMElementVO randomizeSample() {
-    // TODO Auto-generated method stub
-    return null;
+  
+  /**
+   * Assessor for returning a randomized sample. The sample is taken from
+   * a random page of the pool, and only the first sample waits for a page
+   * to be read. The line is drawn as if every page were complete and is
+   * drawn again when it is past the end of the shorter last page, so all
+   * lines have the same probability.
+   * Database errors are thrown as IllegalStateException.
+   * 
+   * @return Randomized sample.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public synchronized SOMElementVO randomizeSample() {
+    int row;
+    SOMElementVO[] elements;
+    
+    if (samplePageNumber == 0 || nextSample == null || nextSample.isDone()) {
+      addSamplePage(nextSamplePage, getPage(nextSamplePage));
+      
+      nextSamplePage = randomPage();
+      nextSample     = prefetch(nextSamplePage);
+    }
+    
+    do {
+      elements = samplePages[randomize.nextInt(samplePageNumber)];
+      row      = randomize.nextInt(pageSize);
+    } while (row >= elements.length);
+    
+    return elements[row];
   }
-
+  
+  /**
+   * Assessor for returning the row size.
+   * 
+   * @return Row size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
   public int getRowSize() {
-    // TODO Auto-generated method stub
-    return 0;
+    return rowSize;
   }
-
+  
+  /**
+   * Assessor for returning the column size.
+   * 
+   * @return Column size.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
   public int getColSize() {
-    // TODO Auto-generated method stub
-    return 0;
+    return header.size() - 2;
   }
-
 }
@@ -20,11 +20,18 @@ package br.com.ibmp.som.matrix;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import br.com.ibmp.som.distance.DistanceMethodInterface;
 import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.index.BestMatchingIndexInterface;
+import br.com.ibmp.som.matrix.vo.BestMatchingVO;
 import br.com.ibmp.som.matrix.vo.SOMElementVO;
 import br.com.ibmp.som.matrix.vo.WeightElementVO;
+import br.com.ibmp.som.neighbors.NeighborsKernel;
 import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
 
 /**
@@ -38,6 +45,9 @@ import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
  */
 public class WeightMatrix {
 
+  /** Minimum number of neurons of each partition on the parallel search. */
+  private final static int PARTITION_NEURONS = 256;
+
   /** Matrix width. */
   private int width;
   
@@ -53,12 +63,51 @@ public class WeightMatrix {
   /** Distance calcule method. */
   private DistanceMethodInterface distanceMethod;
   
-  /** The weight matrix. This matrix is inatingible by the user. */
+  /** Contiguous storage of all weights. */
+  private WeightStorage storage;
+  
+  /** 
+   * The weight matrix. This matrix is inatingible by the user and each 
+   * element is a view over the weight storage. 
+   */
   private WeightElementVO[][] matrix;
   
+  /** Sample values used by the learning process. */
+  private double[] sampleValues;
+  
   /** Random instance. */
   private Random randomize;
   
+  /** Executor of the parallel best matching search, null to search on the caller. */
+  private ExecutorService executor;
+  
+  /** Random instance of each parallel search partition. */
+  private Random[] partitionRandomize;
+  
+  /** Weighted sums of each batch learning partition. */
+  private BatchAccumulator[] accumulators;
+  
+  /** Best matching index, or null to always scan every neuron. */
+  private BestMatchingIndexInterface bestMatchingIndex;
+  
+  /** Storage of the current weights of the index, or null if outdated. */
+  private WeightStorage indexedStorage;
+  
+  /** Last best matching neuron of each sample, or null if not cached. */
+  private BestMatchingCache bestMatchingCache;
+  
+  /** Storage of the current weights of the cache, or null if outdated. */
+  private WeightStorage cachedStorage;
+  
+  /** U-Matrix percentage distances, or null if outdated. */
+  private int[][] uMatrix;
+  
+  /** 
+   * Number of weight changes, so a U-Matrix calculated while the weights
+   * changed is not kept. Both fields are guarded by this matrix.
+   */
+  private long modifications;
+  
   /**
    * Contructor.
    * 
@@ -74,6 +123,34 @@ public class WeightMatrix {
    * 
    */
   public WeightMatrix(int width, int height, SampleVectorInterface sampleVector,
+    NeighborsMethodInterface neighborsMethod, DistanceMethodInterface distanceMethod) 
+    throws SOMException {
+    this(new WeightStorage(width, height, sampleVector.getColSize()), 
+      sampleVector, neighborsMethod, distanceMethod);
+    
+    int neuron;
+    
+    for (neuron = 0; neuron < storage.getNeuronNumber(); neuron++)
+      storage.setWeight(neuron, sampleVector.randomizeWeight());
+  }
+  
+  /**
+   * Contructor over already existing weights. The storage is used 
+   * without copy.
+   * 
+   * @param storage         - Weights of the matrix.
+   * @param sampleVector    - Sample vector that contains the learning 
+   *                          elements, or null if the matrix is not used
+   *                          for learning.
+   * @param neighborsMethod - Scale neighbors and learning method.
+   * @param distanceMethod  - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public WeightMatrix(WeightStorage storage, SampleVectorInterface sampleVector,
     NeighborsMethodInterface neighborsMethod, DistanceMethodInterface distanceMethod) 
     throws SOMException {
     int i, j;
@@ -81,20 +158,30 @@ public class WeightMatrix {
     if (neighborsMethod == null)
       throw new SOMException("Not valid neighbors method");	
     
-    this.width  = width;
-    this.height = height;
+    if (storage == null)
+      throw new SOMException("Not valid weight storage");
+    
+    if (sampleVector != null && sampleVector.getColSize() != storage.getDimension())
+      throw new SOMException("Problems with elements size: " + 
+        sampleVector.getColSize() + "," + storage.getDimension());
+    
+    this.width  = storage.getWidth();
+    this.height = storage.getHeight();
     
     randomize = new Random();
     
     this.sampleVector    = sampleVector;
     this.neighborsMethod = neighborsMethod;
     this.distanceMethod  = distanceMethod;
+    this.storage         = storage;
     
     matrix = new WeightElementVO[width][height];
     
+    sampleValues = new double[storage.getDimension()];
+    
     for (i = 0; i < width; i++)
       for (j = 0; j < height; j++)
-        matrix[i][j] = new WeightElementVO(i, j, sampleVector.randomizeWeight());
+        matrix[i][j] = new WeightElementVO(i, j, storage, storage.getNeuron(i, j));
   }
   
   /**
@@ -122,53 +209,439 @@ public class WeightMatrix {
   }
   
   /**
-   * Assessor for returning the best weight from some sample. If more then
-   * one weight match then we return a random weight.
+   * Assessor to retrieve the weight storage. The storage is returned 
+   * without copy, so weightsChanged must be called after it is changed.
    * 
-   * @param matrix - Weight matrix for returning the best weight.
-   * @param sample - Sample element to be match.
+   * @return The weight storage.
    * 
-   * @return Best matching weight.
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public WeightStorage getStorage() {
+    return storage;
+  }
+  
+  /**
+   * Assessor to retrieve the neighbors method.
+   * 
+   * @return Scale neighbors and learning method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public NeighborsMethodInterface getNeighborsMethod() {
+    return neighborsMethod;
+  }
+  
+  /**
+   * Assessor to retrieve the distance method.
+   * 
+   * @return Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public DistanceMethodInterface getDistanceMethod() {
+    return distanceMethod;
+  }
+  
+  /**
+   * Assessor to create a copy of the matrix over a copy of the weights. 
+   * The copy has no sample vector and no best matching index, so it does
+   * not learn and may be read by other thread while this matrix learns.
+   * 
+   * @return Copy of the matrix.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
    * @throws SOMException
    * 
    */
-  protected WeightElementVO getBestMatchingWeight(WeightElementVO[][] matrix, 
-    SOMElementVO sample) throws SOMException {
-    int i, j;
+  public WeightMatrix copy() throws SOMException {
+    return new WeightMatrix(new WeightStorage(storage), null, 
+      neighborsMethod, distanceMethod);
+  }
+  
+  /**
+   * Assessor to set the executor used by the best matching search. The 
+   * grid is split in partitions that are searched in parallel and reduced
+   * to the global best. Small grids are still searched on the calling 
+   * thread. The batch learning and the groups mounting split the samples
+   * instead, and the concurrent online learning runs one worker on each
+   * partition. The executor is not shutdown by this class.
+   * 
+   * @param executor   - Executor to run the partitions, or null to always
+   *                     search on the calling thread.
+   * @param partitions - Number of grid partitions.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setExecutor(ExecutorService executor, int partitions) 
+    throws SOMException {
+    int i;
+    
+    if (executor != null && partitions < 1)
+      throw new SOMException("Invalid partition number: " + partitions);
+    
+    if (executor == null) {
+      this.executor      = null;
+      partitionRandomize = null;
+      return;
+    }
+    
+    partitionRandomize = new Random[partitions];
+    for (i = 0; i < partitions; i++)
+      partitionRandomize[i] = new Random(randomize.nextLong());
+    
+    this.executor = executor;
+  }
+  
+  /**
+   * Assessor to set the best matching index. The index is updated every 
+   * batch learning step and for the snapshot of the groups and U-Matrix. 
+   * The online learning changes the weights on every step, so it scans 
+   * every neuron until the index is updated again.
+   * 
+   * @param bestMatchingIndex - Best matching index, or null to always 
+   *                            scan every neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setBestMatchingIndex(BestMatchingIndexInterface 
+    bestMatchingIndex) throws SOMException {
+    this.bestMatchingIndex = bestMatchingIndex;
+    
+    indexedStorage = null;
+    updateBestMatchingIndex(storage);
+  }
+  
+  /**
+   * Assessor to retrieve the best matching index.
+   * 
+   * @return Best matching index, or null if every neuron is scanned.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public BestMatchingIndexInterface getBestMatchingIndex() {
+    return bestMatchingIndex;
+  }
+  
+  /**
+   * Assessor to set the best matching cache of the batch learning. Each 
+   * sample is first searched on a grid window around its last best 
+   * matching neuron, which is enough on the late learning steps, when 
+   * the weights move very little. The result is the same of a full scan.
+   * 
+   * @param radius - Grid radius of the window, or -1 to disable the 
+   *                 cache.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setBestMatchingCache(int radius) throws SOMException {
+    cachedStorage = null;
+    
+    if (radius == -1) {
+      bestMatchingCache = null;
+      return;
+    }
+    
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+    
+    bestMatchingCache = new BestMatchingCache(sampleVector.getRowSize(), 
+      radius);
+  }
+  
+  /**
+   * Update the best matching index to the current weights of a storage.
+   * 
+   * @param storage - Weight storage to be indexed.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void updateBestMatchingIndex(WeightStorage storage) 
+    throws SOMException {
+    if (bestMatchingIndex == null)
+      return;
+    
+    bestMatchingIndex.update(storage, distanceMethod);
+    indexedStorage = storage;
+  }
+  
+  /**
+   * Assessor for searching the best neuron on the best matching index.
+   * 
+   * @param storage      - Weight storage for returning the best neuron.
+   * @param sample       - Sample values to be match.
+   * @param missing      - Sample missing values bitmap, or null if no value 
+   *                       is missing.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param bestMatching - Search result.
+   * 
+   * @return True if the index found the best neuron, or false if every 
+   *         neuron must be scanned.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private boolean searchBestMatchingIndex(WeightStorage storage, 
+    double[] sample, long[] missing, Random randomize, 
+    BestMatchingVO bestMatching) throws SOMException {
+    if (bestMatchingIndex == null || indexedStorage != storage)
+      return false;
+    
+    return bestMatchingIndex.search(sample, missing, randomize, 
+      bestMatching);
+  }
+  
+  /**
+   * Assessor for searching the best neuron of a learning sample on the 
+   * best matching cache.
+   * 
+   * @param sampleVector - Sample vector that contains the sample.
+   * @param idx          - Sample index.
+   * @param sample       - Sample values to be match.
+   * @param missing      - Sample missing values bitmap, or null if no value 
+   *                       is missing.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param bestMatching - Search result.
+   * 
+   * @return True if the cache found the best neuron, or false if it must 
+   *         be searched by other way.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private boolean searchBestMatchingCache(SampleVectorInterface sampleVector,
+    int idx, double[] sample, long[] missing, Random randomize, 
+    BestMatchingVO bestMatching) throws SOMException {
+    if (bestMatchingCache == null || cachedStorage != storage || 
+        sampleVector != this.sampleVector)
+      return false;
+    
+    return bestMatchingCache.search(storage, distanceMethod, sample, 
+      missing, idx, randomize, bestMatching);
+  }
+  
+  /**
+   * Copy the sample values to a primitive array.
+   * 
+   * @param sample - Sample element to be copied.
+   * @param values - Destination array.
+   * 
+   * @return Missing values bitmap, or null if no value is missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  protected long[] copySample(SOMElementVO sample, double[] values) 
+    throws SOMException {
+    if (sample.getNumberOfValues() != values.length)
+      throw new SOMException("Problems with elements size: " + 
+        sample.getNumberOfValues() + "," + values.length);
+    
+    return WeightStorage.copyValues(sample, values);
+  }
+  
+  /**
+   * Assessor for returning the best neuron from some sample. If more then
+   * one neuron match then we return a random neuron.
+   * 
+   * @param storage - Weight storage for returning the best neuron.
+   * @param sample  - Sample values to be match.
+   * @param missing - Sample missing values bitmap, or null if no value 
+   *                  is missing.
+   * 
+   * @return Best matching neuron index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  protected int getBestMatchingNeuron(WeightStorage storage, double[] sample,
+    long[] missing) throws SOMException {
+    int partitions;
+    BestMatchingVO bestMatching;
+    
+    bestMatching = new BestMatchingVO();
+    
+    if (!searchBestMatchingIndex(storage, sample, missing, randomize, 
+        bestMatching)) {
+      partitions = 1;
+      if (executor != null) {
+        partitions = Math.min(partitionRandomize.length, 
+          storage.getNeuronNumber() / PARTITION_NEURONS);
+      }
+      
+      if (partitions > 1)
+        bestMatching = getParallelBestMatching(storage, sample, missing, 
+          partitions);
+      else
+        getBestMatching(storage, sample, missing, 0, 
+          storage.getNeuronNumber(), randomize, bestMatching);
+    }
+    
+    if (bestMatching.getNeuron() == -1)
+      throw new SOMException("Problems with the best matching search");
+    
+    return bestMatching.getNeuron();
+  }
+  
+  /**
+   * Assessor for searching the best neuron of a neuron range. If more then
+   * one neuron match then a random neuron is kept. The neurons are ranked
+   * by the rank distance, so a neuron is abandoned as soon as it is worse
+   * than the best one, and the result distance is a rank distance.
+   * 
+   * @param storage      - Weight storage for returning the best neuron.
+   * @param sample       - Sample values to be match.
+   * @param missing      - Sample missing values bitmap, or null if no value 
+   *                       is missing.
+   * @param from         - First neuron of the range.
+   * @param to           - Neuron after the last neuron of the range.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param bestMatching - Search result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  protected void getBestMatching(WeightStorage storage, double[] sample,
+    long[] missing, int from, int to, Random randomize, 
+    BestMatchingVO bestMatching) throws SOMException {
+    int neuron, bestNeuron, matchNumber;
     double bestDistance, currDistance;
 
-    List<WeightElementVO> matchList;
-    
     bestDistance = Double.MAX_VALUE;
+    bestNeuron   = -1;
+    matchNumber  = 0;
     
-    matchList = null;
+    for (neuron = from; neuron < to; neuron++) {
+      currDistance = distanceMethod.calculateRankDistance(sample, missing, 
+        storage, neuron, bestDistance);
+      
+      if (currDistance < bestDistance) {
+        bestDistance = currDistance;
+        bestNeuron   = neuron;
+        matchNumber  = 1;
+      }
+      else if (currDistance == bestDistance) {
+        // Each tied neuron replaces the current one with probability 
+        // 1/matchNumber, so all tied neurons are equally likely.
+        matchNumber++;
+        if (randomize.nextInt(matchNumber) == 0)
+          bestNeuron = neuron;
+      }
+    }
     
-    for (i = 0; i < width; i++) {	
-      for (j = 0; j < height; j++) {
-        currDistance = distanceMethod.calculateDistance(sample, 
-          matrix[i][j].getWeight());
+    bestMatching.setBestMatching(bestNeuron, bestDistance, matchNumber);
+  }
+  
+  /**
+   * Assessor for searching the best neuron splitting the grid between the
+   * executor threads. Ties between partitions are resolved with the same
+   * probability of a sequential search.
+   * 
+   * @param storage    - Weight storage for returning the best neuron.
+   * @param sample     - Sample values to be match.
+   * @param missing    - Sample missing values bitmap, or null if no value 
+   *                     is missing.
+   * @param partitions - Number of grid partitions.
+   * 
+   * @return Search result.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private BestMatchingVO getParallelBestMatching(final WeightStorage storage,
+    final double[] sample, final long[] missing, int partitions) 
+    throws SOMException {
+    int i, matchNumber;
+    BestMatchingVO bestMatching, partitionMatching;
+    List<Future<BestMatchingVO>> futures;
+    
+    futures = new ArrayList<Future<BestMatchingVO>>(partitions);
+    
+    for (i = 0; i < partitions; i++) {
+      final int from = (int) ((long) storage.getNeuronNumber() * i / partitions);
+      final int to   = (int) ((long) storage.getNeuronNumber() * (i + 1) / partitions);
+      final Random random = partitionRandomize[i];
+      
+      futures.add(executor.submit(new Callable<BestMatchingVO>() {
+        public BestMatchingVO call() throws SOMException {
+          BestMatchingVO result;
+          
+          result = new BestMatchingVO();
+          getBestMatching(storage, sample, missing, from, to, random, result);
+          
+          return result;
+        }
+      }));
+    }
+    
+    bestMatching = new BestMatchingVO();
+    
+    try {
+      for (Future<BestMatchingVO> future : futures) {
+        partitionMatching = future.get();
         
-        if (currDistance == bestDistance)
-          matchList.add(matrix[i][j]);
-        else if (currDistance < bestDistance) {
-          bestDistance = currDistance;
-          matchList = new ArrayList<WeightElementVO>();
-          matchList.add(matrix[i][j]);
-        }  
+        if (partitionMatching.getDistance() < bestMatching.getDistance())
+          bestMatching = partitionMatching;
+        else if (partitionMatching.getMatchNumber() > 0 && 
+          partitionMatching.getDistance() == bestMatching.getDistance()) {
+          matchNumber = bestMatching.getMatchNumber() + 
+            partitionMatching.getMatchNumber();
+          
+          if (randomize.nextInt(matchNumber) < partitionMatching.getMatchNumber())
+            bestMatching.setNeuron(partitionMatching.getNeuron());
+          
+          bestMatching.setMatchNumber(matchNumber);
+        }
       }
     }
+    catch (InterruptedException e) {
+      for (Future<BestMatchingVO> future : futures)
+        future.cancel(true);
+      
+      throw new SOMException("Problems with thread", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof SOMException)
+        throw (SOMException) e.getCause();
+      
+      throw new SOMException("Problems with the best matching search", e);
+    }
     
-    return matchList.get(randomize.nextInt(matchList.size()));
+    return bestMatching;
   }
 
   /**
    * Assessor for returning the best weight from some sample. If more then
    * one weight match then we return a random weight.
    * 
-   * @param matrix - Weight matrix for returning the best weight.
    * @param sample - Sample element to be match.
    * 
    * @return Best matching weight.
@@ -178,37 +651,156 @@ public class WeightMatrix {
    * @throws SOMException
    * 
    */
-  protected WeightElementVO getBestUMatchingWeight(WeightElementVO[][] matrix, 
-    SOMElementVO sample) throws SOMException {
-    int i, j;
-    double bestDistance, currDistance;
-
-    List<WeightElementVO> matchList;
+  protected WeightElementVO getBestMatchingWeight(SOMElementVO sample) 
+    throws SOMException {
+    int neuron;
+    long[] missing;
+    double[] values;
     
-    bestDistance = Double.MAX_VALUE;
+    values  = new double[storage.getDimension()];
+    missing = copySample(sample, values);
+    neuron  = getBestMatchingNeuron(storage, values, missing);
+    
+    return matrix[storage.getXPosition(neuron)][storage.getYPosition(neuron)];
+  }
+  
+  /**
+   * Class interface to execute a step learn.
+   * 
+   * @param t - Time to be used in learning process.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void executeStepLearn(double t) throws SOMException {
+    int neuron;
+    long[] missing;
+    SOMElementVO sample;
+    
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+    
+    sample  = sampleVector.randomizeSample();
+    missing = copySample(sample, sampleValues);
+    neuron  = getBestMatchingNeuron(storage, sampleValues, missing);
+    
+    neighborsMethod.scaleNeighbors(storage, storage.getXPosition(neuron), 
+      storage.getYPosition(neuron), t);
+    
+    weightsChanged();
+  }
+  
+  /**
+   * Class interface to execute many online steps at the same time. The
+   * steps are split between the executor threads, and each thread 
+   * searches and scales the neighbors over the shared weights without
+   * any lock, so an update may be lost when two neighborhoods overlap. 
+   * Without an executor, or when the weights have missing values, the 
+   * steps run on the calling thread, since the missing bits share words
+   * and would be corrupted by concurrent writes.
+   * 
+   * @param t     - Time of the first step.
+   * @param tEnd  - Time after the last step.
+   * @param steps - Number of steps.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void executeConcurrentStepLearn(final double t, final double tEnd,
+    final int steps) throws SOMException {
+    int i, workers;
+    List<Future<Object>> futures;
+    
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
+    
+    if (steps < 1)
+      throw new SOMException("Invalid step number: " + steps);
     
-    matchList = null;
+    workers = 1;
     
-    for (i = 0; i < (width*2); i += 2) {
-      for (j = 0; j < (height*2); j += 2) {
-        currDistance = distanceMethod.calculateDistance(sample, 
-          matrix[i][j].getWeight());
+    if (executor != null && !storage.hasMissing())
+      workers = Math.min(partitionRandomize.length, steps);
+    
+    if (workers == 1)
+      executeSteps(t, tEnd, 0, 1, steps, randomize);
+    else {
+      futures = new ArrayList<Future<Object>>(workers);
+      
+      for (i = 0; i < workers; i++) {
+        final int first  = i;
+        final int stride = workers;
+        final Random random = partitionRandomize[i];
         
-        if (currDistance == bestDistance)
-          matchList.add(matrix[i][j]);
-        else if (currDistance < bestDistance) {
-          bestDistance = currDistance;
-          matchList = new ArrayList<WeightElementVO>();
-          matchList.add(matrix[i][j]);
-        }  
+        futures.add(executor.submit(new Callable<Object>() {
+          public Object call() throws SOMException {
+            executeSteps(t, tEnd, first, stride, steps, random);
+            
+            return null;
+          }
+        }));
       }
+      
+      waitFutures(futures);
     }
     
-    return matchList.get(randomize.nextInt(matchList.size()));
+    weightsChanged();
   }
   
   /**
-   * Class interface to execute a step learn.
+   * Execute the online steps of one thread. The steps of all threads are
+   * interleaved, so the time of each step is the same of the serial 
+   * order.
+   * 
+   * @param t         - Time of the first step of all threads.
+   * @param tEnd      - Time after the last step of all threads.
+   * @param first     - First step of this thread.
+   * @param stride    - Number of threads.
+   * @param steps     - Number of steps of all threads.
+   * @param randomize - Random instance used to choose the samples and 
+   *                    between ties.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void executeSteps(double t, double tEnd, int first, int stride,
+    int steps, Random randomize) throws SOMException {
+    int i, neuron;
+    long[] missing;
+    double[] values;
+    BestMatchingVO bestMatching;
+    
+    values       = new double[storage.getDimension()];
+    bestMatching = new BestMatchingVO();
+    
+    for (i = first; i < steps; i += stride) {
+      missing = copySample(sampleVector.getElement(
+        randomize.nextInt(sampleVector.getRowSize())), values);
+      
+      getBestMatching(storage, values, missing, 0, storage.getNeuronNumber(),
+        randomize, bestMatching);
+      
+      neuron = bestMatching.getNeuron();
+      if (neuron == -1)
+        throw new SOMException("Problems with the best matching search");
+      
+      neighborsMethod.scaleNeighbors(storage, storage.getXPosition(neuron), 
+        storage.getYPosition(neuron), t + (tEnd - t) * i / steps);
+    }
+  }
+  
+  /**
+   * Class interface to execute a batch learn step. Every sample is 
+   * assigned to its best matching weight, the neighborhood weighted sums
+   * are accumulated for each neuron and then all weights are rewritten at
+   * once. When an executor is set, the samples are split between the 
+   * executor threads and each thread accumulates on its own sums.
    * 
    * @param t - Time to be used in learning process.
    * 
@@ -217,15 +809,185 @@ public class WeightMatrix {
    * @throws SOMException
    * 
    */
-  public void executeStepLearn(double t) throws SOMException {
-    SOMElementVO sample;
-    WeightElementVO bestWeight;
+  public void executeBatchLearn(double t) throws SOMException {
+    executeBatchLearn(sampleVector, t, 1.0d);
+  }
+  
+  /**
+   * Class interface to execute a batch learn step over other samples. 
+   * The weights only move a fraction of the way to the batch means, so
+   * a trained map can follow new samples without forgetting the old 
+   * ones.
+   * 
+   * @param sampleVector - Samples to be learned.
+   * @param t            - Time to be used in learning process.
+   * @param rate         - Fraction of the way to the batch means, 1 to 
+   *                       rewrite the weights with the means.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void executeBatchLearn(final SampleVectorInterface sampleVector, 
+    double t, double rate) throws SOMException {
+    int i, partitions, rowSize;
+    NeighborsKernel kernel;
+    List<Future<Object>> futures;
+    
+    if (sampleVector == null)
+      throw new SOMException("Invalid sample vector");
     
-    sample = sampleVector.randomizeSample();
-    bestWeight = getBestMatchingWeight(matrix, sample);
+    if (rate <= 0.0d || rate > 1.0d)
+      throw new SOMException("Invalid learning rate: " + rate);
+    
+    updateBestMatchingIndex(storage);
+    
+    // The cache keeps the best matching weights of the learning samples.
+    if (bestMatchingCache != null && sampleVector == this.sampleVector) {
+      bestMatchingCache.update(storage, distanceMethod);
+      cachedStorage = storage;
+    }
     
-    neighborsMethod.scaleNeighbors(width, height, matrix, 
-      bestWeight, t, distanceMethod);
+    kernel     = neighborsMethod.getKernel(t, width, height);
+    rowSize    = sampleVector.getRowSize();
+    partitions = 1;
+    
+    if (executor != null)
+      partitions = Math.max(1, Math.min(partitionRandomize.length, rowSize));
+    
+    if (accumulators == null || accumulators.length != partitions) {
+      accumulators = new BatchAccumulator[partitions];
+      for (i = 0; i < partitions; i++)
+        accumulators[i] = new BatchAccumulator(storage.getNeuronNumber(), 
+          storage.getDimension());
+    }
+    
+    if (partitions == 1)
+      accumulateBatch(sampleVector, kernel, 0, rowSize, randomize, 
+        accumulators[0]);
+    else {
+      futures = new ArrayList<Future<Object>>(partitions);
+      
+      for (i = 0; i < partitions; i++) {
+        final int from = (int) ((long) rowSize * i / partitions);
+        final int to   = (int) ((long) rowSize * (i + 1) / partitions);
+        final Random random = partitionRandomize[i];
+        final BatchAccumulator accumulator = accumulators[i];
+        final NeighborsKernel partitionKernel = kernel;
+        
+        futures.add(executor.submit(new Callable<Object>() {
+          public Object call() throws SOMException {
+            accumulateBatch(sampleVector, partitionKernel, from, to, random, 
+              accumulator);
+            
+            return null;
+          }
+        }));
+      }
+      
+      waitFutures(futures);
+      
+      for (i = 1; i < partitions; i++)
+        accumulators[0].merge(accumulators[i]);
+    }
+    
+    accumulators[0].update(storage, rate);
+    
+    weightsChanged();
+  }
+  
+  /**
+   * Accumulate the neighborhood weighted sums of a sample range. The best
+   * matching search is done on the calling thread.
+   * 
+   * @param sampleVector - Samples to be accumulated.
+   * @param kernel       - Neighborhood kernel.
+   * @param from         - First sample of the range.
+   * @param to           - Sample after the last sample of the range.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param accumulator  - Weighted sums. The sums are cleared before the
+   *                       accumulation.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void accumulateBatch(SampleVectorInterface sampleVector, 
+    NeighborsKernel kernel, int from, int to, Random randomize, 
+    BatchAccumulator accumulator) throws SOMException {
+    int i, k, x, y, neuron;
+    long[] missing;
+    double[] values;
+    BestMatchingVO bestMatching;
+    
+    values       = new double[storage.getDimension()];
+    bestMatching = new BestMatchingVO();
+    
+    accumulator.clear();
+    
+    for (i = from; i < to; i++) {
+      missing = copySample(sampleVector.getElement(i), values);
+      
+      if (!searchBestMatchingCache(sampleVector, i, values, missing, 
+          randomize, bestMatching) && !searchBestMatchingIndex(storage, 
+          values, missing, randomize, bestMatching))
+        getBestMatching(storage, values, missing, 0, 
+          storage.getNeuronNumber(), randomize, bestMatching);
+      
+      neuron = bestMatching.getNeuron();
+      if (neuron == -1)
+        throw new SOMException("Problems with the best matching search");
+      
+      if (kernel.getSize() == 0) {
+        accumulator.accumulate(neuron, 1.0d, values, missing);
+        continue;
+      }
+      
+      for (k = 0; k < kernel.getSize(); k++) {
+        x = kernel.getNeighborX(k, storage.getXPosition(neuron));
+        y = kernel.getNeighborY(k, storage.getXPosition(neuron), 
+          storage.getYPosition(neuron));
+        
+        if (x >= 0 && y >= 0)
+          accumulator.accumulate(storage.getNeuron(x, y), 
+            kernel.getCoefficient(k), values, missing);
+      }
+    }
+  }
+  
+  /**
+   * Wait all tasks submitted to the executor.
+   * 
+   * @param futures - Submitted tasks.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void waitFutures(List<? extends Future<?>> futures) 
+    throws SOMException {
+    try {
+      for (Future<?> future : futures)
+        future.get();
+    }
+    catch (InterruptedException e) {
+      for (Future<?> future : futures)
+        future.cancel(true);
+      
+      throw new SOMException("Problems with thread", e);
+    }
+    catch (ExecutionException e) {
+      for (Future<?> future : futures)
+        future.cancel(true);
+      
+      if (e.getCause() instanceof SOMException)
+        throw (SOMException) e.getCause();
+      
+      throw new SOMException("Problems with the learning process", e);
+    }
   }
   
   /**
@@ -235,24 +997,233 @@ public class WeightMatrix {
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
+   * @throws SOMException
+   * 
    */
-  protected void setUMatrixDistances(WeightElementVO[][] groups) {
+  protected void setUMatrixDistances(WeightElementVO[][] groups) 
+    throws SOMException {
     int i, j;
+    int[][] distances;
+    
+    distances = getUMatrixDistances();
+    
+    for (i = 0; i < groups.length; i++)
+      for (j = 0; j < groups[i].length; j++)
+        groups[i][j].setPercentageDistance(distances[i][j]);
+  }
+  
+  /**
+   * Assessor to retrieve the U-Matrix distances, rescaled so the smallest
+   * one is 0 and the greatest one is 100. The U-Matrix has width*2 x height*2 cells and the 
+   * neuron (x, y) is on the cell (x*2, y*2). The cells between two 
+   * neurons have the distance between them, the cells between four 
+   * neurons have the mean of both diagonals and the neuron cells have 
+   * the mean of the cells around them. The distances are calculated in 
+   * parallel when an executor is set and kept until the learning changes
+   * the weights. Distances calculated while the weights change are 
+   * returned but not kept; a consistent U-Matrix of a learning map is 
+   * retrieved from a WeightSnapshot.
+   * 
+   * @return U-Matrix percentage distances. The array is returned without 
+   *         copy and must not be changed.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public int[][] getUMatrixDistances() throws SOMException {
+    int i, j, partitions;
+    long version;
+    double min, max;
+    List<Future<Object>> futures;
+    final double[][] distances;
+    int[][] percentages;
     
-    /////////////////////////////////////////////////////////////////
-    //TODO - Algorithm to set the distance between elements !!!
-    //       I Have problems to calculate the distance, then I will 
-    //       need some DANIELES help. Develop this with her.
-    /////////////////////////////////////////////////////////////////
-    
-    for (i = 0; i < groups.length; i++) {  
-      for (j = 0; j < groups[i].length; j++) {
-        if (j%2 == 0)
-          groups[i][j].setPercentageDistance(0);
-        else
-          groups[i][j].setPercentageDistance(100);
+    synchronized (this) {
+      if (uMatrix != null)
+        return uMatrix;
+      
+      version = modifications;
+    }
+    
+    distances  = new double[width * 2][height * 2];
+    partitions = 1;
+    
+    if (executor != null)
+      partitions = Math.min(partitionRandomize.length, width);
+    
+    if (partitions <= 1)
+      calculateUMatrixRows(distances, 0, width);
+    else {
+      futures = new ArrayList<Future<Object>>(partitions);
+      
+      for (i = 0; i < partitions; i++) {
+        final int from = (int) ((long) width * i / partitions);
+        final int to   = (int) ((long) width * (i + 1) / partitions);
+        
+        futures.add(executor.submit(new Callable<Object>() {
+          public Object call() throws SOMException {
+            calculateUMatrixRows(distances, from, to);
+            
+            return null;
+          }
+        }));
+      }
+      
+      waitFutures(futures);
+    }
+    
+    setUMatrixNeurons(distances);
+    
+    min = Double.MAX_VALUE;
+    max = -Double.MAX_VALUE;
+    
+    for (i = 0; i < distances.length; i++) {
+      for (j = 0; j < distances[i].length; j++) {
+        min = Math.min(min, distances[i][j]);
+        max = Math.max(max, distances[i][j]);
+      }
+    }
+    
+    percentages = new int[width * 2][height * 2];
+    
+    if (max > min) {
+      for (i = 0; i < distances.length; i++)
+        for (j = 0; j < distances[i].length; j++)
+          percentages[i][j] = (int) Math.round(100.0d * 
+            (distances[i][j] - min) / (max - min));
+    }
+    
+    synchronized (this) {
+      if (version == modifications)
+        uMatrix = percentages;
+    }
+    
+    return percentages;
+  }
+  
+  /**
+   * Discard the best matching searches and the U-Matrix distances kept 
+   * for the current weights. It must be called after the storage is 
+   * changed outside this matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void weightsChanged() {
+    indexedStorage = null;
+    cachedStorage  = null;
+    clearUMatrix();
+  }
+  
+  /**
+   * Discard the U-Matrix distances after the weights change.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private synchronized void clearUMatrix() {
+    uMatrix = null;
+    modifications++;
+  }
+  
+  /**
+   * Calculate the U-Matrix cells between the neurons of some rows and 
+   * their right, lower and diagonal neighbors.
+   * 
+   * @param distances - U-Matrix distances.
+   * @param from      - First neuron row.
+   * @param to        - Neuron row after the last row.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void calculateUMatrixRows(double[][] distances, int from, int to) 
+    throws SOMException {
+    int i, j;
+    long[] missing, nextMissing;
+    double[] values, nextValues;
+    
+    values     = new double[storage.getDimension()];
+    nextValues = new double[storage.getDimension()];
+    
+    for (i = from; i < to; i++) {
+      for (j = 0; j < height; j++) {
+        missing = storage.copyNeuron(storage.getNeuron(i, j), values);
+        
+        if (i + 1 < width)
+          distances[i * 2 + 1][j * 2] = distanceMethod.calculateDistance(
+            values, missing, storage, storage.getNeuron(i + 1, j));
+        
+        if (j + 1 < height)
+          distances[i * 2][j * 2 + 1] = distanceMethod.calculateDistance(
+            values, missing, storage, storage.getNeuron(i, j + 1));
+        
+        if (i + 1 < width && j + 1 < height) {
+          nextMissing = storage.copyNeuron(storage.getNeuron(i + 1, j), 
+            nextValues);
+          
+          distances[i * 2 + 1][j * 2 + 1] = (distanceMethod.calculateDistance(
+            values, missing, storage, storage.getNeuron(i + 1, j + 1)) + 
+            distanceMethod.calculateDistance(nextValues, nextMissing, storage, 
+            storage.getNeuron(i, j + 1))) / 2.0d;
+        }
+      }
+    }
+  }
+  
+  /**
+   * Calculate the U-Matrix neuron cells, as the mean of the cells around
+   * them, and copy the last row and column, that have no neuron after 
+   * them, from the previous ones.
+   * 
+   * @param distances - U-Matrix distances.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private void setUMatrixNeurons(double[][] distances) {
+    int i, j, number;
+    double sum;
+    
+    for (i = 0; i < width * 2; i += 2) {
+      for (j = 0; j < height * 2; j += 2) {
+        sum    = 0.0d;
+        number = 0;
+        
+        if (i > 0) {
+          sum += distances[i - 1][j];
+          number++;
+        }
+        
+        if (i + 2 < width * 2) {
+          sum += distances[i + 1][j];
+          number++;
+        }
+        
+        if (j > 0) {
+          sum += distances[i][j - 1];
+          number++;
+        }
+        
+        if (j + 2 < height * 2) {
+          sum += distances[i][j + 1];
+          number++;
+        }
+        
+        if (number > 0)
+          distances[i][j] = sum / number;
       }
     }
+    
+    for (i = 0; i < width * 2 - 1; i++)
+      distances[i][height * 2 - 1] = distances[i][height * 2 - 2];
+    
+    for (j = 0; j < height * 2; j++)
+      distances[width * 2 - 1][j] = distances[width * 2 - 2][j];
   }
   
   /**
@@ -270,11 +1241,13 @@ public class WeightMatrix {
   public WeightElementVO[][] mountUMatrix(SampleVectorInterface sampleVector) 
     throws SOMException {
     int i, j, tmpI, tmpJ;
-    SOMElementVO element;
-    WeightElementVO group;
+    WeightStorage snapshot;
     WeightElementVO[][] groups;
     
-    groups = new WeightElementVO[width*2][height*2];
+    groups   = new WeightElementVO[width*2][height*2];
+    snapshot = new WeightStorage(storage);
+    
+    updateBestMatchingIndex(snapshot);
   
     //////////////////////////////////////////////////////////////////////////////////////
     //FIXME - This Alorithm should be better. I do this just for cleaning compreention.
@@ -283,7 +1256,8 @@ public class WeightMatrix {
     
     for (i = 0, tmpI = 0; tmpI < (width*2); i++, tmpI += 2) {
       for (j = 0, tmpJ = 0 ; tmpJ < (height*2); j++, tmpJ += 2) {
-        groups[tmpI][tmpJ] = new WeightElementVO(tmpI, tmpJ, matrix[i][j].getWeight());
+        groups[tmpI][tmpJ] = new WeightElementVO(tmpI, tmpJ, snapshot, 
+          snapshot.getNeuron(i, j));
       }
     }
 
@@ -298,11 +1272,7 @@ public class WeightMatrix {
     
     setUMatrixDistances(groups);
     
-    for (i = 0; i < sampleVector.getRowSize(); i++) {
-      element = sampleVector.getElement(i);
-      group = getBestUMatchingWeight(groups, element);
-      group.addOnGroup(element);     
-    }
+    addOnGroups(sampleVector, snapshot, groups, 2);
 
     return groups;
   }
@@ -321,22 +1291,140 @@ public class WeightMatrix {
    */
   public WeightElementVO[][] mountGroups(SampleVectorInterface sampleVector) throws SOMException {
     int i, j;
-    SOMElementVO element;
-    WeightElementVO group;
+    WeightStorage snapshot;
     WeightElementVO[][] groups;
     
-    groups = new WeightElementVO[width][height];
+    groups   = new WeightElementVO[width][height];
+    snapshot = new WeightStorage(storage);
+    
+    updateBestMatchingIndex(snapshot);
 	    
     for (i = 0; i < width; i++)
       for (j = 0; j < height; j++)
-        groups[i][j] = new WeightElementVO(i, j, matrix[i][j].getWeight());
+        groups[i][j] = new WeightElementVO(i, j, snapshot, 
+          snapshot.getNeuron(i, j));
     
-    for (i = 0; i < sampleVector.getRowSize(); i++) {
-      element = sampleVector.getElement(i);
-      group = getBestMatchingWeight(groups, element);
-      group.addOnGroup(element);     
-    }
+    addOnGroups(sampleVector, snapshot, groups, 1);
 
     return groups;
   }
+  
+  /**
+   * Put every sample on the group of its best matching weight. When an 
+   * executor is set, the samples are split between the executor threads;
+   * each thread writes the best neurons of its own samples and the 
+   * groups are filled at the end, in the sample order.
+   * 
+   * @param sampleVector - Samples to be put on the groups.
+   * @param snapshot     - Weights used by the search.
+   * @param groups       - Groups of the weights.
+   * @param scale        - Scale between the weight and group positions.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void addOnGroups(final SampleVectorInterface sampleVector, 
+    final WeightStorage snapshot, WeightElementVO[][] groups, int scale) 
+    throws SOMException {
+    int i, partitions, rowSize, neuron;
+    long[] missing;
+    double[] values;
+    SOMElementVO element;
+    List<Future<Object>> futures;
+    final int[] neurons;
+    final SOMElementVO[] elements;
+    
+    rowSize    = sampleVector.getRowSize();
+    partitions = 1;
+    
+    if (executor != null)
+      partitions = Math.min(partitionRandomize.length, rowSize);
+    
+    if (partitions <= 1) {
+      values = new double[snapshot.getDimension()];
+      
+      for (i = 0; i < rowSize; i++) {
+        element = sampleVector.getElement(i);
+        missing = copySample(element, values);
+        neuron  = getBestMatchingNeuron(snapshot, values, missing);
+        
+        groups[snapshot.getXPosition(neuron) * scale]
+          [snapshot.getYPosition(neuron) * scale].addOnGroup(element);
+      }
+      
+      return;
+    }
+    
+    neurons  = new int[rowSize];
+    elements = new SOMElementVO[rowSize];
+    futures  = new ArrayList<Future<Object>>(partitions);
+    
+    for (i = 0; i < partitions; i++) {
+      final int from = (int) ((long) rowSize * i / partitions);
+      final int to   = (int) ((long) rowSize * (i + 1) / partitions);
+      final Random random = partitionRandomize[i];
+      
+      futures.add(executor.submit(new Callable<Object>() {
+        public Object call() throws SOMException {
+          findBestMatchingNeurons(sampleVector, snapshot, from, to, random, 
+            elements, neurons);
+          
+          return null;
+        }
+      }));
+    }
+    
+    waitFutures(futures);
+    
+    for (i = 0; i < rowSize; i++)
+      groups[snapshot.getXPosition(neurons[i]) * scale]
+        [snapshot.getYPosition(neurons[i]) * scale].addOnGroup(elements[i]);
+  }
+  
+  /**
+   * Search the best matching neuron of a sample range. The search is done
+   * on the calling thread.
+   * 
+   * @param sampleVector - Samples to be searched.
+   * @param snapshot     - Weights used by the search.
+   * @param from         - First sample of the range.
+   * @param to           - Sample after the last sample of the range.
+   * @param randomize    - Random instance used to choose between ties.
+   * @param elements     - Array that receives each sample.
+   * @param neurons      - Array that receives the best neuron of each 
+   *                       sample.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private void findBestMatchingNeurons(SampleVectorInterface sampleVector,
+    WeightStorage snapshot, int from, int to, Random randomize, 
+    SOMElementVO[] elements, int[] neurons) throws SOMException {
+    int i;
+    long[] missing;
+    double[] values;
+    BestMatchingVO bestMatching;
+    
+    values       = new double[snapshot.getDimension()];
+    bestMatching = new BestMatchingVO();
+    
+    for (i = from; i < to; i++) {
+      elements[i] = sampleVector.getElement(i);
+      missing     = copySample(elements[i], values);
+      
+      if (!searchBestMatchingIndex(snapshot, values, missing, randomize, 
+          bestMatching))
+        getBestMatching(snapshot, values, missing, 0, 
+          snapshot.getNeuronNumber(), randomize, bestMatching);
+      
+      if (bestMatching.getNeuron() == -1)
+        throw new SOMException("Problems with the best matching search");
+      
+      neurons[i] = bestMatching.getNeuron();
+    }
+  }
 }
@@ -0,0 +1,345 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.util.concurrent.ExecutorService;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.index.BestMatchingIndexInterface;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+import br.com.ibmp.som.matrix.vo.WeightElementVO;
+import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
+
+/**
+ * Immutable copy of the weights of a learning map. The copy is taken 
+ * between two learning steps, so it never has weights of different 
+ * steps, and it is not changed after, so any number of threads may read
+ * it while the map keeps learning. The epoch tells the learning step of
+ * the copy: two snapshots with the same epoch have the same weights.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class WeightSnapshot {
+
+  /** Learning step of the copy. */
+  private long epoch;
+  
+  /** Time variable of the copy. */
+  private double t;
+  
+  /** Iteration counter of the copy. */
+  private int iteration;
+  
+  /** Copied weights. */
+  private WeightStorage storage;
+  
+  /** Distance calcule method. */
+  private DistanceMethodInterface distanceMethod;
+  
+  /** Scale neighbors and learning method. */
+  private NeighborsMethodInterface neighborsMethod;
+  
+  /** 
+   * Best matching index of the copy, or null to scan every neuron. It is
+   * not shared with the learning map, which updates its own index.
+   */
+  private BestMatchingIndexInterface bestMatchingIndex;
+  
+  /** Weight matrix over the copy, or null until it is needed. */
+  private WeightMatrix matrix;
+  
+  /**
+   * Constructor. The weights must not change while they are copied.
+   * 
+   * @param weightMatrix - Weight matrix to be copied.
+   * @param epoch        - Learning step of the copy.
+   * @param t            - Time variable of the copy.
+   * @param iteration    - Iteration counter of the copy.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public WeightSnapshot(WeightMatrix weightMatrix, long epoch, double t, 
+    int iteration) throws SOMException {
+    if (weightMatrix == null)
+      throw new SOMException("Not valid weight matrix");
+    
+    this.epoch     = epoch;
+    this.t         = t;
+    this.iteration = iteration;
+    
+    storage         = new WeightStorage(weightMatrix.getStorage());
+    distanceMethod  = weightMatrix.getDistanceMethod();
+    neighborsMethod = weightMatrix.getNeighborsMethod();
+    matrix          = null;
+    
+    bestMatchingIndex = null;
+    if (weightMatrix.getBestMatchingIndex() != null)
+      bestMatchingIndex = weightMatrix.getBestMatchingIndex().copy();
+  }
+  
+  /**
+   * Assessor to retrieve the learning step of the copy.
+   * 
+   * @return Learning step of the copy.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public long getEpoch() {
+    return epoch;
+  }
+  
+  /**
+   * Assessor to retrieve the time variable of the copy.
+   * 
+   * @return Time variable of the copy.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double getT() {
+    return t;
+  }
+  
+  /**
+   * Assessor to retrieve the iteration counter of the copy.
+   * 
+   * @return Iteration counter of the copy.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getIteration() {
+    return iteration;
+  }
+  
+  /**
+   * Assessor to retrieve the matrix width.
+   * 
+   * @return The matrix width.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getWidth() {
+    return storage.getWidth();
+  }
+  
+  /**
+   * Assessor to retrieve the matrix height.
+   * 
+   * @return The matrix height.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getHeight() {
+    return storage.getHeight();
+  }
+  
+  /**
+   * Assessor to retrieve the number of values of each neuron.
+   * 
+   * @return Number of values of each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getDimension() {
+    return storage.getDimension();
+  }
+  
+  /**
+   * Assessor to retrieve the distance method.
+   * 
+   * @return Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public DistanceMethodInterface getDistanceMethod() {
+    return distanceMethod;
+  }
+  
+  /**
+   * Assessor to retrieve the neighbors method.
+   * 
+   * @return Scale neighbors and learning method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public NeighborsMethodInterface getNeighborsMethod() {
+    return neighborsMethod;
+  }
+  
+  /**
+   * Assessor to retrieve some neuron weight as an element. The returned
+   * element is a copy.
+   * 
+   * @param x - X position in the matrix.
+   * @param y - Y position in the matrix.
+   * 
+   * @return Neuron weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO getWeight(int x, int y) {
+    return storage.getWeight(storage.getNeuron(x, y));
+  }
+  
+  /**
+   * Assessor to retrieve a copy of the weights, for readers that need
+   * the primitive arrays.
+   * 
+   * @return Copy of the weights.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public WeightStorage copyStorage() {
+    return new WeightStorage(storage);
+  }
+  
+  /**
+   * Assessor to retrieve the weight matrix over the copy. It is only 
+   * used by the synchronized methods, so the copy is never changed.
+   * 
+   * @return Weight matrix over the copy.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  private WeightMatrix getMatrix() throws SOMException {
+    if (matrix == null) {
+      matrix = new WeightMatrix(storage, null, neighborsMethod, 
+        distanceMethod);
+      
+      if (bestMatchingIndex != null)
+        matrix.setBestMatchingIndex(bestMatchingIndex);
+    }
+    
+    return matrix;
+  }
+  
+  /**
+   * Assessor to retrieve the U-Matrix percentage distances of the copy.
+   * 
+   * @return U-Matrix percentage distances. The array is returned without 
+   *         copy and must not be changed.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public synchronized int[][] getUMatrixDistances() throws SOMException {
+    return getMatrix().getUMatrixDistances();
+  }
+  
+  /**
+   * Assessor to retrieve the groups of the copy.
+   * 
+   * @param sampleVector - Samples to be put on weight matrix.
+   * 
+   * @return The weight element matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public WeightElementVO[][] mountGroups(SampleVectorInterface sampleVector)
+    throws SOMException {
+    return mountGroups(sampleVector, null, 1);
+  }
+  
+  /**
+   * Assessor to retrieve the groups of the copy. The samples are split
+   * between the executor threads.
+   * 
+   * @param sampleVector - Samples to be put on weight matrix.
+   * @param executor     - Executor of the search, or null to search on 
+   *                       the calling thread.
+   * @param partitions   - Number of partitions.
+   * 
+   * @return The weight element matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public synchronized WeightElementVO[][] mountGroups(
+    SampleVectorInterface sampleVector, ExecutorService executor, 
+    int partitions) throws SOMException {
+    getMatrix().setExecutor(executor, partitions);
+    
+    return getMatrix().mountGroups(sampleVector);
+  }
+  
+  /**
+   * Assessor to retrieve the U-Matrix of the copy.
+   * 
+   * @param sampleVector - Samples to be put on weight matrix.
+   * 
+   * @return The U-Matrix matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public WeightElementVO[][] mountUMatrix(SampleVectorInterface 
+    sampleVector) throws SOMException {
+    return mountUMatrix(sampleVector, null, 1);
+  }
+  
+  /**
+   * Assessor to retrieve the U-Matrix of the copy. The samples are split
+   * between the executor threads.
+   * 
+   * @param sampleVector - Samples to be put on weight matrix.
+   * @param executor     - Executor of the search, or null to search on 
+   *                       the calling thread.
+   * @param partitions   - Number of partitions.
+   * 
+   * @return The U-Matrix matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public synchronized WeightElementVO[][] mountUMatrix(
+    SampleVectorInterface sampleVector, ExecutorService executor, 
+    int partitions) throws SOMException {
+    getMatrix().setExecutor(executor, partitions);
+    
+    return getMatrix().mountUMatrix(sampleVector);
+  }
+}
@@ -0,0 +1,507 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Contiguous storage for all weights of the weight matrix. Every neuron
+ * is stored in one flat array of width*height*dimension values, ordered
+ * by X position, then Y position, then value index. Missing values are
+ * kept in a bitmap with one bit per stored value.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+ * @version 1.0
+ *
+ */
+public class WeightStorage {
+
+  /** Matrix width. */
+  private int width;
+
+  /** Matrix height. */
+  private int height;
+
+  /** Number of values of each neuron. */
+  private int dimension;
+
+  /** All neuron values. */
+  private double[] values;
+
+  /** Missing values bitmap. */
+  private long[] missing;
+
+  /** Number of bits set on the missing values bitmap. */
+  private int missingCount;
+
+  /**
+   * Constructor.
+   * 
+   * @param width     - Matrix width.
+   * @param height    - Matrix height.
+   * @param dimension - Number of values of each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public WeightStorage(int width, int height, int dimension)
+    throws SOMException {
+    if (width < 1 || height < 1)
+      throw new SOMException("Invalid matrix size: " + width + "," + height);
+
+    if (dimension < 0)
+      throw new SOMException("Invalid dimension: " + dimension);
+
+    // The sizes may come from a file or a socket, so they are checked 
+    // before the arrays are allocated.
+    if ((long) width * height > Integer.MAX_VALUE || 
+        (long) width * height * dimension > Integer.MAX_VALUE)
+      throw new SOMException("Invalid storage size: " + width + "x" + 
+        height + "x" + dimension);
+
+    this.width     = width;
+    this.height    = height;
+    this.dimension = dimension;
+
+    values  = new double[width * height * dimension];
+    missing = new long[(values.length + 63) >>> 6];
+
+    missingCount = 0;
+  }
+
+  /**
+   * Copy constructor.
+   * 
+   * @param storage - Storage to be copied.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public WeightStorage(WeightStorage storage) {
+    this.width     = storage.width;
+    this.height    = storage.height;
+    this.dimension = storage.dimension;
+
+    values  = storage.values.clone();
+    missing = storage.missing.clone();
+
+    missingCount = storage.missingCount;
+  }
+
+  /**
+   * Copy all weights of other storage to this storage.
+   * 
+   * @param storage - Storage to be copied.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void setWeights(WeightStorage storage) throws SOMException {
+    if (storage.width != width || storage.height != height || 
+        storage.dimension != dimension)
+      throw new SOMException("Problems with storage size: " + 
+        storage.width + "x" + storage.height + "x" + storage.dimension + "," +
+        width + "x" + height + "x" + dimension);
+    
+    System.arraycopy(storage.values, 0, values, 0, values.length);
+    System.arraycopy(storage.missing, 0, missing, 0, missing.length);
+    
+    missingCount = storage.missingCount;
+  }
+
+  /**
+   * Assessor to retrieve the matrix width.
+   * 
+   * @return The matrix width.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Assessor to retrieve the matrix height.
+   * 
+   * @return The matrix height.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Assessor to retrieve the number of values of each neuron.
+   * 
+   * @return Number of values of each neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getDimension() {
+    return dimension;
+  }
+
+  /**
+   * Assessor to retrieve the number of neurons.
+   * 
+   * @return Number of neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getNeuronNumber() {
+    return width * height;
+  }
+
+  /**
+   * Assessor to retrieve the neuron index of some matrix position.
+   * 
+   * @param x - X position in the matrix.
+   * @param y - Y position in the matrix.
+   * 
+   * @return Neuron index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getNeuron(int x, int y) {
+    return x * height + y;
+  }
+
+  /**
+   * Assessor to retrieve the X position of some neuron.
+   * 
+   * @param neuron - Neuron index.
+   * 
+   * @return X position in the matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getXPosition(int neuron) {
+    return neuron / height;
+  }
+
+  /**
+   * Assessor to retrieve the Y position of some neuron.
+   * 
+   * @param neuron - Neuron index.
+   * 
+   * @return Y position in the matrix.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getYPosition(int neuron) {
+    return neuron % height;
+  }
+
+  /**
+   * Assessor to retrieve the first value index of some neuron.
+   * 
+   * @param neuron - Neuron index.
+   * 
+   * @return First value index of the neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getOffset(int neuron) {
+    return neuron * dimension;
+  }
+
+  /**
+   * Assessor to retrieve the flat values array. The array is returned
+   * without copy, so the caller can read and write it directly.
+   * 
+   * @return All neuron values.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  /**
+   * Assessor to retrieve the missing values bitmap. The array is returned
+   * without copy, and the bit of each value has the flat value index.
+   * 
+   * @return Missing values bitmap.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public long[] getMissing() {
+    return missing;
+  }
+
+  /**
+   * Assessor for retrieve if the storage has missing values.
+   * 
+   * @return True if one or more values are missing, otherwise false.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public boolean hasMissing() {
+    return missingCount != 0;
+  }
+
+  /**
+   * Assessor for retrieve if some value is missing.
+   * 
+   * @param index - Flat value index.
+   * 
+   * @return True if the value is missing, otherwise false.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public boolean isMissing(int index) {
+    return (missing[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Mark some value as missing.
+   * 
+   * @param index - Flat value index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void setMissing(int index) {
+    if (!isMissing(index)) {
+      missing[index >>> 6] |= (1L << index);
+      missingCount++;
+    }
+
+    values[index] = 0.0d;
+  }
+
+  /**
+   * Assessor to set some value. The value stops being missing.
+   * 
+   * @param index - Flat value index.
+   * @param value - Value to be set.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void setValue(int index, double value) {
+    if (isMissing(index)) {
+      missing[index >>> 6] &= ~(1L << index);
+      missingCount--;
+    }
+
+    values[index] = value;
+  }
+
+  /**
+   * Assessor to retrieve some neuron weight as an element. The returned
+   * element is a copy of the stored values.
+   * 
+   * @param neuron - Neuron index.
+   * 
+   * @return Neuron weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public SOMElementVO getWeight(int neuron) {
+    int i, offset;
+    SOMElementVO weight;
+
+    weight = new SOMElementVO();
+    offset = getOffset(neuron);
+
+    for (i = offset; i < offset + dimension; i++) {
+      if (isMissing(i))
+        weight.addValue(null);
+      else
+        weight.addValue(values[i]);
+    }
+
+    return weight;
+  }
+
+  /**
+   * Assessor to set some neuron weight from an element. Values that the
+   * element does not have are marked as missing.
+   * 
+   * @param neuron - Neuron index.
+   * @param weight - Neuron weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void setWeight(int neuron, SOMElementVO weight) {
+    int i, offset;
+
+    offset = getOffset(neuron);
+
+    for (i = 0; i < dimension; i++) {
+      if (i >= weight.getNumberOfValues() || weight.isMissing(i))
+        setMissing(offset + i);
+      else
+        setValue(offset + i, weight.getDoubleValue(i));
+    }
+  }
+
+  /**
+   * Copy some neuron values to a primitive array. Missing values are 
+   * stored as zero and marked on the returned bitmap.
+   * 
+   * @param neuron - Neuron index.
+   * @param values - Destination array.
+   * 
+   * @return Missing values bitmap, or null if no value is missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public long[] copyNeuron(int neuron, double[] values) {
+    int i, offset;
+    long[] neuronMissing;
+    
+    offset        = getOffset(neuron);
+    neuronMissing = null;
+    
+    System.arraycopy(this.values, offset, values, 0, dimension);
+    
+    if (missingCount != 0) {
+      for (i = 0; i < dimension; i++) {
+        if (isMissing(offset + i)) {
+          if (neuronMissing == null)
+            neuronMissing = new long[(values.length + 63) >>> 6];
+          
+          neuronMissing[i >>> 6] |= (1L << i);
+        }
+      }
+    }
+    
+    return neuronMissing;
+  }
+  
+  /**
+   * Write the storage geometry and all weights to a stream.
+   * 
+   * @param output - Stream to be written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  public void write(DataOutput output) throws IOException {
+    int i;
+    
+    output.writeInt(width);
+    output.writeInt(height);
+    output.writeInt(dimension);
+    
+    for (i = 0; i < values.length; i++)
+      output.writeDouble(values[i]);
+    
+    output.writeInt(missingCount);
+    
+    if (missingCount != 0) {
+      for (i = 0; i < missing.length; i++)
+        output.writeLong(missing[i]);
+    }
+  }
+  
+  /**
+   * Read a storage written by the write method.
+   * 
+   * @param input - Stream to be read.
+   * 
+   * @return The storage.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * @throws SOMException
+   * 
+   */
+  public static WeightStorage read(DataInput input) 
+    throws IOException, SOMException {
+    int i;
+    WeightStorage storage;
+    
+    storage = new WeightStorage(input.readInt(), input.readInt(), 
+      input.readInt());
+    
+    for (i = 0; i < storage.values.length; i++)
+      storage.values[i] = input.readDouble();
+    
+    storage.missingCount = input.readInt();
+    
+    if (storage.missingCount != 0) {
+      for (i = 0; i < storage.missing.length; i++)
+        storage.missing[i] = input.readLong();
+    }
+    
+    return storage;
+  }
+
+  /**
+   * Copy the element values to a primitive array. Missing values are
+   * stored as zero and marked on the returned bitmap.
+   * 
+   * @param element - Element to be copied.
+   * @param values  - Destination array.
+   * 
+   * @return Missing values bitmap, or null if no value is missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public static long[] copyValues(SOMElementVO element, double[] values) {
+    int i;
+    long[] missing;
+
+    missing = null;
+
+    for (i = 0; i < element.getNumberOfValues(); i++) {
+      values[i] = element.getDoubleValue(i);
+
+      if (element.isMissing(i)) {
+        if (missing == null)
+          missing = new long[(values.length + 63) >>> 6];
+
+        missing[i >>> 6] |= (1L << i);
+      }
+    }
+
+    return missing;
+  }
+}
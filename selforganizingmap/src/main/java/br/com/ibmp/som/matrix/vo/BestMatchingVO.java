@@ -0,0 +1,125 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix.vo;
+
+/**
+ * Class that contains the result of a best matching search.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+ * @version 1.0
+ *
+ */
+public class BestMatchingVO {
+
+  /** Best matching neuron index, or -1 if no neuron was found. */
+  private int neuron;
+
+  /** Distance between the sample and the best matching neuron. */
+  private double distance;
+
+  /** Number of neurons with the same best distance. */
+  private int matchNumber;
+
+  /**
+   * Constructor.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public BestMatchingVO() {
+    setBestMatching(-1, Double.MAX_VALUE, 0);
+  }
+
+  /**
+   * Assessor to set the search result.
+   * 
+   * @param neuron      - Best matching neuron index.
+   * @param distance    - Distance between the sample and the neuron.
+   * @param matchNumber - Number of neurons with the same best distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public void setBestMatching(int neuron, double distance, int matchNumber) {
+    this.neuron      = neuron;
+    this.distance    = distance;
+    this.matchNumber = matchNumber;
+  }
+
+  /**
+   * Assessor to retrieve the best matching neuron index.
+   * 
+   * @return Best matching neuron index, or -1 if no neuron was found.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getNeuron() {
+    return neuron;
+  }
+
+  /**
+   * Assessor to set the best matching neuron index.
+   * 
+   * @param neuron - Best matching neuron index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public void setNeuron(int neuron) {
+    this.neuron = neuron;
+  }
+
+  /**
+   * Assessor to retrieve the distance between the sample and the best
+   * matching neuron.
+   * 
+   * @return Best distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  /**
+   * Assessor to retrieve the number of neurons with the same best
+   * distance.
+   * 
+   * @return Number of tied neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getMatchNumber() {
+    return matchNumber;
+  }
+
+  /**
+   * Assessor to set the number of neurons with the same best distance.
+   * 
+   * @param matchNumber - Number of tied neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public void setMatchNumber(int matchNumber) {
+    this.matchNumber = matchNumber;
+  }
+}
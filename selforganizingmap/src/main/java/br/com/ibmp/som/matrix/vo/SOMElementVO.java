@@ -17,9 +17,6 @@
  */
 package br.com.ibmp.som.matrix.vo;
 
-import java.util.List;
-import java.util.ArrayList;
-
 /**
  * Class that contains the sample element information.
  * 
@@ -35,8 +32,20 @@ public final class SOMElementVO {
   /** Element description. */
   private String description;
   
-  /** Element values. */
-  private List<Double> elements;
+  /** Element values. Missing values are stored as zero. */
+  private double[] values;
+  
+  /** Missing values bitmap, or null if no value is missing. */
+  private long[] missing;
+  
+  /** Index of the first value of this element in the arrays. */
+  private int offset;
+  
+  /** Number of values. */
+  private int size;
+  
+  /** True if the arrays belong to other class and must not be changed. */
+  private boolean shared;
   
   /**
    * Constructor.
@@ -58,7 +67,40 @@ public final class SOMElementVO {
    * 
    */
   public SOMElementVO(final String name, final String description) {
-    elements = new ArrayList<Double>(20);
+    values  = new double[20];
+    missing = null;
+    offset  = 0;
+    size    = 0;
+    shared  = false;
+    
+    setName(name);
+    setDescription(description);
+  }
+  
+  /**
+   * Constructor of an element whose values are part of larger arrays. The
+   * arrays are not copied. If a value is added to this element, the 
+   * values are copied first, so the arrays are never changed.
+   * 
+   * @param name        - Element name
+   * @param description - Element description
+   * @param values      - Array that contains the element values.
+   * @param missing     - Missing values bitmap of the whole array, or null
+   *                      if no value is missing.
+   * @param offset      - Index of the first value of this element.
+   * @param size        - Number of values.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public SOMElementVO(final String name, final String description, 
+    final double[] values, final long[] missing, final int offset, 
+    final int size) {
+    this.values  = values;
+    this.missing = missing;
+    this.offset  = offset;
+    this.size    = size;
+    this.shared  = true;
     
     setName(name);
     setDescription(description);
@@ -121,7 +163,7 @@ public final class SOMElementVO {
    * 
    */
   public int getNumberOfValues() {
-    return elements.size();
+    return size;
   }
   /**
    * Assessor for returning a some element value.
@@ -132,7 +174,53 @@ public final class SOMElementVO {
    * 
    */
   public Double getValue(final int idx) {
-    return elements.get(idx);
+    if (isMissing(idx))
+      return null;
+    
+    return values[offset + idx];
+  }
+  
+  /**
+   * Assessor for returning a some element value without boxing.
+   * 
+   * @param idx - Element index.
+   * 
+   * @return Element value, or zero if the value is missing.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public double getDoubleValue(final int idx) {
+    if (idx < 0 || idx >= size)
+      throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + 
+        size);
+    
+    return values[offset + idx];
+  }
+  
+  /**
+   * Assessor for returning if some element value is missing.
+   * 
+   * @param idx - Element index.
+   * 
+   * @return True if the value is missing, otherwise false.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public boolean isMissing(final int idx) {
+    int bit;
+    
+    if (idx < 0 || idx >= size)
+      throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + 
+        size);
+    
+    if (missing == null)
+      return false;
+    
+    bit = offset + idx;
+    
+    return (missing[bit >>> 6] & (1L << bit)) != 0;
   }
   
   /**
@@ -144,7 +232,57 @@ public final class SOMElementVO {
    * 
    */
   public void addValue(final Double value) {
-    this.elements.add(value);
+    int bit;
+    
+    if (shared || size == values.length)
+      ensureOwnValues(Math.max(20, size * 2));
+    
+    if (value == null) {
+      bit = offset + size;
+      
+      if (missing == null)
+        missing = new long[(values.length + 63) >>> 6];
+      
+      missing[bit >>> 6] |= (1L << bit);
+      values[bit] = 0.0d;
+    }
+    else
+      values[offset + size] = value.doubleValue();
+    
+    size++;
+  }
+  
+  /**
+   * Copy the values to arrays that belong to this element.
+   * 
+   * @param capacity - Capacity of the new arrays.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  private void ensureOwnValues(final int capacity) {
+    int i;
+    double[] newValues;
+    long[] newMissing;
+    
+    newValues  = new double[capacity];
+    newMissing = null;
+    
+    System.arraycopy(values, offset, newValues, 0, size);
+    
+    if (missing != null) {
+      newMissing = new long[(capacity + 63) >>> 6];
+      
+      for (i = 0; i < size; i++) {
+        if (isMissing(i))
+          newMissing[i >>> 6] |= (1L << i);
+      }
+    }
+    
+    values  = newValues;
+    missing = newMissing;
+    offset  = 0;
+    shared  = false;
   }
 
   /**
@@ -157,6 +295,6 @@ public final class SOMElementVO {
    */
   public void addMultiValue(final Double...arguments) {
     for (Double argument : arguments)
-      this.elements.add(argument);
+      addValue(argument);
   }
 }
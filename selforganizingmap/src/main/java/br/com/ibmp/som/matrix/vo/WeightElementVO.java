@@ -20,8 +20,12 @@ package br.com.ibmp.som.matrix.vo;
 import java.util.List;
 import java.util.ArrayList;
 
+import br.com.ibmp.som.matrix.WeightStorage;
+
 /**
- * Class that contains the cluster element information.
+ * Class that contains the cluster element information. The weight can be
+ * kept by the element itself or, when the element is a view, read from 
+ * and written to a weight storage.
  * 
  * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
  * @version 1.0
@@ -38,9 +42,15 @@ public class WeightElementVO {
   /** Distance between two Elements. */
   private int distance;
   
-  /** Weight vector. */
+  /** Weight vector. Not used when the element is a view. */
   private SOMElementVO weight;
   
+  /** Weight storage of the view, or null if this is not a view. */
+  private WeightStorage storage;
+  
+  /** Neuron index on the weight storage. */
+  private int neuron;
+  
   /** Cluster elements. */
   private List<SOMElementVO> group;
   
@@ -60,6 +70,27 @@ public class WeightElementVO {
     group = null;
   }
 
+  /**
+   * Constructor of a view over one neuron of a weight storage.
+   * 
+   * @param x       - X position in the matrix.
+   * @param y       - Y position in the matrix.
+   * @param storage - Weight storage that contains the neuron.
+   * @param neuron  - Neuron index on the weight storage.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public WeightElementVO(int x, int y, WeightStorage storage, int neuron) {
+    this.x       = x;
+    this.y       = y;
+    this.storage = storage;
+    this.neuron  = neuron;
+    
+    weight = null;
+    group  = null;
+  }
+
   /**
    * Return the group of this cluster.
    * 
@@ -113,7 +144,13 @@ public class WeightElementVO {
    * 
    */
   public void setNewWeight(int x, int y, SOMElementVO weight) { 
-    this.weight = weight;
+    this.x = x;
+    this.y = y;
+    
+    if (storage != null && weight != null)
+      storage.setWeight(neuron, weight);
+    else
+      this.weight = weight;
   }
   
   /**
@@ -129,9 +166,10 @@ public class WeightElementVO {
    */
   public WeightElementVO multiply(double multiplier) {
     int i;
-    SOMElementVO sample;
+    SOMElementVO sample, weight;
         
     sample = new SOMElementVO();
+    weight = getWeight();
     
     for (i = 0; i < weight.getNumberOfValues(); i++) {
       if (weight.getValue(i) == null)
@@ -156,13 +194,15 @@ public class WeightElementVO {
    */
   public WeightElementVO add(WeightElementVO adder) {
     int i;
-    SOMElementVO sample;
+    SOMElementVO sample, weight, other;
 	    
     sample = new SOMElementVO();
+    weight = getWeight();
+    other  = adder.getWeight();
 	    
     for (i = 0; i < weight.getNumberOfValues(); i++) {
-      if (weight.getValue(i) != null && adder.getWeight().getValue(i) != null)
-        sample.addValue(weight.getValue(i) + adder.getWeight().getValue(i));
+      if (weight.getValue(i) != null && other.getValue(i) != null)
+        sample.addValue(weight.getValue(i) + other.getValue(i));
       else
         sample.addValue(null);
     }
@@ -179,9 +219,36 @@ public class WeightElementVO {
    * 
    */
   public SOMElementVO getWeight() {
+    if (storage != null)
+      return storage.getWeight(neuron);
+    
     return weight;
   }
   
+  /**
+   * Assessor to retrieve the weight storage of this view.
+   * 
+   * @return Weight storage, or null if this element is not a view.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public WeightStorage getStorage() {
+    return storage;
+  }
+  
+  /**
+   * Assessor to retrieve the neuron index of this view.
+   * 
+   * @return Neuron index on the weight storage.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira
+   * 
+   */
+  public int getNeuron() {
+    return neuron;
+  }
+  
   /**
    * Return the X position of weight matrix.
    * 
@@ -0,0 +1,488 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.neighbors;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.WeightElementVO;
+
+/**
+ * Base of the neighbors methods that scale the neighbors with a kernel
+ * table. The coefficient of each offset depends only on the radius, so 
+ * the tables are kept by radius and each step only reads the table and
+ * blends the weights.
+ * 
+ * The map may be a rectangular or an hexagonal lattice, and may wrap 
+ * around its borders as a torus. The grid distances of each topology are
+ * also computed only when the table is created.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public abstract class AbstractNeighborsMethod 
+  implements NeighborsMethodInterface {
+
+  /** Neuron lattices. */
+  public enum Lattice {RECTANGULAR, HEXAGONAL};
+  
+  /** Default radius. */
+  protected final static int RADIUS = 60;
+  
+  /** Number of kernel tables kept. */
+  private final static int KERNEL_CACHE_SIZE = 16;
+ 
+  /** Radius to be used with the neighbors method. */
+  int radius;
+  
+  /** Lattice of the map neurons. */
+  private Lattice lattice;
+  
+  /** Flag that indicates a map that wraps around its borders. */
+  private boolean toroidal;
+  
+  /** Kernel tables of the last used radius, by radius. */
+  private Map<Integer, NeighborsKernel> kernels;
+  
+  /** Last used kernel table, read without locking the tables. */
+  private volatile NeighborsKernel lastKernel;
+  
+  /** 
+   * Selected weight values before the update, of each thread. The 
+   * neighbors may be scaled by many threads at the same time.
+   */
+  private ThreadLocal<double[]> bestValues;
+  
+  /** Selected weight missing values before the update, of each thread. */
+  private ThreadLocal<boolean[]> bestMissing;
+  
+  /**
+   * Constructor of a rectangular map that does not wrap.
+   * 
+   * @param radius - Radius to be used with the neighbors method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public AbstractNeighborsMethod(int radius) {
+    this.radius = radius;
+    
+    lattice  = Lattice.RECTANGULAR;
+    toroidal = false;
+    kernels  = createKernels();
+    
+    bestValues  = new ThreadLocal<double[]>();
+    bestMissing = new ThreadLocal<boolean[]>();
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param radius   - Radius to be used with the neighbors method.
+   * @param lattice  - Lattice of the map neurons.
+   * @param toroidal - Flag that indicates a map that wraps around its 
+   *                   borders.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public AbstractNeighborsMethod(int radius, Lattice lattice, 
+    boolean toroidal) throws SOMException {
+    if (lattice == null)
+      throw new SOMException("Invalid lattice");
+    
+    this.radius   = radius;
+    this.lattice  = lattice;
+    this.toroidal = toroidal;
+    
+    kernels = createKernels();
+    
+    bestValues  = new ThreadLocal<double[]>();
+    bestMissing = new ThreadLocal<boolean[]>();
+  }
+  
+  /**
+   * Create the map that keeps the kernel tables of the last used radius.
+   * 
+   * @return The kernel tables map.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static Map<Integer, NeighborsKernel> createKernels() {
+    return new LinkedHashMap<Integer, NeighborsKernel>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      protected boolean removeEldestEntry(
+        Map.Entry<Integer, NeighborsKernel> eldest) {
+        return size() > KERNEL_CACHE_SIZE;
+      }
+    };
+  }
+  
+  /**
+   * Assessor to retrieve the radius used at the start of the learning.
+   * 
+   * @return Radius used with the neighbors method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getRadius() {
+    return radius;
+  }
+  
+  /**
+   * Assessor to retrieve the lattice of the map neurons.
+   * 
+   * @return Lattice of the map neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public Lattice getLattice() {
+    return lattice;
+  }
+  
+  /**
+   * Assessor to retrieve if the map wraps around its borders.
+   * 
+   * @return True if the map is toroidal.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public boolean isToroidal() {
+    return toroidal;
+  }
+  
+  /**
+   * Assessor to retrieve the coefficient of some neighbor.
+   * 
+   * @param distance - Grid distance of the neighbor to the selected 
+   *                   weight, divided by the radius.
+   * 
+   * @return The neighbor coefficient, or zero if the neighbor is out of
+   *         the kernel.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected abstract double getCoefficient(double distance);
+  
+  /**
+   * This method will scale the neighbors and do the
+   * learning method. The grid distance of the kernel table is used, so
+   * the distance method is not needed.
+   * 
+   * @param width          - Matrix width.
+   * @param height         - Matrix height.
+   * @param matrix         - The weight matrix.
+   * @param weight         - The selected weight.
+   * @param t              - Time variable.
+   * @param distanceMethod - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void scaleNeighbors(int width, int height, WeightElementVO[][] matrix, 
+    WeightElementVO weight, double t, DistanceMethodInterface distanceMethod) 
+    throws SOMException {
+    int i, x, y;
+    double scale;
+    
+    WeightElementVO newWeight;
+    NeighborsKernel kernel;
+    
+    kernel = getKernel(t, width, height);
+    scale  = t * 4.0d + 1.0d;
+    
+    for (i = 0; i < kernel.getSize(); i++) {
+      x = kernel.getNeighborX(i, weight.getXPosition());
+      y = kernel.getNeighborY(i, weight.getXPosition(), weight.getYPosition());
+      
+      if (x >= 0 && y >= 0) {
+        newWeight = weight.multiply(kernel.getCoefficient(i) / scale).add(
+          matrix[x][y].multiply((1.0f - t)));
+        
+        matrix[x][y].setNewWeight(x, y, newWeight.getWeight());
+      }
+    }
+  }
+
+  /**
+   * Assessor to retrieve the neighborhood kernel of some time.
+   * 
+   * @param t      - Time variable.
+   * @param width  - Map width.
+   * @param height - Map height.
+   * 
+   * @return The kernel of the radius at this time.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public NeighborsKernel getKernel(double t, int width, int height) 
+    throws SOMException {
+    return getKernel(getRadius(t), width, height);
+  }
+  
+  /**
+   * Assessor to retrieve the radius used at some time.
+   * 
+   * @param t - Time variable.
+   * 
+   * @return The radius at this time.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected int getRadius(double t) {
+    return (int) Math.round((double) (radius * (1.0f - t))/2.0d);
+  }
+  
+  /**
+   * Assessor to retrieve the kernel table of some radius. The tables of
+   * the last radii are kept, so a new table is only computed for a radius
+   * that was not used recently. The tables are only locked when the 
+   * radius changes.
+   * 
+   * @param r      - Kernel radius.
+   * @param width  - Map width.
+   * @param height - Map height.
+   * 
+   * @return The kernel table.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  protected NeighborsKernel getKernel(int r, int width, int height) 
+    throws SOMException {
+    NeighborsKernel kernel;
+    
+    if (width < 1 || height < 1)
+      throw new SOMException("Invalid map size: " + width + "x" + height);
+    
+    // The odd rows would meet the even rows when the map wraps.
+    if (lattice == Lattice.HEXAGONAL && toroidal && width % 2 != 0)
+      throw new SOMException("Invalid width of an hexagonal toroidal map: "
+        + width);
+    
+    kernel = lastKernel;
+    
+    if (kernel != null && kernel.getRadius() == r && 
+        kernel.getWidth() == width && kernel.getHeight() == height)
+      return kernel;
+    
+    synchronized (kernels) {
+      kernel = kernels.get(r);
+      
+      if (kernel == null || kernel.getWidth() != width || 
+          kernel.getHeight() != height) {
+        kernel = createKernel(r, width, height);
+        kernels.put(r, kernel);
+      }
+    }
+    
+    lastKernel = kernel;
+    
+    return kernel;
+  }
+  
+  /**
+   * Create the kernel table of some radius. Every offset inside the 
+   * radius with a positive coefficient is added.
+   * 
+   * @param r      - Kernel radius.
+   * @param width  - Map width.
+   * @param height - Map height.
+   * 
+   * @return The kernel table, empty if the radius is not positive.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected NeighborsKernel createKernel(int r, int width, int height) {
+    int i, j;
+    double distance, coefficient;
+    NeighborsKernel kernel;
+    
+    if (r <= 0)
+      return newKernel(r, 0, width, height);
+    
+    // The hexagonal rows are closer, and an odd row is shifted by half a
+    // neuron, so one more offset is tried on each side.
+    kernel = newKernel(r, (2 * r + 1) * (2 * r + 3), width, height);
+    
+    for (i = -r; i <= r; i++) {
+      for (j = -r - 1; j <= r + 1; j++) {
+        distance = getGridDistance(i, j) / r;
+        
+        if (distance <= 1.0d) {
+          coefficient = getCoefficient(distance);
+          
+          if (coefficient > 0.0d)
+            kernel.add(i, j, coefficient);
+        }
+      }
+    }
+    
+    return kernel;
+  }
+  
+  /**
+   * Create an empty kernel table of this topology.
+   * 
+   * @param r        - Kernel radius.
+   * @param capacity - Maximum number of entries.
+   * @param width    - Map width.
+   * @param height   - Map height.
+   * 
+   * @return The empty kernel table.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected NeighborsKernel newKernel(int r, int capacity, int width, 
+    int height) {
+    return new NeighborsKernel(r, capacity, width, height, 
+      lattice == Lattice.HEXAGONAL, toroidal);
+  }
+  
+  /**
+   * Assessor to retrieve the grid distance of some offset. On hexagonal 
+   * maps the offset is taken from an even row, and the distance between 
+   * two adjacent neurons is one.
+   * 
+   * @param x - X offset from the selected weight.
+   * @param y - Y offset from the selected weight.
+   * 
+   * @return The grid distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double getGridDistance(int x, int y) {
+    double rowX, rowY;
+    
+    if (lattice == Lattice.RECTANGULAR)
+      return Math.sqrt((double) (x * x + y * y));
+    
+    rowX = x * Math.sqrt(3.0d) / 2.0d;
+    rowY = y;
+    
+    if ((x & 1) != 0)
+      rowY += 0.5d;
+    
+    return Math.sqrt(rowX * rowX + rowY * rowY);
+  }
+  
+  /**
+   * This method will scale the neighbors and do the learning method 
+   * directly on the weight storage, without allocating any element.
+   * 
+   * @param storage - The weight storage.
+   * @param x       - X position of the selected weight.
+   * @param y       - Y position of the selected weight.
+   * @param t       - Time variable.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void scaleNeighbors(WeightStorage storage, int x, int y, double t) 
+    throws SOMException {
+    int i, k, r;
+    int neighborX, neighborY, offset, bestOffset, dimension;
+    
+    double t1, decay;
+    double[] values, bestValues;
+    boolean hasMissing;
+    boolean[] bestMissing;
+    NeighborsKernel kernel;
+    
+    r = getRadius(t);
+    
+    if (r <= 0)
+      return;
+    
+    kernel    = getKernel(r, storage.getWidth(), storage.getHeight());
+    values    = storage.getValues();
+    dimension = storage.getDimension();
+    
+    bestValues  = this.bestValues.get();
+    bestMissing = this.bestMissing.get();
+    
+    if (bestValues == null || bestValues.length != dimension) {
+      bestValues  = new double[dimension];
+      bestMissing = new boolean[dimension];
+      
+      this.bestValues.set(bestValues);
+      this.bestMissing.set(bestMissing);
+    }
+    
+    // The neighbors are scaled from the selected weight before the update.
+    hasMissing = storage.hasMissing();
+    bestOffset = storage.getOffset(storage.getNeuron(x, y));
+    
+    for (k = 0; k < dimension; k++) {
+      bestValues[k]  = values[bestOffset + k];
+      bestMissing[k] = hasMissing && storage.isMissing(bestOffset + k);
+    }
+    
+    decay = 1.0f - t;
+    
+    for (i = 0; i < kernel.getSize(); i++) {
+      neighborX = kernel.getNeighborX(i, x);
+      neighborY = kernel.getNeighborY(i, x, y);
+      
+      if (neighborX >= 0 && neighborY >= 0) {
+        t1  = kernel.getCoefficient(i);
+        t1 /= (t * 4.0d + 1.0d);
+        
+        offset = storage.getOffset(storage.getNeuron(neighborX, neighborY));
+        
+        if (!hasMissing) {
+          for (k = 0; k < dimension; k++)
+            values[offset + k] = bestValues[k] * t1 + values[offset + k] * decay;
+        }
+        else {
+          for (k = 0; k < dimension; k++) {
+            if (bestMissing[k] || storage.isMissing(offset + k))
+              storage.setMissing(offset + k);
+            else
+              values[offset + k] = bestValues[k] * t1 + values[offset + k] * decay;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.neighbors;
+
+import br.com.ibmp.som.exception.SOMException;
+
+/**
+ * Bubble neighbors method for scale neighbors and to do the learning
+ * method. Every neighbor inside the radius has the same coefficient.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class BubbleNeighborsMethod extends AbstractNeighborsMethod {
+
+  /**
+   * Constructor.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public BubbleNeighborsMethod() {
+    this(RADIUS); 
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param radius - Radius to be used with bubble method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public BubbleNeighborsMethod(int radius) {
+    super(radius);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param radius   - Radius to be used with bubble method.
+   * @param lattice  - Lattice of the map neurons.
+   * @param toroidal - Flag that indicates a map that wraps around its 
+   *                   borders.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public BubbleNeighborsMethod(int radius, Lattice lattice, boolean toroidal) 
+    throws SOMException {
+    super(radius, lattice, toroidal);
+  }
+  
+  /**
+   * Assessor to retrieve the coefficient of some neighbor.
+   * 
+   * @param distance - Grid distance of the neighbor to the selected 
+   *                   weight, divided by the radius.
+   * 
+   * @return One inside the radius, zero outside.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double getCoefficient(double distance) {
+    return distance <= 1.0d ? 1.0d : 0.0d;
+  }
+}
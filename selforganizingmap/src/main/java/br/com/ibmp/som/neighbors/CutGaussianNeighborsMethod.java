@@ -0,0 +1,90 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.neighbors;
+
+import br.com.ibmp.som.exception.SOMException;
+
+/**
+ * Cut gaussian neighbors method for scale neighbors and to do the 
+ * learning method. The coefficient is the gaussian one inside the radius
+ * and no neighbor outside the radius is scaled.
+ * 
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class CutGaussianNeighborsMethod extends AbstractNeighborsMethod {
+
+  /**
+   * Constructor.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public CutGaussianNeighborsMethod() {
+    this(RADIUS); 
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param radius - Radius to be used with cut gaussian method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public CutGaussianNeighborsMethod(int radius) {
+    super(radius);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param radius   - Radius to be used with cut gaussian method.
+   * @param lattice  - Lattice of the map neurons.
+   * @param toroidal - Flag that indicates a map that wraps around its 
+   *                   borders.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public CutGaussianNeighborsMethod(int radius, Lattice lattice, 
+    boolean toroidal) throws SOMException {
+    super(radius, lattice, toroidal);
+  }
+  
+  /**
+   * Assessor to retrieve the coefficient of some neighbor.
+   * 
+   * @param distance - Grid distance of the neighbor to the selected 
+   *                   weight, divided by the radius.
+   * 
+   * @return The gaussian coefficient inside the radius, zero outside.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double getCoefficient(double distance) {
+    if (distance > 1.0d)
+      return 0.0d;
+    
+    return Math.exp(-1.0d * distance * distance / GaussianNeighborsMethod.WIDTH);
+  }
+}
@@ -17,10 +17,7 @@
  */
 package br.com.ibmp.som.neighbors;
 
-import br.com.ibmp.som.distance.DistanceMethodInterface;
 import br.com.ibmp.som.exception.SOMException;
-import br.com.ibmp.som.matrix.vo.SOMElementVO;
-import br.com.ibmp.som.matrix.vo.WeightElementVO;
 
 /**
  * Gaussian neighbors method for scale neighbors and to do the learning
@@ -30,19 +27,16 @@ import br.com.ibmp.som.matrix.vo.WeightElementVO;
  * @version 1.0
  *
  */
-public class GaussianNeighborsMethod implements NeighborsMethodInterface {
+public class GaussianNeighborsMethod extends AbstractNeighborsMethod {
 
-  /** Default radius. */
-  private final static int RADIUS = 60;
- 
-  /** Radius to be used with gaussian method. */
-  int radius;
+  /** Width of the gaussian over the distance divided by the radius. */
+  final static double WIDTH = 0.3d;
   
   /**
    * Constructor.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
-   *
+   * 
    */
   public GaussianNeighborsMethod() {
     this(RADIUS); 
@@ -57,76 +51,73 @@ public class GaussianNeighborsMethod implements NeighborsMethodInterface {
    * 
    */
   public GaussianNeighborsMethod(int radius) {
-    this.radius = radius;
+    super(radius);
   }
   
   /**
-   * This method will scale the neighbors and do the
-   * learning method.
+   * Constructor.
    * 
-   * @param width          - Matrix width.
-   * @param height         - Matrix height.
-   * @param matrix         - The weight matrix.
-   * @param weight         - The selected weight.
-   * @param t              - Time variable.
-   * @param distanceMethod - Distance calcule method.
+   * @param radius   - Radius to be used with gaussian method.
+   * @param lattice  - Lattice of the map neurons.
+   * @param toroidal - Flag that indicates a map that wraps around its 
+   *                   borders.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
    * @throws SOMException
    * 
    */
-  public void scaleNeighbors(int width, int height, WeightElementVO[][] matrix, 
-    WeightElementVO weight, double t, DistanceMethodInterface distanceMethod) 
+  public GaussianNeighborsMethod(int radius, Lattice lattice, boolean toroidal) 
     throws SOMException {
+    super(radius, lattice, toroidal);
+  }
+  
+  /**
+   * Assessor to retrieve the coefficient of some neighbor.
+   * 
+   * @param distance - Grid distance of the neighbor to the selected 
+   *                   weight, divided by the radius.
+   * 
+   * @return The gaussian coefficient.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected double getCoefficient(double distance) {
+    return Math.exp(-1.0d * distance * distance / WIDTH);
+  }
+  
+  /**
+   * Create the kernel table of some radius. On rectangular maps the 
+   * gaussian keeps its square of offsets from -r to r - 1 on both axes,
+   * and its coefficient does not reach zero inside it.
+   * 
+   * @param r      - Kernel radius.
+   * @param width  - Map width.
+   * @param height - Map height.
+   * 
+   * @return The gaussian kernel table, empty if the radius is not 
+   *         positive.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected NeighborsKernel createKernel(int r, int width, int height) {
     int i, j;
-    int x, y;
-	
-    double r, nullDecimal;
-    SOMElementVO outer;
-    SOMElementVO center;
-	
-    WeightElementVO newWeight;
-    
-    double t1, distanceNormalize, distance;
-    
-    r = Math.round((double) (radius * (1.0f - t))/2.0d);
-    
-    nullDecimal = 0.0d;
-    
-    outer  = new SOMElementVO();
-    center = new SOMElementVO();
+    NeighborsKernel kernel;
     
-    outer.addMultiValue(r, r, nullDecimal);
+    if (getLattice() != Lattice.RECTANGULAR)
+      return super.createKernel(r, width, height);
     
-    center.addMultiValue(nullDecimal, nullDecimal, nullDecimal);
+    kernel = newKernel(r, 4 * Math.max(r, 0) * Math.max(r, 0), width, 
+      height);
     
-    distanceNormalize = distanceMethod.calculateDistance(center, outer);
+    for (i = -r; i < r; i++) {
+      for (j = -r; j < r; j++)
+        kernel.add(i, j, 
+          getCoefficient(Math.sqrt((double) (i * i + j * j)) / r));
+    }
     
-    for (i = (int) -r; i < r; i++) {
-      for (j = (int) -r; j < r; j++) {
-        if ((i + weight.getXPosition()) >= 0 && 
-            (i + weight.getXPosition()) < width &&
-            (j + weight.getYPosition()) >= 0 && 
-            (j + weight.getYPosition()) < height) {
-          outer  = new SOMElementVO();
-          outer.addMultiValue(new Double(i), new Double(j), nullDecimal);
-          distance = distanceMethod.calculateDistance(outer, center);
-          distance /= distanceNormalize;
-          
-          t1 = Math.exp(-1.0d * (Math.pow(distance, 2.0d)) / 0.15d);
-          t1 /= (t * 4.0d + 1.0d);
-          
-          x = weight.getXPosition() + i;
-          y = weight.getYPosition() + j;
-          
-          newWeight = weight.multiply(t1).add(matrix[x][y].multiply((1.0f - t)));
-          
-          newWeight.setXPosition(x);
-          newWeight.setYPosition(y);
-          matrix[x][y] = newWeight;
-        }
-      }
-    } 
+    return kernel;
   }
 }
@@ -0,0 +1,290 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.neighbors;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed neighborhood of one radius on some map. Each entry is an 
+ * offset from the best matching neuron and the coefficient applied on 
+ * that offset.
+ * 
+ * On hexagonal maps the rows are indexed by X and the odd rows are 
+ * shifted half a neuron to the right, as the map is drawn, so the Y 
+ * offsets of an odd row center are kept apart. On toroidal maps the 
+ * offsets are kept modulo the map size, and each neuron has only one 
+ * entry, with the largest coefficient.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class NeighborsKernel {
+
+  /** Kernel radius. */
+  private int radius;
+
+  /** Map width. */
+  private int width;
+
+  /** Map height. */
+  private int height;
+
+  /** Flag that indicates an hexagonal map. */
+  private boolean hexagonal;
+
+  /** Flag that indicates a toroidal map. */
+  private boolean toroidal;
+
+  /** Number of entries. */
+  private int size;
+
+  /** X offset of each entry. */
+  private int[] xOffsets;
+
+  /** Y offset of each entry. */
+  private int[] yOffsets;
+
+  /** Y offset of each entry from an odd row, or null if not hexagonal. */
+  private int[] oddYOffsets;
+
+  /** Coefficient of each entry. */
+  private double[] coefficients;
+
+  /** Entry of each neuron on toroidal maps, or -1 if none. */
+  private int[] entries;
+
+  /**
+   * Constructor.
+   * 
+   * @param radius    - Kernel radius.
+   * @param capacity  - Maximum number of entries.
+   * @param width     - Map width.
+   * @param height    - Map height.
+   * @param hexagonal - Flag that indicates an hexagonal map.
+   * @param toroidal  - Flag that indicates a toroidal map.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public NeighborsKernel(int radius, int capacity, int width, int height,
+    boolean hexagonal, boolean toroidal) {
+    this.radius    = radius;
+    this.width     = width;
+    this.height    = height;
+    this.hexagonal = hexagonal;
+    this.toroidal  = toroidal;
+
+    if (toroidal)
+      capacity = Math.min(capacity, width * height);
+
+    size         = 0;
+    xOffsets     = new int[capacity];
+    yOffsets     = new int[capacity];
+    coefficients = new double[capacity];
+    oddYOffsets  = null;
+    entries      = null;
+
+    if (hexagonal)
+      oddYOffsets = new int[capacity];
+
+    if (toroidal && capacity > 0) {
+      entries = new int[width * height];
+      Arrays.fill(entries, -1);
+    }
+  }
+
+  /**
+   * Add an entry on this kernel. On toroidal maps an entry of a neuron 
+   * that already has one only keeps the largest coefficient.
+   * 
+   * @param x           - X offset from the best matching neuron.
+   * @param y           - Y offset from the best matching neuron, from an
+   *                      even row on hexagonal maps.
+   * @param coefficient - Coefficient applied on the offset.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void add(int x, int y, double coefficient) {
+    int entry;
+
+    if (toroidal) {
+      x = ((x % width) + width) % width;
+      y = ((y % height) + height) % height;
+
+      entry = entries[x * height + y];
+
+      if (entry >= 0) {
+        coefficients[entry] = Math.max(coefficients[entry], coefficient);
+        return;
+      }
+
+      entries[x * height + y] = size;
+    }
+
+    xOffsets[size]     = x;
+    yOffsets[size]     = y;
+    coefficients[size] = coefficient;
+
+    // An odd row neighbor of an odd row center is one neuron to the right.
+    if (hexagonal) {
+      oddYOffsets[size] = y;
+
+      if ((x & 1) != 0)
+        oddYOffsets[size] = toroidal ? (y + 1) % height : y + 1;
+    }
+
+    size++;
+  }
+
+  /**
+   * Assessor to retrieve the kernel radius.
+   * 
+   * @return Kernel radius.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getRadius() {
+    return radius;
+  }
+
+  /**
+   * Assessor to retrieve the map width.
+   * 
+   * @return Map width.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Assessor to retrieve the map height.
+   * 
+   * @return Map height.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Assessor to retrieve the number of entries.
+   * 
+   * @return Number of entries.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Assessor to retrieve the X offset of some entry.
+   * 
+   * @param idx - Entry index.
+   * 
+   * @return X offset from the best matching neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getXOffset(int idx) {
+    return xOffsets[idx];
+  }
+
+  /**
+   * Assessor to retrieve the Y offset of some entry.
+   * 
+   * @param idx - Entry index.
+   * 
+   * @return Y offset from the best matching neuron, from an even row on
+   *         hexagonal maps.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getYOffset(int idx) {
+    return yOffsets[idx];
+  }
+
+  /**
+   * Assessor to retrieve the coefficient of some entry.
+   * 
+   * @param idx - Entry index.
+   * 
+   * @return Coefficient applied on the offset.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public double getCoefficient(int idx) {
+    return coefficients[idx];
+  }
+
+  /**
+   * Assessor to retrieve the X position of some entry.
+   * 
+   * @param idx - Entry index.
+   * @param x   - X position of the best matching neuron.
+   * 
+   * @return X position of the neighbor, or -1 if it is out of the map.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getNeighborX(int idx, int x) {
+    x += xOffsets[idx];
+
+    if (toroidal)
+      return x >= width ? x - width : x;
+
+    return x >= 0 && x < width ? x : -1;
+  }
+
+  /**
+   * Assessor to retrieve the Y position of some entry.
+   * 
+   * @param idx - Entry index.
+   * @param x   - X position of the best matching neuron.
+   * @param y   - Y position of the best matching neuron.
+   * 
+   * @return Y position of the neighbor, or -1 if it is out of the map.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public int getNeighborY(int idx, int x, int y) {
+    if (hexagonal && (x & 1) != 0)
+      y += oddYOffsets[idx];
+    else
+      y += yOffsets[idx];
+
+    if (toroidal)
+      return y >= height ? y - height : y;
+
+    return y >= 0 && y < height ? y : -1;
+  }
+}
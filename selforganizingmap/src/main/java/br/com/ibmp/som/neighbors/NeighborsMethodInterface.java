@@ -19,12 +19,19 @@ package br.com.ibmp.som.neighbors;
 
 import br.com.ibmp.som.distance.DistanceMethodInterface;
 import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
 import br.com.ibmp.som.matrix.vo.WeightElementVO;
 
 /**
  * Neighbors method interface for scale neighbors and to do the learning
  * method.
  * 
+ * The scale over the weight storage and the kernel of the batch learning
+ * were added after the first version, so a class that implements only 
+ * the scale over the elements no longer compiles. New methods should 
+ * extend AbstractNeighborsMethod, which implements all of them over the
+ * coefficient of a grid distance.
+ * 
  * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
  * @version 1.0
  *
@@ -50,4 +57,41 @@ public interface NeighborsMethodInterface {
   public void scaleNeighbors(int width, int height, WeightElementVO[][] matrix, 
     WeightElementVO weight, double t, DistanceMethodInterface distanceMethod) 
     throws SOMException;  
+
+  /**
+   * This method will scale the neighbors and do the learning method 
+   * directly on the weight storage, without allocating any element.
+   * 
+   * @param storage - The weight storage.
+   * @param x       - X position of the selected weight.
+   * @param y       - Y position of the selected weight.
+   * @param t       - Time variable.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void scaleNeighbors(WeightStorage storage, int x, int y, double t) 
+    throws SOMException;
+
+  /**
+   * Assessor to retrieve the neighborhood kernel of some time. The kernel
+   * coefficients are used by the batch learning process, where each 
+   * neuron becomes the kernel weighted mean of the samples.
+   * 
+   * @param t      - Time variable.
+   * @param width  - Map width.
+   * @param height - Map height.
+   * 
+   * @return The neighborhood kernel. An empty kernel means that only the
+   *         selected weight is updated.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public NeighborsKernel getKernel(double t, int width, int height) 
+    throws SOMException;
 }
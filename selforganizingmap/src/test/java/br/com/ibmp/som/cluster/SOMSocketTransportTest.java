@@ -0,0 +1,232 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.listener.SelfOrganizingMapListener;
+import br.com.ibmp.som.matrix.SampleFiles;
+import br.com.ibmp.som.matrix.SampleVectorFile;
+import br.com.ibmp.som.matrix.SampleVectorRange;
+import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightStorage;
+
+/**
+ * Tests of the distributed learning over worker servers on the loopback 
+ * address. Each epoch is a task and a result sent through the worker 
+ * protocol.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMSocketTransportTest extends TestCase {
+
+  /** Number of worker servers. */
+  private static final int WORKERS = 2;
+  
+  /** Number of learning epochs. */
+  private static final int EPOCHS = 5;
+  
+  /** Learning samples. */
+  private SampleVectorFile sampleVector;
+  
+  /** Worker servers. */
+  private List<SOMWorkerServer> servers;
+  
+  /** Transports to the worker servers. */
+  private List<SOMTransportInterface> transports;
+  
+  /**
+   * Listener that keeps the epochs reported by the manager.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * @version 1.0
+   * 
+   */
+  private static class EpochListener implements SelfOrganizingMapListener {
+    
+    /** Epochs reported by the step end, in order. */
+    private List<Integer> epochs = new ArrayList<Integer>();
+    
+    /** Epoch reported by the end, or -1 if not ended. */
+    private int end = -1;
+    
+    /**
+     * Keep the last epoch.
+     * 
+     * @param matrix    - Learned weight matrix.
+     * @param iteration - Number of epochs.
+     * 
+     * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+     * 
+     */
+    public void end(WeightMatrix matrix, int iteration) {
+      end = iteration;
+    }
+    
+    /**
+     * Keep each epoch.
+     * 
+     * @param matrix    - Weight matrix of the epoch.
+     * @param iteration - Epoch number.
+     * 
+     * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+     * 
+     */
+    public void stepEnd(WeightMatrix matrix, int iteration) {
+      epochs.add(iteration);
+    }
+  }
+  
+  /**
+   * Start one worker server for each part of the samples.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  protected void setUp() throws Exception {
+    SOMWorkerServer server;
+    
+    sampleVector = SampleFiles.createClusters(13L, 300, 5, 4, 0.02d);
+    servers      = new ArrayList<SOMWorkerServer>();
+    transports   = new ArrayList<SOMTransportInterface>();
+    
+    for (SampleVectorRange range : SampleVectorRange.split(sampleVector, 
+      WORKERS)) {
+      server = new SOMWorkerServer(new SOMWorkerBean(range), 0);
+      server.start();
+      
+      servers.add(server);
+      transports.add(new SOMSocketTransport("localhost", server.getPort()));
+    }
+  }
+  
+  /**
+   * Close the transports and the worker servers.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  protected void tearDown() throws Exception {
+    for (SOMTransportInterface transport : transports)
+      transport.close();
+    
+    for (SOMWorkerServer server : servers)
+      server.close();
+  }
+  
+  /**
+   * Learn through the worker servers and check that every epoch is 
+   * completed and that the weights are valid.
+   * 
+   * @param mergeMode - How the worker results are merged.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  private void checkLearn(SOMWorkerManagerBean.MergeMode mergeMode) 
+    throws Exception {
+    int i;
+    WeightStorage storage;
+    EpochListener listener;
+    SOMWorkerManagerBean manager;
+    
+    listener = new EpochListener();
+    manager  = new SOMWorkerManagerBean(sampleVector, transports);
+    
+    manager.setMergeMode(mergeMode);
+    manager.setEpochIterations(50);
+    manager.addListener(listener);
+    
+    storage = manager.learn(6, 5, EPOCHS).getStorage();
+    
+    assertEquals(EPOCHS, listener.epochs.size());
+    for (i = 0; i < EPOCHS; i++)
+      assertEquals(i + 1, listener.epochs.get(i).intValue());
+    assertEquals(EPOCHS, listener.end);
+    
+    assertEquals(30, storage.getNeuronNumber());
+    assertEquals(sampleVector.getColSize(), storage.getDimension());
+    for (i = 0; i < storage.getValues().length; i++)
+      assertFalse("Value " + i, Double.isNaN(storage.getValues()[i]) || 
+        Double.isInfinite(storage.getValues()[i]));
+  }
+  
+  /**
+   * The batch epochs are merged from the worker accumulators, and the 
+   * same connections serve a second learning.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testBatch() throws Exception {
+    checkLearn(SOMWorkerManagerBean.MergeMode.BATCH);
+    checkLearn(SOMWorkerManagerBean.MergeMode.BATCH);
+  }
+  
+  /**
+   * The online epochs are merged from the mean of the worker weights.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testAverage() throws Exception {
+    checkLearn(SOMWorkerManagerBean.MergeMode.AVERAGE);
+  }
+  
+  /**
+   * A task that the worker cannot execute is answered with an error, and 
+   * the connection still serves the next learning.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testWorkerError() throws Exception {
+    SOMWorkerManagerBean manager;
+    
+    manager = new SOMWorkerManagerBean(SampleFiles.createClusters(17L, 50, 
+      3, 2, 0.0d), transports);
+    
+    try {
+      manager.learn(4, 4, 1);
+      fail("Task with other dimension accepted");
+    }
+    catch (SOMException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Worker error"));
+    }
+    
+    checkLearn(SOMWorkerManagerBean.MergeMode.BATCH);
+  }
+}
@@ -0,0 +1,180 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.index;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.distance.ManhattanDistanceMethod;
+import br.com.ibmp.som.matrix.SampleFiles;
+import br.com.ibmp.som.matrix.SampleVectorFile;
+import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.BestMatchingVO;
+import br.com.ibmp.som.neighbors.AbstractNeighborsMethod;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+
+/**
+ * Tests of the projection index. The exact search must find a neuron as 
+ * close as the best neuron of the full scan, while the map is trained.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class ProjectionBestMatchingIndexTest extends TestCase {
+
+  /** Number of batch learning epochs. */
+  private static final int EPOCHS = 8;
+  
+  /** Tolerance of the distances to the rounding errors. */
+  private static final double DELTA = 1.0e-9d;
+  
+  /**
+   * Assessor for the distance of the best neuron of a full scan.
+   * 
+   * @param storage        - Weight storage.
+   * @param distanceMethod - Distance calcule method.
+   * @param sample         - Sample values.
+   * 
+   * @return Lowest distance between the sample and the neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  private static double scan(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod, double[] sample) 
+    throws Exception {
+    int neuron;
+    double best;
+    
+    best = Double.MAX_VALUE;
+    
+    for (neuron = 0; neuron < storage.getNeuronNumber(); neuron++)
+      best = Math.min(best, distanceMethod.calculateDistance(sample, null, 
+        storage, neuron));
+    
+    return best;
+  }
+  
+  /**
+   * Train a map and compare the exact search with the full scan on every
+   * sample after each epoch.
+   * 
+   * @param distanceMethod - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  private static void checkExact(DistanceMethodInterface distanceMethod) 
+    throws Exception {
+    int epoch, idx, neuron;
+    double[] sample;
+    Random randomize;
+    SampleVectorFile sampleVector;
+    WeightMatrix weightMatrix;
+    WeightStorage storage;
+    BestMatchingVO bestMatching;
+    ProjectionBestMatchingIndex index;
+    
+    sampleVector = SampleFiles.createClusters(3L, 400, 12, 5, 0.0d);
+    weightMatrix = new WeightMatrix(14, 10, sampleVector, 
+      new GaussianNeighborsMethod(5, AbstractNeighborsMethod.Lattice.RECTANGULAR,
+      false), distanceMethod);
+    storage      = weightMatrix.getStorage();
+    sample       = new double[storage.getDimension()];
+    randomize    = new Random(5L);
+    bestMatching = new BestMatchingVO();
+    index        = new ProjectionBestMatchingIndex(3);
+    
+    for (epoch = 0; epoch <= EPOCHS; epoch++) {
+      if (epoch > 0)
+        weightMatrix.executeBatchLearn((double) epoch / EPOCHS);
+      
+      index.update(storage, distanceMethod);
+      
+      for (idx = 0; idx < sampleVector.getRowSize(); idx++) {
+        assertNull(WeightStorage.copyValues(sampleVector.getElement(idx), 
+          sample));
+        assertTrue(index.search(sample, null, randomize, bestMatching));
+        
+        neuron = bestMatching.getNeuron();
+        
+        assertEquals("Epoch " + epoch + ", sample " + idx, 
+          scan(storage, distanceMethod, sample), 
+          distanceMethod.calculateDistance(sample, null, storage, neuron),
+          DELTA);
+      }
+    }
+  }
+  
+  /**
+   * The exact search matches the full scan with the euclidean distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testExactEuclidean() throws Exception {
+    checkExact(new EuclideanDistanceMethod());
+  }
+  
+  /**
+   * The exact search matches the full scan with the manhattan distance,
+   * whose bound is derived from the euclidean one.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testExactManhattan() throws Exception {
+    checkExact(new ManhattanDistanceMethod());
+  }
+  
+  /**
+   * Storages with missing values are not indexed, so the full scan is 
+   * used instead.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testMissingStorage() throws Exception {
+    WeightStorage storage;
+    ProjectionBestMatchingIndex index;
+    
+    storage = new WeightStorage(4, 4, 3);
+    storage.setMissing(7);
+    
+    index = new ProjectionBestMatchingIndex(2);
+    index.update(storage, new EuclideanDistanceMethod());
+    
+    assertFalse(index.search(new double[3], null, new Random(), 
+      new BestMatchingVO()));
+  }
+}
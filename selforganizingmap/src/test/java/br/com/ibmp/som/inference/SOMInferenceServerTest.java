@@ -0,0 +1,244 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.inference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.inference.vo.InferenceResultVO;
+import br.com.ibmp.som.matrix.SOMModel;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+
+/**
+ * Tests of the inference server over the loopback address. Each neuron
+ * of the model has both values equal to ten times its index.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMInferenceServerTest extends TestCase {
+
+  /** Model weights. */
+  private WeightStorage storage;
+  
+  /** The server. */
+  private SOMInferenceServer server;
+  
+  /**
+   * Start a server over a small model. Samples with a negative first 
+   * value make the lookup fail with an unexpected exception.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  protected void setUp() throws Exception {
+    int i;
+    
+    storage = new WeightStorage(3, 2, 2);
+    
+    for (i = 0; i < storage.getValues().length; i++)
+      storage.setValue(i, (i / 2) * 10.0d);
+    
+    server = new SOMInferenceServer(new SOMInference(new SOMModel(storage, 
+      new EuclideanDistanceMethod(), new GaussianNeighborsMethod(), 1.0d, 
+      10, 10)) {
+      public InferenceResultVO lookup(double[] sample, long[] missing, 
+        int k) throws SOMException {
+        if (sample[0] < 0.0d)
+          throw new IllegalStateException("Negative sample");
+        
+        return super.lookup(sample, missing, k);
+      }
+    }, 0, 2);
+    server.start();
+  }
+  
+  /**
+   * Stop the server.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  protected void tearDown() {
+    server.close();
+  }
+  
+  /**
+   * Send one request to the server.
+   * 
+   * @param method - Request method.
+   * @param query  - Raw query, or null if none.
+   * @param body   - Request body, or null if none.
+   * 
+   * @return Response status and body, separated by a space.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  private String request(String method, String query, byte[] body) 
+    throws Exception {
+    int read, status;
+    byte[] buffer;
+    InputStream input;
+    OutputStream output;
+    HttpURLConnection connection;
+    ByteArrayOutputStream response;
+    
+    connection = (HttpURLConnection) new URL("http://localhost:" + 
+      server.getPort() + "/lookup" + (query == null ? "" : "?" + query))
+      .openConnection();
+    connection.setRequestMethod(method);
+    
+    try {
+      if (body != null) {
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        
+        output = connection.getOutputStream();
+        
+        try {
+          output.write(body);
+        }
+        finally {
+          output.close();
+        }
+      }
+      
+      status = connection.getResponseCode();
+      input  = status == 200 ? connection.getInputStream() : 
+        connection.getErrorStream();
+      
+      buffer   = new byte[8192];
+      response = new ByteArrayOutputStream();
+      
+      try {
+        while ((read = input.read(buffer)) != -1)
+          response.write(buffer, 0, read);
+      }
+      finally {
+        input.close();
+      }
+    }
+    finally {
+      connection.disconnect();
+    }
+    
+    return status + " " + response.toString("UTF-8");
+  }
+  
+  /**
+   * Assessor to retrieve the neuron columns of a response line.
+   * 
+   * @param neuron - Neuron index.
+   * 
+   * @return Neuron, x and y, separated by tabs.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private String line(int neuron) {
+    return neuron + "\t" + storage.getXPosition(neuron) + "\t" + 
+      storage.getYPosition(neuron);
+  }
+  
+  /**
+   * Each sample line is answered with its nearest neurons, and the empty
+   * lines are skipped.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testLookup() throws Exception {
+    assertEquals("200 " + 
+      line(2) + "\t" + Math.sqrt(8.0d) + "\t" + 
+      line(3) + "\t" + Math.sqrt(128.0d) + "\n" + 
+      line(5) + "\t" + Math.sqrt(2.0d) + "\t" + 
+      line(4) + "\t" + Math.sqrt(162.0d) + "\n", 
+      request("POST", "k=2", "22\t22\n\n49\t49\n".getBytes("UTF-8")));
+  }
+  
+  /**
+   * Invalid requests are answered with the client errors.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testInvalidRequest() throws Exception {
+    assertTrue(request("GET", null, null).startsWith("405 "));
+    assertTrue(request("POST", null, "1\tx\n".getBytes("UTF-8"))
+      .startsWith("400 Invalid value on line 1"));
+    assertTrue(request("POST", "k=7", "1\t1\n".getBytes("UTF-8"))
+      .startsWith("400 Invalid neuron number: 7"));
+  }
+  
+  /**
+   * An unexpected lookup failure is answered with a server error, and the
+   * server keeps serving.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testServerError() throws Exception {
+    assertEquals("500 java.lang.IllegalStateException: Negative sample\n", 
+      request("POST", null, "-1\t1\n".getBytes("UTF-8")));
+    assertTrue(request("POST", null, "1\t1\n".getBytes("UTF-8"))
+      .startsWith("200 0\t"));
+  }
+  
+  /**
+   * Requests with too many bytes or too many samples are rejected.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testRequestLimits() throws Exception {
+    int i;
+    StringBuilder body;
+    
+    assertTrue(request("POST", null, 
+      new byte[SOMInferenceServer.MAX_BYTES + 1]).startsWith("413 "));
+    
+    body = new StringBuilder();
+    for (i = 0; i <= SOMInferenceServer.MAX_LINES; i++)
+      body.append("1\t1\n");
+    
+    assertTrue(request("POST", null, body.toString().getBytes("UTF-8"))
+      .startsWith("400 Request with more than"));
+  }
+}
@@ -0,0 +1,180 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.distance.ManhattanDistanceMethod;
+import br.com.ibmp.som.distance.SquaredEuclideanDistanceMethod;
+import br.com.ibmp.som.matrix.vo.BestMatchingVO;
+import br.com.ibmp.som.neighbors.AbstractNeighborsMethod;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+
+/**
+ * Tests of the best matching cache. After each batch epoch the cached 
+ * search must find a neuron as close as the best neuron of the full scan.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class BestMatchingCacheTest extends TestCase {
+
+  /** Number of batch learning epochs. */
+  private static final int EPOCHS = 12;
+  
+  /** Tolerance of the distances to the rounding errors. */
+  private static final double DELTA = 1.0e-9d;
+  
+  /**
+   * Assessor for the distance of the best neuron of a full scan.
+   * 
+   * @param storage        - Weight storage.
+   * @param distanceMethod - Distance calcule method.
+   * @param sample         - Sample values.
+   * 
+   * @return Lowest distance between the sample and the neurons.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  private static double scan(WeightStorage storage, 
+    DistanceMethodInterface distanceMethod, double[] sample) 
+    throws Exception {
+    int neuron;
+    double best;
+    
+    best = Double.MAX_VALUE;
+    
+    for (neuron = 0; neuron < storage.getNeuronNumber(); neuron++)
+      best = Math.min(best, distanceMethod.calculateDistance(sample, null, 
+        storage, neuron));
+    
+    return best;
+  }
+  
+  /**
+   * Train a map and compare the cached search with the full scan on 
+   * every sample after each epoch.
+   * 
+   * @param distanceMethod - Distance calcule method.
+   * @param radius         - Grid radius of the cache window.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  private static void checkCache(DistanceMethodInterface distanceMethod, 
+    int radius) throws Exception {
+    int epoch, idx, neuron;
+    double[] sample;
+    Random randomize;
+    SampleVectorFile sampleVector;
+    WeightMatrix weightMatrix;
+    WeightStorage storage;
+    BestMatchingVO bestMatching;
+    BestMatchingCache cache;
+    
+    sampleVector = SampleFiles.createClusters(7L, 400, 8, 6, 0.0d);
+    weightMatrix = new WeightMatrix(12, 9, sampleVector, 
+      new GaussianNeighborsMethod(4, 
+      AbstractNeighborsMethod.Lattice.RECTANGULAR, false), distanceMethod);
+    storage      = weightMatrix.getStorage();
+    sample       = new double[storage.getDimension()];
+    randomize    = new Random(11L);
+    bestMatching = new BestMatchingVO();
+    cache        = new BestMatchingCache(sampleVector.getRowSize(), radius);
+    
+    for (epoch = 0; epoch <= EPOCHS; epoch++) {
+      if (epoch > 0)
+        weightMatrix.executeBatchLearn((double) epoch / EPOCHS);
+      
+      cache.update(storage, distanceMethod);
+      
+      for (idx = 0; idx < sampleVector.getRowSize(); idx++) {
+        assertNull(WeightStorage.copyValues(sampleVector.getElement(idx), 
+          sample));
+        assertTrue(cache.search(storage, distanceMethod, sample, null, idx,
+          randomize, bestMatching));
+        
+        neuron = bestMatching.getNeuron();
+        
+        assertEquals("Epoch " + epoch + ", sample " + idx, 
+          scan(storage, distanceMethod, sample), 
+          distanceMethod.calculateDistance(sample, null, storage, neuron),
+          DELTA);
+      }
+    }
+  }
+  
+  /**
+   * The cached search matches the full scan with the euclidean distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testEuclidean() throws Exception {
+    checkCache(new EuclideanDistanceMethod(), 2);
+  }
+  
+  /**
+   * The cached search matches the full scan with the manhattan distance
+   * and the smallest window.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testManhattan() throws Exception {
+    checkCache(new ManhattanDistanceMethod(), 1);
+  }
+  
+  /**
+   * Distances that are not metrics cannot bound the moves, so the cache
+   * is not used.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testNotMetric() throws Exception {
+    WeightStorage storage;
+    BestMatchingCache cache;
+    DistanceMethodInterface distanceMethod;
+    
+    storage        = new WeightStorage(4, 4, 3);
+    distanceMethod = new SquaredEuclideanDistanceMethod();
+    cache          = new BestMatchingCache(10, 1);
+    
+    cache.update(storage, distanceMethod);
+    
+    assertFalse(cache.search(storage, distanceMethod, new double[3], null,
+      0, new Random(), new BestMatchingVO()));
+  }
+}
@@ -0,0 +1,196 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import br.com.ibmp.som.SelfOrganizingMap;
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.distance.ManhattanDistanceMethod;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.neighbors.AbstractNeighborsMethod;
+import br.com.ibmp.som.neighbors.BubbleNeighborsMethod;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+
+/**
+ * Tests of the model file, written and read directly and through the 
+ * self organizing map.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SOMModelTest extends TestCase {
+
+  /**
+   * Check that two storages have the same weights and missing values.
+   * 
+   * @param expected - Expected storage.
+   * @param actual   - Read storage.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void assertStorage(WeightStorage expected,
+    WeightStorage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getDimension(), actual.getDimension());
+    assertTrue(Arrays.equals(expected.getValues(), actual.getValues()));
+    assertEquals(expected.hasMissing(), actual.hasMissing());
+    assertTrue(Arrays.equals(expected.getMissing(), actual.getMissing()));
+  }
+
+  /**
+   * A model with missing values and a toroidal hexagonal lattice is read
+   * as it was written.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testWriteRead() throws Exception {
+    int i;
+    String fileName;
+    WeightStorage storage;
+    SOMModel model;
+    AbstractNeighborsMethod neighborsMethod;
+
+    storage = new WeightStorage(7, 5, 3);
+
+    for (i = 0; i < storage.getValues().length; i++)
+      storage.setValue(i, Math.sin(i) * 1e3);
+
+    storage.setMissing(4);
+    storage.setMissing(100);
+
+    fileName = SampleFiles.createFile(".som").getPath();
+
+    new SOMModel(storage, new ManhattanDistanceMethod(),
+      new BubbleNeighborsMethod(4, AbstractNeighborsMethod.Lattice.HEXAGONAL,
+      true), 0.25d, 17, 68).write(fileName);
+
+    model = SOMModel.read(fileName);
+
+    assertStorage(storage, model.getStorage());
+    assertEquals(0.25d, model.getT(), 0.0d);
+    assertEquals(17, model.getIteration());
+    assertEquals(68, model.getIterationNumber());
+    assertEquals(ManhattanDistanceMethod.class,
+      model.getDistanceMethod().getClass());
+    assertEquals(BubbleNeighborsMethod.class,
+      model.getNeighborsMethod().getClass());
+
+    neighborsMethod = (AbstractNeighborsMethod) model.getNeighborsMethod();
+
+    assertEquals(4, neighborsMethod.getRadius());
+    assertEquals(AbstractNeighborsMethod.Lattice.HEXAGONAL,
+      neighborsMethod.getLattice());
+    assertTrue(neighborsMethod.isToroidal());
+  }
+
+  /**
+   * A map written in the middle of the learning process is read with the
+   * same weights, time and methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testSelfOrganizingMap() throws Exception {
+    int i;
+    String fileName;
+    SampleVectorFile sampleVector;
+    SelfOrganizingMap som, read;
+    WeightSnapshot expected, actual;
+    AbstractNeighborsMethod neighborsMethod;
+
+    sampleVector = SampleFiles.createClusters(1L, 200, 4, 3, 0.05d);
+    som          = new SelfOrganizingMap(100, sampleVector);
+    fileName     = SampleFiles.createFile(".som").getPath();
+
+    som.stepLearn(6, 4, new EuclideanDistanceMethod(),
+      new GaussianNeighborsMethod(3, AbstractNeighborsMethod.Lattice.HEXAGONAL,
+      false));
+
+    for (i = 0; i < 30; i++)
+      som.stepLearn();
+
+    som.writeModel(fileName);
+
+    read     = SelfOrganizingMap.readModel(fileName, sampleVector);
+    expected = som.getSnapshot();
+    actual   = read.getSnapshot();
+
+    assertStorage(expected.copyStorage(), actual.copyStorage());
+    assertEquals(expected.getT(), actual.getT(), 0.0d);
+    assertEquals(expected.getIteration(), actual.getIteration());
+    assertEquals(100, read.getIterationNumber());
+    assertEquals(EuclideanDistanceMethod.class,
+      actual.getDistanceMethod().getClass());
+    assertEquals(GaussianNeighborsMethod.class,
+      actual.getNeighborsMethod().getClass());
+
+    neighborsMethod = (AbstractNeighborsMethod) actual.getNeighborsMethod();
+
+    assertEquals(3, neighborsMethod.getRadius());
+    assertEquals(AbstractNeighborsMethod.Lattice.HEXAGONAL,
+      neighborsMethod.getLattice());
+    assertFalse(neighborsMethod.isToroidal());
+  }
+
+  /**
+   * A truncated model file is rejected.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testTruncatedFile() throws Exception {
+    File file;
+    RandomAccessFile output;
+
+    file = SampleFiles.createFile(".som");
+
+    new SOMModel(new WeightStorage(4, 4, 2), new EuclideanDistanceMethod(),
+      new GaussianNeighborsMethod(), 0.0d, 0, 10).write(file.getPath());
+
+    output = new RandomAccessFile(file, "rw");
+
+    try {
+      output.setLength(file.length() - 8);
+    }
+    finally {
+      output.close();
+    }
+
+    try {
+      SOMModel.read(file.getPath());
+      fail("Truncated file accepted");
+    }
+    catch (SOMException e) {
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+import br.com.ibmp.som.exception.SOMException;
+
+/**
+ * Sample files written for the tests.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public final class SampleFiles {
+
+  /**
+   * Constructor. This class only has static methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private SampleFiles() {
+  }
+
+  /**
+   * Assessor to create a temporary file that is deleted on exit.
+   * 
+   * @param suffix - File name suffix.
+   * 
+   * @return The file.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  public static File createFile(String suffix) throws IOException {
+    File file;
+
+    file = File.createTempFile("som", suffix);
+    file.deleteOnExit();
+
+    return file;
+  }
+
+  /**
+   * Write a sample file.
+   * 
+   * @param content - File content.
+   * 
+   * @return File name.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  public static String write(String content) throws IOException {
+    File file;
+    FileOutputStream output;
+
+    file   = createFile(".tsv");
+    output = new FileOutputStream(file);
+
+    try {
+      output.write(content.getBytes("UTF-8"));
+    }
+    finally {
+      output.close();
+    }
+
+    return file.getPath();
+  }
+
+  /**
+   * Create a sample file with lines around some random centers.
+   * 
+   * @param seed     - Random seed.
+   * @param rows     - Number of lines.
+   * @param cols     - Number of values of each line.
+   * @param clusters - Number of centers.
+   * @param missing  - Probability of a missing value.
+   * 
+   * @return The sample vector.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * @throws SOMException
+   * 
+   */
+  public static SampleVectorFile createClusters(long seed, int rows,
+    int cols, int clusters, double missing) throws IOException,
+    SOMException {
+    int i, j, cluster;
+    double[][] centers;
+    StringBuilder content;
+    Random random;
+
+    random  = new Random(seed);
+    centers = new double[clusters][cols];
+    content = new StringBuilder("Name\tDescription");
+
+    for (i = 0; i < clusters; i++)
+      for (j = 0; j < cols; j++)
+        centers[i][j] = random.nextDouble() * 10.0d;
+
+    for (j = 0; j < cols; j++)
+      content.append("\tC" + j);
+
+    content.append("\n");
+
+    for (i = 0; i < rows; i++) {
+      cluster = random.nextInt(clusters);
+      content.append("L" + i + "\tCluster " + cluster);
+
+      for (j = 0; j < cols; j++) {
+        content.append("\t");
+
+        if (random.nextDouble() >= missing)
+          content.append(String.format(Locale.US, "%.4f",
+            centers[cluster][j] + random.nextGaussian() * 0.5d));
+      }
+
+      content.append("\n");
+    }
+
+    return new SampleVectorFile(write(content.toString()));
+  }
+}
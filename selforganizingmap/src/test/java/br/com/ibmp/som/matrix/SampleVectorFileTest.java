@@ -0,0 +1,291 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Tests of the sample file reader. The values read by the fast path are
+ * compared with the values of the Double class.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SampleVectorFileTest extends TestCase {
+
+  /** Header with three values. */
+  private static final String HEADER = "Name\tDescription\tA\tB\tC\n";
+
+  /**
+   * Write a sample file.
+   * 
+   * @param content - File content.
+   * 
+   * @return File name.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  private static String write(String content) throws IOException {
+    File file;
+    FileOutputStream output;
+
+    file = File.createTempFile("sample", ".tsv");
+    file.deleteOnExit();
+
+    output = new FileOutputStream(file);
+
+    try {
+      output.write(content.getBytes("UTF-8"));
+    }
+    finally {
+      output.close();
+    }
+
+    return file.getPath();
+  }
+
+  /**
+   * Check that a value is read as the Double class reads it.
+   * 
+   * @param text    - Value text.
+   * @param element - Element read.
+   * @param idx     - Value index.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static void assertParsed(String text, SOMElementVO element,
+    int idx) {
+    assertFalse(text, element.isMissing(idx));
+    assertEquals(text, Double.doubleToLongBits(Double.parseDouble(text)),
+      Double.doubleToLongBits(element.getDoubleValue(idx)));
+  }
+
+  /**
+   * Empty columns and columns missing in the end of the line are missing
+   * values.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testEmptyFields() throws Exception {
+    SampleVectorFile sampleVector;
+
+    sampleVector = new SampleVectorFile(write(HEADER +
+      "L1\tFirst\t1.5\t\t2\n" +
+      "L2\t\t\t \t-3\n" +
+      "L3\tThird\t4\n"));
+
+    assertEquals(3, sampleVector.getRowSize());
+    assertEquals(3, sampleVector.getColSize());
+
+    assertEquals("L1", sampleVector.getElement(0).getName());
+    assertParsed("1.5", sampleVector.getElement(0), 0);
+    assertTrue(sampleVector.getElement(0).isMissing(1));
+    assertParsed("2", sampleVector.getElement(0), 2);
+
+    assertEquals(" ", sampleVector.getElement(1).getDescription());
+    assertTrue(sampleVector.getElement(1).isMissing(0));
+    assertTrue(sampleVector.getElement(1).isMissing(1));
+    assertParsed("-3", sampleVector.getElement(1), 2);
+
+    assertParsed("4", sampleVector.getElement(2), 0);
+    assertTrue(sampleVector.getElement(2).isMissing(1));
+    assertTrue(sampleVector.getElement(2).isMissing(2));
+  }
+
+  /**
+   * Lines ended by carriage return and line feed are read as the ones
+   * ended only by line feed, also when the last line has no line break.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testCrLfLineEndings() throws Exception {
+    SampleVectorFile sampleVector;
+
+    sampleVector = new SampleVectorFile(write(
+      HEADER.replace("\n", "\r\n") +
+      "L1\tFirst\t1\t2\t3\r\n" +
+      "L2\tSecond\t4\t5\t\r\n" +
+      "L3\tThird\t7\t8\t9"));
+
+    assertEquals(3, sampleVector.getRowSize());
+    assertEquals("C", sampleVector.getHeader().get(4));
+    assertEquals("First", sampleVector.getElement(0).getDescription());
+    assertParsed("3", sampleVector.getElement(0), 2);
+    assertTrue(sampleVector.getElement(1).isMissing(2));
+    assertParsed("9", sampleVector.getElement(2), 2);
+  }
+
+  /**
+   * Empty columns after the last header column are ignored on the header
+   * and on the lines.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testTrailingTabs() throws Exception {
+    SampleVectorFile sampleVector;
+
+    sampleVector = new SampleVectorFile(write(
+      "Name\tDescription\tA\tB\tC\t\t\n" +
+      "L1\tFirst\t1\t2\t3\t\t\t\n" +
+      "L2\tSecond\t4\t5\t6\t \t\n"));
+
+    assertEquals(3, sampleVector.getColSize());
+    assertEquals(2, sampleVector.getRowSize());
+    assertParsed("3", sampleVector.getElement(0), 2);
+    assertParsed("6", sampleVector.getElement(1), 2);
+  }
+
+  /**
+   * A line with more values than the header is rejected.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testExtraColumn() throws Exception {
+    String fileName;
+
+    fileName = write(HEADER + "L1\tFirst\t1\t2\t3\n" +
+      "L2\tSecond\t4\t5\t6\t7\n");
+
+    try {
+      new SampleVectorFile(fileName);
+      fail("Extra column accepted");
+    }
+    catch (SOMException e) {
+      assertTrue(e.getMessage(), e.getMessage().endsWith("line 2"));
+    }
+  }
+
+  /**
+   * Values out of the fast path range, with long mantissas or large
+   * exponents, are read as the Double class reads them.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testLongMantissaAndExponents() throws Exception {
+    int i;
+    String[] texts;
+    StringBuilder content;
+    SampleVectorFile sampleVector;
+
+    texts = new String[] {
+      "12345678901234567890123", "1234567890123456789.5",
+      "0.12345678901234567890123", "9007199254740993",
+      "100000000000000000000000", "-0.000000000000000000001234",
+      "1e22", "1e23", "1e-22", "1e-23", "4.9e-324", "1.7976931348623157E308",
+      "-2.5e-300", "123.456e-30", "0", "-0", "+7.25"
+    };
+
+    content = new StringBuilder(HEADER);
+
+    for (i = 0; i < texts.length; i++)
+      content.append("L" + i + "\tLine\t" + texts[i] + "\t1\t1\n");
+
+    sampleVector = new SampleVectorFile(write(content.toString()));
+
+    for (i = 0; i < texts.length; i++)
+      assertParsed(texts[i], sampleVector.getElement(i), 0);
+  }
+
+  /**
+   * Random values in many formats are read as the Double class reads
+   * them.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testRandomValues() throws Exception {
+    int i, j, lines;
+    double value;
+    String[][] texts;
+    StringBuilder content;
+    Random random;
+    SampleVectorFile sampleVector;
+
+    random  = new Random(20061018L);
+    lines   = 5000;
+    texts   = new String[lines][3];
+    content = new StringBuilder(HEADER);
+
+    for (i = 0; i < lines; i++) {
+      content.append("L" + i + "\tLine");
+
+      for (j = 0; j < 3; j++) {
+        value = (random.nextDouble() - 0.5d) *
+          Math.pow(10.0d, random.nextInt(60) - 30);
+
+        switch (random.nextInt(4)) {
+          case 0:
+            texts[i][j] = Double.toString(value);
+            break;
+          case 1:
+            texts[i][j] = String.format(Locale.US, "%." +
+              random.nextInt(25) + "f", value);
+            break;
+          case 2:
+            texts[i][j] = String.format(Locale.US, "%." +
+              random.nextInt(20) + "e", value);
+            break;
+          default:
+            texts[i][j] = Long.toString(random.nextLong() >>
+              random.nextInt(64));
+        }
+
+        content.append("\t" + texts[i][j]);
+      }
+
+      content.append("\n");
+    }
+
+    sampleVector = new SampleVectorFile(write(content.toString()));
+
+    for (i = 0; i < lines; i++)
+      for (j = 0; j < 3; j++)
+        assertParsed(texts[i][j], sampleVector.getElement(i), j);
+  }
+}
@@ -0,0 +1,89 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the sample vector ranges used by the distributed learning.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SampleVectorRangeTest extends TestCase {
+
+  /**
+   * The ranges of a split cover every line once, in order.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testSplit() throws Exception {
+    int i, row;
+    SampleVectorFile sampleVector;
+    SampleVectorRange[] ranges;
+    
+    sampleVector = SampleFiles.createClusters(19L, 10, 2, 2, 0.0d);
+    ranges       = SampleVectorRange.split(sampleVector, 3);
+    row          = 0;
+    
+    assertEquals(3, ranges.length);
+    
+    for (SampleVectorRange range : ranges) {
+      assertEquals(2, range.getColSize());
+      
+      for (i = 0; i < range.getRowSize(); i++, row++)
+        assertEquals(sampleVector.getElement(row).getName(), 
+          range.getElement(i).getName());
+    }
+    
+    assertEquals(sampleVector.getRowSize(), row);
+  }
+  
+  /**
+   * Lines outside the range are rejected, also when they exist on the 
+   * whole sample vector.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws Exception
+   * 
+   */
+  public void testOutOfRange() throws Exception {
+    int i;
+    int[] indexes;
+    SampleVectorRange range;
+    
+    range   = new SampleVectorRange(SampleFiles.createClusters(23L, 10, 2, 
+      2, 0.0d), 3, 6);
+    indexes = new int[] {-4, -1, 3, 7};
+    
+    for (i = 0; i < indexes.length; i++) {
+      try {
+        range.getElement(indexes[i]);
+        fail("Index accepted: " + indexes[i]);
+      }
+      catch (IndexOutOfBoundsException e) {
+        assertEquals("Index: " + indexes[i] + ", Size: 3", e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.matrix;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Tests of the sample vector over an in memory database. Derby or H2 is
+ * used, whichever is on the test class path, and the tests are skipped
+ * when there is none of them.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class SampleVectorSQLTest extends TestCase {
+
+  /** Drivers and in memory urls tried, in order. */
+  private static final String[][] DATABASES = {
+    {"org.apache.derby.jdbc.EmbeddedDriver",
+      "jdbc:derby:memory:somtest;create=true"},
+    {"org.h2.Driver", "jdbc:h2:mem:somtest"}
+  };
+
+  /** Number of lines of the sample table. */
+  private static final int ROW_SIZE = 250;
+
+  /** Number of lines of each page. */
+  private static final int PAGE_SIZE = 100;
+
+  /** Database connection, or null if there is no driver. */
+  private Connection connection;
+
+  /**
+   * Open the database and create the sample tables. Each third line
+   * misses its second value.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SQLException
+   * 
+   */
+  protected void setUp() throws SQLException {
+    int i, row;
+    Statement statement;
+    PreparedStatement insert;
+
+    connection = null;
+
+    for (i = 0; connection == null && i < DATABASES.length; i++) {
+      try {
+        Class.forName(DATABASES[i][0]);
+      }
+      catch (ClassNotFoundException e) {
+        continue;
+      }
+
+      connection = DriverManager.getConnection(DATABASES[i][1]);
+    }
+
+    if (connection == null)
+      return;
+
+    statement = connection.createStatement();
+
+    try {
+      statement.executeUpdate("CREATE TABLE SAMPLES (NAME VARCHAR(16) " +
+        "PRIMARY KEY, DESCRIPTION VARCHAR(32), A DOUBLE, B DOUBLE)");
+      statement.executeUpdate("CREATE TABLE EMPTY_SAMPLES (NAME " +
+        "VARCHAR(16) PRIMARY KEY, DESCRIPTION VARCHAR(32), A DOUBLE)");
+    }
+    finally {
+      statement.close();
+    }
+
+    insert = connection.prepareStatement(
+      "INSERT INTO SAMPLES VALUES (?, ?, ?, ?)");
+
+    try {
+      for (row = 0; row < ROW_SIZE; row++) {
+        insert.setString(1, name(row));
+        insert.setString(2, "Line " + row);
+        insert.setDouble(3, row);
+
+        if (row % 3 == 0)
+          insert.setNull(4, java.sql.Types.DOUBLE);
+        else
+          insert.setDouble(4, -row);
+
+        insert.executeUpdate();
+      }
+    }
+    finally {
+      insert.close();
+    }
+  }
+
+  /**
+   * Drop the sample tables and close the database.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SQLException
+   * 
+   */
+  protected void tearDown() throws SQLException {
+    Statement statement;
+
+    if (connection == null)
+      return;
+
+    statement = connection.createStatement();
+
+    try {
+      statement.executeUpdate("DROP TABLE SAMPLES");
+      statement.executeUpdate("DROP TABLE EMPTY_SAMPLES");
+    }
+    finally {
+      statement.close();
+      connection.close();
+    }
+  }
+
+  /**
+   * Assessor to retrieve the name of a line, ordered as the line number.
+   * 
+   * @param row - Line number.
+   * 
+   * @return Line name.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static String name(int row) {
+    return "L" + (10000 + row);
+  }
+
+  /**
+   * Check one line read from the table.
+   * 
+   * @param element - Line read.
+   * 
+   * @return Line number.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private static int checkElement(SOMElementVO element) {
+    int row;
+
+    row = (int) element.getDoubleValue(0);
+
+    assertEquals(name(row), element.getName());
+    assertEquals("Line " + row, element.getDescription());
+    assertEquals(row % 3 == 0, element.isMissing(1));
+
+    if (row % 3 != 0)
+      assertEquals(-row, element.getDoubleValue(1), 0.0d);
+
+    return row;
+  }
+
+  /**
+   * Every line is read in the table order, through pages that do not fit
+   * on the cache.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void testGetElement() throws SOMException {
+    int row;
+    SampleVectorSQL sampleVector;
+
+    if (connection == null)
+      return;
+
+    sampleVector = new SampleVectorSQL(connection, "SAMPLES", PAGE_SIZE, 2);
+
+    try {
+      assertEquals(ROW_SIZE, sampleVector.getRowSize());
+      assertEquals(2, sampleVector.getColSize());
+
+      for (row = 0; row < ROW_SIZE; row++)
+        assertEquals(row, checkElement(sampleVector.getElement(row)));
+
+      assertEquals(0, checkElement(sampleVector.getElement(0)));
+    }
+    finally {
+      sampleVector.close();
+    }
+  }
+
+  /**
+   * The random samples are taken from all pages, and the lines of the
+   * shorter last page are not taken more often than the others.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public void testRandomizeSample() throws SOMException {
+    int i, samples;
+    int[] pages;
+    SampleVectorSQL sampleVector;
+
+    if (connection == null)
+      return;
+
+    sampleVector = new SampleVectorSQL(connection, "SAMPLES", PAGE_SIZE, 4);
+    samples      = 50000;
+    pages        = new int[(ROW_SIZE + PAGE_SIZE - 1) / PAGE_SIZE];
+
+    try {
+      for (i = 0; i < ROW_SIZE; i++)
+        sampleVector.getElement(i);
+
+      for (i = 0; i < samples; i++)
+        pages[checkElement(sampleVector.randomizeSample()) / PAGE_SIZE]++;
+    }
+    finally {
+      sampleVector.close();
+    }
+
+    for (i = 0; i < pages.length; i++)
+      assertEquals("Page " + i, (double) samples *
+        Math.min(PAGE_SIZE, ROW_SIZE - i * PAGE_SIZE) / ROW_SIZE,
+        pages[i], samples * 0.03d);
+  }
+
+  /**
+   * An empty table is rejected, since there is no sample to take.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  public void testEmptyTable() {
+    if (connection == null)
+      return;
+
+    try {
+      new SampleVectorSQL(connection, "EMPTY_SAMPLES");
+      fail("Empty table accepted");
+    }
+    catch (SOMException e) {
+    }
+  }
+}
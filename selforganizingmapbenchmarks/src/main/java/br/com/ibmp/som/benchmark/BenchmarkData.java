@@ -0,0 +1,132 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
+
+/**
+ * Generator of the random data used by the benchmarks. The same seed 
+ * always generates the same data, so the runs can be compared.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public final class BenchmarkData {
+
+  /** Seed of all generated data. */
+  public static final long SEED = 42L;
+  
+  /**
+   * Constructor. This class only has static methods.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  private BenchmarkData() {
+  }
+  
+  /**
+   * Create a temporary sample file with random gaussian values. The file
+   * is deleted when the JVM exits.
+   * 
+   * @param rows      - Number of lines.
+   * @param dimension - Number of values of each line.
+   * 
+   * @return The sample file.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * 
+   */
+  public static File createSampleFile(int rows, int dimension) 
+    throws IOException {
+    int row, i;
+    File file;
+    Random randomize;
+    BufferedWriter writer;
+    
+    file = File.createTempFile("som-benchmark", ".tsv");
+    file.deleteOnExit();
+    
+    randomize = new Random(SEED);
+    writer    = new BufferedWriter(new FileWriter(file));
+    
+    try {
+      writer.write("name\tdescription");
+      
+      for (i = 0; i < dimension; i++)
+        writer.write("\tv" + i);
+      
+      writer.newLine();
+      
+      for (row = 0; row < rows; row++) {
+        writer.write("s" + row + "\tsample " + row);
+        
+        for (i = 0; i < dimension; i++)
+          writer.write("\t" + randomize.nextGaussian());
+        
+        writer.newLine();
+      }
+    }
+    finally {
+      writer.close();
+    }
+    
+    return file;
+  }
+  
+  /**
+   * Create a weight storage with random gaussian values.
+   * 
+   * @param width     - Matrix width.
+   * @param height    - Matrix height.
+   * @param dimension - Number of values of each neuron.
+   * 
+   * @return The weight storage.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public static WeightStorage createStorage(int width, int height, 
+    int dimension) throws SOMException {
+    int i;
+    double[] values;
+    Random randomize;
+    WeightStorage storage;
+    
+    storage   = new WeightStorage(width, height, dimension);
+    values    = storage.getValues();
+    randomize = new Random(SEED);
+    
+    for (i = 0; i < values.length; i++)
+      values[i] = randomize.nextGaussian();
+    
+    return storage;
+  }
+}
@@ -0,0 +1,74 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.benchmark;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.SampleVectorInterface;
+import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+import br.com.ibmp.som.matrix.vo.WeightElementVO;
+import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
+
+/**
+ * Weight matrix that exposes the best matching search to the benchmarks.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+public class BenchmarkWeightMatrix extends WeightMatrix {
+
+  /**
+   * Constructor.
+   * 
+   * @param storage         - Weights of the matrix.
+   * @param sampleVector    - Sample vector.
+   * @param neighborsMethod - Scale neighbors and learning method.
+   * @param distanceMethod  - Distance calcule method.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public BenchmarkWeightMatrix(WeightStorage storage, 
+    SampleVectorInterface sampleVector, 
+    NeighborsMethodInterface neighborsMethod, 
+    DistanceMethodInterface distanceMethod) throws SOMException {
+    super(storage, sampleVector, neighborsMethod, distanceMethod);
+  }
+  
+  /**
+   * Find the best matching weight of a sample.
+   * 
+   * @param sample - The sample.
+   * 
+   * @return The best matching weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  public WeightElementVO getBestMatchingWeight(SOMElementVO sample) 
+    throws SOMException {
+    return super.getBestMatchingWeight(sample);
+  }
+}
@@ -0,0 +1,142 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.SampleVectorFile;
+import br.com.ibmp.som.matrix.vo.WeightElementVO;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+
+/**
+ * Benchmark of the best matching search of one sample.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BestMatchingBenchmark {
+
+  /** Number of samples that are searched one after other. */
+  private static final int SAMPLE_NUMBER = 1024;
+  
+  /** Width and height of the map. */
+  @Param({"10", "40", "100"})
+  public int mapSize;
+  
+  /** Number of values of each sample. */
+  @Param({"8", "64"})
+  public int dimension;
+  
+  /** Number of partitions of the search, 1 for the serial search. */
+  @Param({"1", "4"})
+  public int partitions;
+  
+  /** Weight matrix. */
+  private BenchmarkWeightMatrix weightMatrix;
+  
+  /** Samples. */
+  private SampleVectorFile sampleVector;
+  
+  /** Executor of the parallel search. */
+  private ExecutorService executor;
+  
+  /** Next sample. */
+  private int sample;
+  
+  /**
+   * Create the map and the samples.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * @throws SOMException
+   * 
+   */
+  @Setup
+  public void setup() throws IOException, SOMException {
+    File file;
+    
+    file         = BenchmarkData.createSampleFile(SAMPLE_NUMBER, dimension);
+    sampleVector = new SampleVectorFile(file.getPath());
+    weightMatrix = new BenchmarkWeightMatrix(BenchmarkData.createStorage(
+      mapSize, mapSize, dimension), sampleVector, 
+      new GaussianNeighborsMethod(), new EuclideanDistanceMethod());
+    
+    if (partitions > 1) {
+      executor = Executors.newFixedThreadPool(partitions);
+      weightMatrix.setExecutor(executor, partitions);
+    }
+    
+    sample = 0;
+  }
+  
+  /**
+   * Stop the executor.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   */
+  @TearDown
+  public void tearDown() {
+    if (executor != null)
+      executor.shutdown();
+  }
+  
+  /**
+   * Search the best matching weight of the next sample.
+   * 
+   * @return The best matching weight.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Benchmark
+  public WeightElementVO bestMatching() throws SOMException {
+    sample = (sample + 1) % SAMPLE_NUMBER;
+    
+    return weightMatrix.getBestMatchingWeight(sampleVector.getElement(sample));
+  }
+}
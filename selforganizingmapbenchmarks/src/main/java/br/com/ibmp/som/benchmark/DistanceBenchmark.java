@@ -0,0 +1,123 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ibmp.som.distance.DistanceMethodInterface;
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.matrix.vo.SOMElementVO;
+
+/**
+ * Benchmark of the distance between one sample and one neuron.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+  /** Number of values of the sample. */
+  @Param({"4", "16", "64", "256"})
+  public int dimension;
+  
+  /** Distance calcule method. */
+  private DistanceMethodInterface distanceMethod;
+  
+  /** Storage whose neuron 1 is compared with the sample. */
+  private WeightStorage storage;
+  
+  /** Sample values. */
+  private double[] sample;
+  
+  /** Sample element. */
+  private SOMElementVO sampleElement;
+  
+  /** Neuron element. */
+  private SOMElementVO weightElement;
+  
+  /**
+   * Create the sample and the neuron.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Setup
+  public void setup() throws SOMException {
+    distanceMethod = new EuclideanDistanceMethod();
+    storage        = BenchmarkData.createStorage(1, 2, dimension);
+    sample         = new double[dimension];
+    
+    System.arraycopy(storage.getValues(), 0, sample, 0, dimension);
+    
+    sampleElement = storage.getWeight(0);
+    weightElement = storage.getWeight(1);
+  }
+  
+  /**
+   * Distance over the primitive weight storage.
+   * 
+   * @return The distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Benchmark
+  public double storage() throws SOMException {
+    return distanceMethod.calculateDistance(sample, null, storage, 1);
+  }
+  
+  /**
+   * Distance between two elements.
+   * 
+   * @return The distance.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Benchmark
+  public double element() throws SOMException {
+    return distanceMethod.calculateDistance(sampleElement, weightElement);
+  }
+}
@@ -0,0 +1,128 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ibmp.som.distance.EuclideanDistanceMethod;
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.index.ProjectionBestMatchingIndex;
+import br.com.ibmp.som.matrix.SampleVectorFile;
+import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.vo.WeightElementVO;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+
+/**
+ * Benchmark of the sample groups mounting over a learned map.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MountGroupsBenchmark {
+
+  /** Number of projections of the best matching index. */
+  private static final int PROJECTION_NUMBER = 8;
+  
+  /** Number of neurons calculated by the approximate index. */
+  private static final int CANDIDATE_NUMBER = 32;
+  
+  /** Width and height of the map. */
+  @Param({"10", "40"})
+  public int mapSize;
+  
+  /** Number of samples. */
+  @Param({"1000", "10000"})
+  public int rows;
+  
+  /** Number of values of each sample. */
+  @Param({"16"})
+  public int dimension;
+  
+  /** Best matching index: none, exact or approximate. */
+  @Param({"none", "exact", "approximate"})
+  public String index;
+  
+  /** Weight matrix. */
+  private WeightMatrix weightMatrix;
+  
+  /** Samples. */
+  private SampleVectorFile sampleVector;
+  
+  /**
+   * Create the map and the samples.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws IOException
+   * @throws SOMException
+   * 
+   */
+  @Setup
+  public void setup() throws IOException, SOMException {
+    File file;
+    
+    file         = BenchmarkData.createSampleFile(rows, dimension);
+    sampleVector = new SampleVectorFile(file.getPath());
+    weightMatrix = new WeightMatrix(BenchmarkData.createStorage(mapSize, 
+      mapSize, dimension), sampleVector, new GaussianNeighborsMethod(), 
+      new EuclideanDistanceMethod());
+    
+    if (index.equals("exact"))
+      weightMatrix.setBestMatchingIndex(new ProjectionBestMatchingIndex(
+        PROJECTION_NUMBER));
+    else if (index.equals("approximate"))
+      weightMatrix.setBestMatchingIndex(new ProjectionBestMatchingIndex(
+        PROJECTION_NUMBER, CANDIDATE_NUMBER));
+  }
+  
+  /**
+   * Mount the groups of all samples.
+   * 
+   * @return The groups.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Benchmark
+  public WeightElementVO[][] mountGroups() throws SOMException {
+    return weightMatrix.mountGroups(sampleVector);
+  }
+}
@@ -0,0 +1,139 @@
+/* Copyright (C) 2006 Leonardo Bispo de Oliveira and 
+ *                    Daniele Sunaga de Oliveira
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package br.com.ibmp.som.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ibmp.som.exception.SOMException;
+import br.com.ibmp.som.matrix.WeightStorage;
+import br.com.ibmp.som.neighbors.BubbleNeighborsMethod;
+import br.com.ibmp.som.neighbors.CutGaussianNeighborsMethod;
+import br.com.ibmp.som.neighbors.EpanechnikovNeighborsMethod;
+import br.com.ibmp.som.neighbors.GaussianNeighborsMethod;
+import br.com.ibmp.som.neighbors.NeighborsMethodInterface;
+
+/**
+ * Benchmark of the neighborhood update around one best matching neuron.
+ * 
+ * The update changes the weights, and repeated updates make them grow or
+ * shrink to denormal values, so the weights are restored before each 
+ * invocation.
+ *
+ * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborsBenchmark {
+
+  /** Width and height of the map. */
+  @Param({"10", "40", "100"})
+  public int mapSize;
+  
+  /** Number of values of each neuron. */
+  @Param({"8", "64"})
+  public int dimension;
+  
+  /** Learning time, that defines the neighborhood radius. */
+  @Param({"0.1", "0.5", "0.9"})
+  public double t;
+  
+  /** Neighborhood kernel. */
+  @Param({"gaussian", "bubble", "cutgauss", "epanechnikov"})
+  public String kernel;
+  
+  /** Scale neighbors method. */
+  private NeighborsMethodInterface neighborsMethod;
+  
+  /** Initial weights. */
+  private WeightStorage initial;
+  
+  /** Weights that are updated. */
+  private WeightStorage storage;
+  
+  /**
+   * Create the map.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Setup(Level.Trial)
+  public void setup() throws SOMException {
+    if (kernel.equals("bubble"))
+      neighborsMethod = new BubbleNeighborsMethod();
+    else if (kernel.equals("cutgauss"))
+      neighborsMethod = new CutGaussianNeighborsMethod();
+    else if (kernel.equals("epanechnikov"))
+      neighborsMethod = new EpanechnikovNeighborsMethod();
+    else
+      neighborsMethod = new GaussianNeighborsMethod();
+    
+    initial         = BenchmarkData.createStorage(mapSize, mapSize, dimension);
+    storage         = new WeightStorage(initial);
+  }
+  
+  /**
+   * Restore the initial weights.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Setup(Level.Invocation)
+  public void restore() throws SOMException {
+    storage.setWeights(initial);
+  }
+  
+  /**
+   * Update the neighborhood of the map center.
+   * 
+   * @return The updated weights.
+   * 
+   * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
+   * 
+   * @throws SOMException
+   * 
+   */
+  @Benchmark
+  public WeightStorage scaleNeighbors() throws SOMException {
+    neighborsMethod.scaleNeighbors(storage, mapSize / 2, mapSize / 2, t);
+    
+    return storage;
+  }
+}
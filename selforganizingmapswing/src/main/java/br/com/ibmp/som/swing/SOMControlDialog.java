@@ -37,12 +37,14 @@ import javax.swing.JSpinner;
 import javax.swing.SpinnerModel;
 import javax.swing.JProgressBar;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
 
 import br.com.ibmp.som.exception.SOMException;
 
 import br.com.ibmp.som.listener.SelfOrganizingMapListener;
 
 import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightSnapshot;
 
 import br.com.ibmp.som.swing.component.SOMControlPanelTable;
 
@@ -62,6 +64,9 @@ public class SOMControlDialog extends JDialog
   /** Dialog constants. */
   private static final long serialVersionUID = 5975247642391975552L;
   
+  /** Milliseconds between two progress updates. */
+  private static final long PROGRESS_MILLIS = 100;
+  
   private JButton btnPlay;
   private JButton btnStop;
   private JButton btnPause;
@@ -69,8 +74,6 @@ public class SOMControlDialog extends JDialog
   private JButton btnClose;
   private JButton btnCluster;
   
-  private WeightMatrix currentMatrix;
-
   private List<SOMClusterVO> clusterList;
   private SOMControlPanelTable clusterTable; 
   
@@ -119,9 +122,19 @@ public class SOMControlDialog extends JDialog
     btnCluster.addActionListener(new ActionListener() {
       public void actionPerformed(ActionEvent arg0) {
         SOMClusterVO clusterVO;
+        WeightSnapshot snapshot;
+        
+        try {
+          snapshot = SOMControlDialog.this.learningVO.getSom().getSnapshot();
+        }
+        catch (SOMException e) {
+          System.err.println("[ERROR] Error when I try to copy the weights.");
+          e.printStackTrace();
+          return;
+        }
         
         if ((clusterVO = (new SOMNewClusterDialog(SOMControlDialog.this.resourceBundle, 
-          SOMControlDialog.this.learningVO, currentMatrix)).showDialog()) != null) {
+          SOMControlDialog.this.learningVO, snapshot)).showDialog()) != null) {
           SOMControlDialog.this.clusterTable.addRow(clusterVO.getClusterName());
           SOMControlDialog.this.clusterList.add(clusterVO);
           clusterVO.setIteration(progress.getValue());
@@ -134,7 +147,15 @@ public class SOMControlDialog extends JDialog
     
     getContentPane().add(toolBar, BorderLayout.SOUTH);
     
-    learningVO.getSom().addListener(this);
+    try {
+      learningVO.getSom().addListener(this, 0, PROGRESS_MILLIS);
+    }
+    catch (SOMException e) {
+      System.out.println("[ERROR] Problems with learning process");
+      e.printStackTrace();
+      System.exit(1);
+    }
+    
     setDefaultCloseOperation(DO_NOTHING_ON_CLOSE );
     
     getContentPane().add(toolBar, BorderLayout.SOUTH);
@@ -176,7 +197,6 @@ public class SOMControlDialog extends JDialog
       public void actionPerformed(ActionEvent e) {
         int iteration;
 
-        currentMatrix = null;
         btnStop.setEnabled(true);
         btnPause.setEnabled(true);
         btnFf.setEnabled(false);
@@ -281,20 +301,25 @@ public class SOMControlDialog extends JDialog
   }
 
   public void end(WeightMatrix matrix, int iteration) {
-    btnStop.setEnabled(false);
-    btnPause.setEnabled(false);
-    btnFf.setEnabled(true);
-    btnPlay.setEnabled(true);
-    spnIter.setEnabled(true);
-    btnClose.setEnabled(true);
-    btnCluster.setEnabled(true);
-    
-    currentMatrix = matrix; 
+    SwingUtilities.invokeLater(new Runnable() {
+      public void run() {
+        btnStop.setEnabled(false);
+        btnPause.setEnabled(false);
+        btnFf.setEnabled(true);
+        btnPlay.setEnabled(true);
+        spnIter.setEnabled(true);
+        btnClose.setEnabled(true);
+        btnCluster.setEnabled(true);
+      }
+    });
   }
 
-  public void stepEnd(WeightMatrix matrix, int iteration) {
-    currentMatrix = matrix;
-    progress.setValue(iteration);
+  public void stepEnd(WeightMatrix matrix, final int iteration) {
+    SwingUtilities.invokeLater(new Runnable() {
+      public void run() {
+        progress.setValue(iteration);
+      }
+    });
   }
 }
 
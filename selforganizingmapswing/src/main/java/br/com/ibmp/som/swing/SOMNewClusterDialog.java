@@ -39,7 +39,7 @@ import javax.swing.JTextField;
 import javax.swing.border.BevelBorder;
 
 import br.com.ibmp.som.exception.SOMException;
-import br.com.ibmp.som.matrix.WeightMatrix;
+import br.com.ibmp.som.matrix.WeightSnapshot;
 import br.com.ibmp.som.matrix.vo.WeightElementVO;
 import br.com.ibmp.som.swing.components.external.AbsoluteLayout;
 import br.com.ibmp.som.swing.vo.SOMClusterVO;
@@ -81,8 +81,8 @@ public class SOMNewClusterDialog extends JDialog {
   /** This cluster information. */
   private SOMClusterVO clusterVO;
   
-  /** The weight matrix for this cluster. */
-  private WeightMatrix matrix;
+  /** Snapshot of the weights for this cluster. */
+  private WeightSnapshot snapshot;
   
   /** Bundle that contains the language informations. */
   private ResourceBundle resourceBundle;
@@ -96,13 +96,13 @@ public class SOMNewClusterDialog extends JDialog {
    * @param resourceBundle - Bundle that contains the language informations.
    * @param learningVO     - Contains information about the learning process 
    *                         used to create this Cluster.     
-   * @param matrix         - The weight matrix for this cluster.
+   * @param snapshot       - Snapshot of the weights for this cluster.
    * 
    * @author Leonardo Bispo de Oliveira and Daniele Sunaga de Oliveira.
    * 
    */
   public SOMNewClusterDialog(ResourceBundle resourceBundle, SOMLearningVO learningVO,
-    WeightMatrix matrix) {
+    WeightSnapshot snapshot) {
     
     super(new JFrame(), resourceBundle.getString(CLUSTER_TITLE), true);
 
@@ -117,7 +117,7 @@ public class SOMNewClusterDialog extends JDialog {
     
     this.resourceBundle = resourceBundle;
     this.learningVO     = learningVO;
-    this.matrix         = matrix;
+    this.snapshot       = snapshot;
     
     uniqueLearning = true;
     
@@ -184,7 +184,7 @@ public class SOMNewClusterDialog extends JDialog {
           
           try {
             
-            weightVO = matrix.mountUMatrix(SOMNewClusterDialog.this
+            weightVO = snapshot.mountUMatrix(SOMNewClusterDialog.this
               .learningVO.getSom().getSample());
             
           } 